@@ -0,0 +1,167 @@
+package szu.jason.ftp.spring;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : {@link FTPClientUtil}的异步版本，所有操作提交到独立的线程池执行并立即返回CompletableFuture，
+ * 同时在执行的操作数不超过连接池的容量，参数含义与{@link FTPClientUtil}中的同名方法一致
+ */
+public interface AsyncFTPClientUtil {
+
+    /**
+     * 异步上传文件流
+     *
+     * @see FTPClientUtil#put(InputStream, String, String, String)
+     */
+    CompletableFuture<Void> put(InputStream localInputStream,
+                                String remotePathUri,
+                                String remoteFilename,
+                                String suffix);
+
+    /**
+     * 异步上传本地文件
+     *
+     * @see FTPClientUtil#put(File, String, String, String)
+     */
+    CompletableFuture<Void> put(File localFile,
+                                String remoteDir,
+                                String remoteFilename,
+                                String suffix);
+
+    /**
+     * 异步上传本地文件
+     *
+     * @see FTPClientUtil#put(String, String, String, String)
+     */
+    CompletableFuture<Void> put(String localFileAbsolutePathUri,
+                                String remoteDir,
+                                String remoteFilename,
+                                String suffix);
+
+    /**
+     * 异步断点续传上传
+     *
+     * @see FTPClientUtil#putResumable(File, String, String, String)
+     */
+    CompletableFuture<Void> putResumable(File localFile,
+                                         String remoteDir,
+                                         String remoteFilename,
+                                         String suffix);
+
+    /**
+     * 异步下载文件到输出流
+     *
+     * @see FTPClientUtil#get(OutputStream, String, String)
+     */
+    CompletableFuture<Void> get(OutputStream localOutputStream, String remoteDir, String remoteFilename);
+
+    /**
+     * 异步下载文件到本地文件
+     *
+     * @see FTPClientUtil#get(File, String, String)
+     */
+    CompletableFuture<Void> get(File localFile, String remoteDir, String remoteFilename);
+
+    /**
+     * 异步分段并行下载
+     *
+     * @see FTPClientUtil#get(File, String, String, int)
+     */
+    CompletableFuture<Void> get(File localFile, String remoteDir, String remoteFilename, int segmentCount);
+
+    /**
+     * 异步断点续传下载
+     *
+     * @see FTPClientUtil#getResumable(File, String, String)
+     */
+    CompletableFuture<Void> getResumable(File localFile, String remoteDir, String remoteFilename);
+
+    /**
+     * 异步下载文件到本地目录
+     *
+     * @see FTPClientUtil#get(String, String, String)
+     */
+    CompletableFuture<Void> get(String localFileDir, String remoteDir, String remoteFilename);
+
+    /**
+     * 异步下载文件到本地目录
+     *
+     * @see FTPClientUtil#get(String, String)
+     */
+    CompletableFuture<Void> get(String localDir, String remoteFilePathUri);
+
+    /**
+     * 异步移动远程文件
+     *
+     * @see FTPClientUtil#move(String, String, String)
+     */
+    CompletableFuture<Void> move(String remoteSrcDir, String remoteDestDir, String remoteFilename);
+
+    /**
+     * 异步复制远程文件
+     *
+     * @see FTPClientUtil#copy(String, String, String, String, String)
+     */
+    CompletableFuture<Void> copy(String remoteSrcDir,
+                                 String remoteDestDir,
+                                 String remoteSrcFilename,
+                                 String suffix,
+                                 String remoteNewFilename);
+
+    /**
+     * 异步删除远程文件
+     *
+     * @see FTPClientUtil#deleteFile(String)
+     */
+    CompletableFuture<Boolean> deleteFile(String remoteFileAbsolutePathUri);
+
+    /**
+     * 异步删除远程目录
+     *
+     * @see FTPClientUtil#removeDirectory(String)
+     */
+    CompletableFuture<Boolean> removeDirectory(String remoteDir);
+
+    /**
+     * 异步获取远程目录下的文件名
+     *
+     * @see FTPClientUtil#getRemoteDirFilenames(String)
+     */
+    CompletableFuture<List<String>> getRemoteDirFilenames(String remoteDir);
+
+    /**
+     * 异步获取远程目录下的FTPFile
+     *
+     * @see FTPClientUtil#getRemoteDirFTPFiles(String)
+     */
+    CompletableFuture<List<FTPFile>> getRemoteDirFTPFiles(String remoteDir);
+
+    /**
+     * 异步获取远程目录中的文件
+     *
+     * @see FTPClientUtil#getRemoteFileByDir(String, boolean)
+     */
+    CompletableFuture<List<RemoteFileInfo>> getRemoteFileByDir(String remoteDir, boolean recursive);
+
+    /**
+     * 异步获取远程目录中的文件（不扫描子目录）
+     *
+     * @see FTPClientUtil#getRemoteFileByDir(String)
+     */
+    CompletableFuture<List<RemoteFileInfo>> getRemoteFileByDir(String remoteDir);
+
+    /**
+     * 异步判断远程目录或文件是否存在
+     *
+     * @see FTPClientUtil#isRemotePathExist(String)
+     */
+    CompletableFuture<Boolean> isRemotePathExist(String remotePath);
+}
@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author : Vander
@@ -55,6 +56,20 @@ public interface FTPClientUtil {
              String remoteFilename,
              String suffix) throws Exception;
 
+    /**
+     * 断点续传上传文件，传输进度记录在本地日志中，失败或进程重启后再次调用将从服务器上临时文件的末尾继续上传
+     *
+     * @param localFile      本地文件，File类型参数
+     * @param remoteDir      ftp服务器目录
+     * @param remoteFilename 上传后，在ftp服务器上的文件名
+     * @param suffix         文件上传时添加的文件后缀，上传完成时，重名为name
+     * @throws Exception 连接不到ftp服务器，登录失败，文件上传失败等异常
+     */
+    void putResumable(File localFile,
+                      String remoteDir,
+                      String remoteFilename,
+                      String suffix) throws Exception;
+
     /**
      * 从ftp服务器下载文件，并写入到本地outputStream中
      *
@@ -75,6 +90,27 @@ public interface FTPClientUtil {
      */
     void get(File localFile, String remoteDir, String remoteFilename) throws Exception;
 
+    /**
+     * 从ftp服务器分段并行下载文件，每个分段占用连接池中的一个连接，按偏移量写入本地文件的对应位置
+     *
+     * @param localFile      本地文件， File类型参数
+     * @param remoteDir      ftp 服务器目录
+     * @param remoteFilename 要下载的文件名
+     * @param segmentCount   分段数，小于等于1或文件较小时退化为单连接下载
+     * @throws Exception
+     */
+    void get(File localFile, String remoteDir, String remoteFilename, int segmentCount) throws Exception;
+
+    /**
+     * 断点续传下载文件，远程文件未发生变化时，再次调用将从本地文件的末尾继续下载
+     *
+     * @param localFile      本地文件， File类型参数
+     * @param remoteDir      ftp 服务器目录
+     * @param remoteFilename 要下载的文件名
+     * @throws Exception
+     */
+    void getResumable(File localFile, String remoteDir, String remoteFilename) throws Exception;
+
     /**
      * 从ftp服务器下载文件, 下载后的文件名与ftp服务器上的文件名一致
      *
@@ -94,6 +130,28 @@ public interface FTPClientUtil {
      */
     void get(String localDir, String remoteFilePathUri) throws Exception;
 
+    /**
+     * 打开远程文件的输入流，期间占用一个连接，调用方必须关闭该流以释放连接
+     *
+     * @param remoteDir      ftp 服务器目录
+     * @param remoteFilename 要下载的文件名
+     * @return 远程文件输入流
+     * @throws Exception ftp连接，登录失败，文件不存在等异常
+     */
+    RemoteFileInputStream getInputStream(String remoteDir, String remoteFilename) throws Exception;
+
+    /**
+     * 打开远程临时文件remoteFilename + suffix的输出流，期间占用一个连接。
+     * 调用close()完成上传并重命名为remoteFilename，调用abort()放弃上传并删除临时文件
+     *
+     * @param remoteDir      ftp服务器目录，不存在则逐级创建
+     * @param remoteFilename 上传后，在ftp服务器上的文件名
+     * @param suffix         文件上传时添加的文件后缀
+     * @return 远程文件输出流
+     * @throws Exception 连接不到ftp服务器，登录失败，无权限等异常
+     */
+    RemoteFileOutputStream getOutputStream(String remoteDir, String remoteFilename, String suffix) throws Exception;
+
     /**
      * ftp 服务器文件move
      *
@@ -177,6 +235,17 @@ public interface FTPClientUtil {
      */
     List<RemoteFileInfo> getRemoteFileByDir(String remoteDir) throws Exception;
 
+    /**
+     * 以流的形式惰性列出远程ftp目录中的文件，边解析边返回，不会一次性构建完整的文件列表。
+     * 遍历期间占用一个连接，流遍历结束或关闭时释放，调用方应使用try-with-resources关闭该流
+     *
+     * @param remoteDir 用户访问ftp路径
+     * @param recursive 是否扫描子文件夹
+     * @return 文件流
+     * @throws Exception
+     */
+    Stream<RemoteFileInfo> streamRemoteFileByDir(String remoteDir, boolean recursive) throws Exception;
+
     /**
      * 判断远程ftp目录或文件是否存在
      * @param remotePath
@@ -6,6 +6,13 @@ import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import szu.jason.ftp.spring.pool.WarmUpPolicy;
+import szu.jason.ftp.spring.util.CompressionUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author : Vander
@@ -28,6 +35,19 @@ public class FTPClientUtilProperties extends GenericObjectPoolConfig {
      * ftp 端口号
      */
     private int port;
+    /**
+     * 多个等价节点，格式为host或host:port（未指定端口时使用port），配置后忽略hostname，
+     * 每个节点拥有独立的连接池，maxTotal等连接池配置按节点生效
+     */
+    private List<String> hosts = new ArrayList<>();
+    /**
+     * 节点连续失败多少次后被摘除
+     */
+    private int hostEjectFailures = 3;
+    /**
+     * 节点被摘除的时长，到期后放行一次借用作为探测，单位毫秒
+     */
+    private long hostEjectMillis = 30000;
     /**
      * ftp 用户名
      */
@@ -49,7 +69,7 @@ public class FTPClientUtilProperties extends GenericObjectPoolConfig {
      */
     private int fileType = FTP.BINARY_FILE_TYPE;
     /**
-     * ftp 文件传输模式
+     * ftp 文件传输模式，支持STREAM（10）和MODE Z（13，等同于compressionEnabled）
      */
     private int fileTransferMode = FTP.STREAM_TRANSFER_MODE;
     /**
@@ -64,6 +84,85 @@ public class FTPClientUtilProperties extends GenericObjectPoolConfig {
      * Set the internal buffer size for buffered data streams.
      */
     private int bufferSize = 10240;
+    /**
+     * 传输缓冲区池最多保留的空闲缓冲区个数，缓冲区大小为bufferSize
+     */
+    private int bufferPoolMaxIdle = 64;
+    /**
+     * 远程复制时读、写两个阶段之间的缓冲区个数，读线程最多领先写线程这么多个缓冲区，小于2时读写在同一线程交替进行
+     */
+    private int copyPipelineBuffers = 16;
+    /**
+     * 远程复制读线程数的上限，同一客户端的所有复制共享，读线程用尽时新的复制在调用线程中交替读写
+     */
+    private int copyReaderThreads = 16;
+    /**
+     * FTP复制时是否优先使用FXP（服务器间直接传输），服务器拒绝时自动改用流式复制
+     */
+    private boolean fxpEnabled = false;
+    /**
+     * FXP传输期间等待服务器完成应答的超时时间，单位毫秒，小于等于0时一直等待，应大于最大文件的传输时间。
+     * 超时后断开两端的连接
+     */
+    private int fxpReplyTimeout = 600000;
+    /**
+     * SFTP复制时是否优先在服务器上通过SSH exec执行cp，服务器不允许执行命令时自动改用流式复制
+     */
+    private boolean sftpExecCopy = false;
+    /**
+     * 服务端cp命令的超时时间，单位毫秒，小于等于0时一直等待
+     */
+    private long sftpExecCopyTimeout = 600000;
+    /**
+     * 是否压缩传输：FTP协商MODE Z（服务器不支持时不压缩），SFTP协商SSH的zlib压缩（需要com.jcraft:jzlib）
+     */
+    private boolean compressionEnabled = false;
+    /**
+     * 压缩级别，0-9，越大压缩率越高、CPU开销越大
+     */
+    private int compressionLevel = 6;
+    /**
+     * 自适应压缩，文件扩展名属于compressedExtensions时不压缩。仅对FTP生效，SFTP的压缩作用于整个SSH会话
+     */
+    private boolean compressionAdaptive = true;
+    /**
+     * 已压缩格式的扩展名，自适应压缩时这些文件不再压缩
+     */
+    private List<String> compressedExtensions = new ArrayList<>(Arrays.asList(
+            "gz", "tgz", "zip", "bz2", "xz", "7z", "rar", "zst", "lz4", "jar",
+            "jpg", "jpeg", "png", "gif", "mp3", "mp4", "avi", "mkv", "pdf", "docx", "xlsx"));
+    /**
+     * SFTP每个SSH会话上最多打开的通道数，不应超过服务器sshd的MaxSessions（OpenSSH默认为10），
+     * 服务器拒绝打开通道时自动改用新会话。同一会话上的通道共享一个TCP连接和SSH流控窗口，
+     * 分段并行传输不会因此提速，默认每个会话一个通道，仅在连接数受限、以小文件为主时调大
+     */
+    private int sftpChannelsPerSession = 1;
+    /**
+     * 连接归还后空闲时间小于该值时，借用和空闲检测均跳过校验，单位毫秒，小于等于0时每次都校验
+     */
+    private long validationSkipIdleMillis = 3000;
+    /**
+     * 空闲连接保活间隔，大于0时开启空闲检测（testWhileIdle），驱逐线程按该间隔对空闲连接发送NOOP（SFTP为realpath），
+     * 并设置SSH会话的ServerAliveInterval，应小于NAT或防火墙的空闲超时，单位毫秒。
+     * 默认为0，不保活，连接池的驱逐配置保持不变，连接经过会断开空闲连接的NAT或防火墙时按需开启
+     */
+    private long keepAliveIdleMillis = 0;
+    /**
+     * 借用连接时若连接池将近耗尽，回收借出超过removeAbandonedTimeout仍未归还的连接
+     */
+    private boolean removeAbandonedOnBorrow = false;
+    /**
+     * 驱逐线程运行时回收借出超过removeAbandonedTimeout仍未归还的连接，需配置timeBetweenEvictionRunsMillis或keepAliveIdleMillis
+     */
+    private boolean removeAbandonedOnMaintenance = false;
+    /**
+     * 连接借出多久未归还视为泄漏，单位秒，应大于最长的单次传输时间
+     */
+    private int removeAbandonedTimeout = 300;
+    /**
+     * 回收泄漏连接时是否打印借出连接时的调用栈，便于定位未归还连接的代码
+     */
+    private boolean logAbandoned = true;
     /**
      * The timeout in milliseconds to use for the socket connection
      */
@@ -80,5 +179,101 @@ public class FTPClientUtilProperties extends GenericObjectPoolConfig {
      * 默认编码为UTF-8
      */
     private String encoding = "UTF-8";
+    /**
+     * 递归列目录时最多同时使用的连接数，不超过maxTotal，默认为1，即在单个连接上顺序遍历。
+     * 大于1时并行遍历，结果顺序与顺序遍历不同
+     */
+    private int listMaxFanOut = 1;
+    /**
+     * SFTP流式列目录时，消费方超过该时间未读取视为已放弃（未关闭Stream），停止列目录并归还连接，单位毫秒，不大于0时一直等待
+     */
+    private long streamListIdleTimeout = 60000;
+    /**
+     * FTP服务器支持时（FEAT中包含MLST）使用MLSD列目录，时间精确到秒且无需按服务器格式解析LIST输出
+     */
+    private boolean preferMlsd = true;
+    /**
+     * 是否缓存远程路径的存在性与属性，缓存期间其他客户端对服务器的修改可能不可见
+     */
+    private boolean metadataCacheEnabled = false;
+    /**
+     * 远程路径元数据缓存的有效期，单位毫秒
+     */
+    private long metadataCacheTtl = 5000;
+    /**
+     * 远程路径元数据缓存最多保存的路径数
+     */
+    private int metadataCacheMaxSize = 10000;
+    /**
+     * 最多记录的已知存在的远程目录数，上传到已知目录时跳过目录探测，小于等于0时不记录（默认）。
+     * 仅当远程目录不会被其他客户端删除时开启（如10000）：FTP进入目录失败时会重新建目录，
+     * SFTP不会，目录被删除后上传到该目录将一直失败，直到本客户端删除或移动该目录
+     */
+    private int knownDirMaxSize = 0;
+    /**
+     * 连接池预热策略：NONE不预热，MIN_IDLE预热minIdle个连接，TARGET预热warmUpTarget个连接
+     */
+    private WarmUpPolicy warmUpPolicy = WarmUpPolicy.MIN_IDLE;
+    /**
+     * 预热策略为TARGET时预热的连接数，不超过maxTotal
+     */
+    private int warmUpTarget = 0;
+    /**
+     * 并行预热连接的线程数
+     */
+    private int warmUpThreads = 4;
+    /**
+     * 是否根据借用等待时间和服务器拒绝情况自动调整连接池上限，maxTotal作为初始值
+     */
+    private boolean adaptiveSizing = false;
+    /**
+     * 自适应调整时连接池上限的最小值
+     */
+    private int adaptiveMinTotal = 1;
+    /**
+     * 自适应调整时连接池上限的最大值
+     */
+    private int adaptiveMaxTotal = 64;
+    /**
+     * 自适应调整周期，单位毫秒
+     */
+    private long adaptiveIntervalMillis = 5000;
+    /**
+     * 平均借用等待时间超过该值时扩容，单位毫秒
+     */
+    private long adaptiveBorrowWaitMillis = 50;
+    /**
+     * 服务器拒绝连接时连接池上限的收缩系数
+     */
+    private double adaptiveBackoffFactor = 0.5;
+    /**
+     * 是否记录FTP连接的工作目录，连接已在目标目录下时不再发送CWD
+     */
+    private boolean trackWorkingDirectory = true;
+    /**
+     * 断点续传日志存放目录
+     */
+    private String journalDir = System.getProperty("java.io.tmpdir") + File.separator + "ftp-journal";
+    /**
+     * 断点续传时每传输多少字节更新一次日志
+     */
+    private long journalCheckpointBytes = 8 * 1024 * 1024L;
+    /**
+     * 异步客户端是否优先使用虚拟线程（需要JDK 21及以上）
+     */
+    private boolean asyncVirtualThreads = true;
+    /**
+     * 异步客户端的平台线程数，小于等于0时取maxTotal，开启adaptiveSizing时取maxTotal与adaptiveMaxTotal中的较大值
+     */
+    private int asyncThreads = 0;
+
+    /**
+     * FTP是否使用MODE Z压缩传输
+     *
+     * @return
+     */
+    public boolean isDeflateTransfer() {
+        return compressionEnabled || fileTransferMode == CompressionUtil.DEFLATE_TRANSFER_MODE;
+    }
 
 }
@@ -0,0 +1,56 @@
+package szu.jason.ftp.spring;
+
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 按名称获取ftp.clients.*中配置的FTPClientUtil
+ */
+public class FTPClientUtilRegistry {
+
+    private final Map<String, FTPClientUtil> ftpClientUtils;
+
+    public FTPClientUtilRegistry(Map<String, FTPClientUtil> ftpClientUtils) {
+        this.ftpClientUtils = Collections.unmodifiableMap(new LinkedHashMap<>(ftpClientUtils));
+    }
+
+    /**
+     * 获取指定名称的客户端
+     *
+     * @param name ftp.clients.后的客户端名称
+     * @return
+     */
+    public FTPClientUtil get(String name) {
+        FTPClientUtil ftpClientUtil = ftpClientUtils.get(name);
+        if (ftpClientUtil == null) {
+            throw new FTPClientUtilException(String.format("FTP客户端%s未配置，已配置的客户端：%s", name, ftpClientUtils.keySet()));
+        }
+        return ftpClientUtil;
+    }
+
+    /**
+     * 是否配置了指定名称的客户端
+     *
+     * @param name
+     * @return
+     */
+    public boolean contains(String name) {
+        return ftpClientUtils.containsKey(name);
+    }
+
+    /**
+     * 所有客户端名称
+     *
+     * @return
+     */
+    public Set<String> getNames() {
+        return ftpClientUtils.keySet();
+    }
+
+}
@@ -0,0 +1,33 @@
+package szu.jason.ftp.spring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 多个命名客户端的配置，如ftp.clients.partnerA.*、ftp.clients.partnerB.*，
+ * 每个客户端的配置项与ftp.client.*相同，所有客户端共享一个按名称分组的连接池，
+ * 连接池整体配置为ftp.keyed-pool.*，如max-total（所有客户端合计）、max-total-per-key（单个客户端）
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 多客户端配置
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ftp")
+public class FTPClientsProperties {
+    /**
+     * 客户端名称 -> 客户端配置，客户端的maxTotal小于max-total-per-key时以maxTotal为该客户端的上限
+     */
+    private Map<String, FTPClientUtilProperties> clients = new LinkedHashMap<>();
+    /**
+     * 按客户端名称分组的连接池配置
+     */
+    private GenericKeyedObjectPoolConfig keyedPool = new GenericKeyedObjectPoolConfig();
+
+}
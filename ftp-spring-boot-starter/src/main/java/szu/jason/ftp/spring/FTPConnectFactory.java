@@ -15,6 +15,7 @@ public interface FTPConnectFactory {
      * @return
      */
     FTPClient getFtpClient();
+
     /**
      * 子类实现归还连接的方式
      *
@@ -22,4 +23,15 @@ public interface FTPConnectFactory {
      */
     void returnFtpClient(FTPClient fTPClient);
 
+    /**
+     * 操作结束后释放连接，failure为操作过程中的异常（成功时为null），
+     * 子类可据此判断连接是否已损坏，损坏的连接应销毁而不是放回
+     *
+     * @param fTPClient
+     * @param failure
+     */
+    default void releaseFtpClient(FTPClient fTPClient, Throwable failure) {
+        returnFtpClient(fTPClient);
+    }
+
 }
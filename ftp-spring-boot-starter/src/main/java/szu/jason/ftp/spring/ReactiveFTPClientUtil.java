@@ -0,0 +1,42 @@
+package szu.jason.ftp.spring;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : {@link FTPClientUtil}的响应式版本，以背压驱动远程文件流的读写，
+ * 下游处理多慢，从服务器读取就多慢；上游发布多快，也只会按写出速度请求数据，整个过程只占用一个连接。
+ * 仅在classpath中存在reactor-core时可用
+ */
+public interface ReactiveFTPClientUtil {
+
+    /**
+     * 以数据块的形式下载远程文件，每个数据块最多为ftp.client.bufferSize字节，
+     * 下游请求一个数据块才从服务器读取一个数据块。取消订阅或出错时关闭数据流并释放连接
+     *
+     * @param remoteDir      ftp 服务器目录
+     * @param remoteFilename 要下载的文件名
+     * @return 远程文件内容
+     */
+    Flux<ByteBuffer> get(String remoteDir, String remoteFilename);
+
+    /**
+     * 将数据块写入远程临时文件remoteFilename + suffix，上游完成后重命名为remoteFilename。
+     * 上游出错或订阅被取消时放弃上传并删除临时文件，不会产生不完整的目标文件
+     *
+     * @param content        文件内容
+     * @param remoteDir      ftp服务器目录，不存在则逐级创建
+     * @param remoteFilename 上传后，在ftp服务器上的文件名
+     * @param suffix         文件上传时添加的文件后缀
+     * @return 上传完成信号
+     */
+    Mono<Void> put(Publisher<ByteBuffer> content,
+                   String remoteDir,
+                   String remoteFilename,
+                   String suffix);
+}
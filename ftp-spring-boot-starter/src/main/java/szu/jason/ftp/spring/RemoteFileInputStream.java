@@ -0,0 +1,43 @@
+package szu.jason.ftp.spring;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 远程文件输入流，持有一个借出的连接，关闭流时结束传输并释放连接，重复关闭无副作用
+ */
+public class RemoteFileInputStream extends FilterInputStream {
+
+    /**
+     * 关闭后的回调，负责结束传输并释放连接
+     */
+    @FunctionalInterface
+    public interface CloseHandler {
+        void onClose() throws IOException;
+    }
+
+    private final CloseHandler closeHandler;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public RemoteFileInputStream(InputStream remoteInputStream, CloseHandler closeHandler) {
+        super(remoteInputStream);
+        this.closeHandler = closeHandler;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            super.close();
+        } finally {
+            closeHandler.onClose();
+        }
+    }
+}
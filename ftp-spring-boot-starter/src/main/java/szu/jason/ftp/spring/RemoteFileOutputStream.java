@@ -0,0 +1,80 @@
+package szu.jason.ftp.spring;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 远程文件输出流，写入带后缀的临时文件并持有一个借出的连接。
+ * close()表示数据已全部写出，完成上传并重命名为目标文件；abort()表示放弃本次上传，不会重命名。
+ * 两者都会释放连接，且只有第一次调用生效
+ */
+public class RemoteFileOutputStream extends OutputStream {
+
+    /**
+     * 关闭后的回调，负责结束传输、按结果重命名或清理临时文件并释放连接
+     */
+    @FunctionalInterface
+    public interface CompleteHandler {
+        /**
+         * @param success true为正常关闭，false为放弃上传
+         * @throws IOException
+         */
+        void onComplete(boolean success) throws IOException;
+    }
+
+    private final OutputStream remoteOutputStream;
+
+    private final CompleteHandler completeHandler;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public RemoteFileOutputStream(OutputStream remoteOutputStream, CompleteHandler completeHandler) {
+        this.remoteOutputStream = remoteOutputStream;
+        this.completeHandler = completeHandler;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        remoteOutputStream.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        remoteOutputStream.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        remoteOutputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        complete(true);
+    }
+
+    /**
+     * 放弃本次上传
+     *
+     * @throws IOException
+     */
+    public void abort() throws IOException {
+        complete(false);
+    }
+
+    private void complete(boolean success) throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        boolean streamClosed = false;
+        try {
+            remoteOutputStream.close();
+            streamClosed = true;
+        } finally {
+            completeHandler.onComplete(success && streamClosed);
+        }
+    }
+}
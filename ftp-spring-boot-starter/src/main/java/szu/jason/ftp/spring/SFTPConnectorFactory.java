@@ -20,4 +20,15 @@ public interface SFTPConnectorFactory {
      */
      void returnConnector(SFTPConnector sftpConnector);
 
+    /**
+     * 操作结束后释放连接，failure为操作过程中的异常（成功时为null），
+     * 子类可据此判断连接是否已损坏，损坏的连接应销毁而不是放回
+     *
+     * @param sftpConnector
+     * @param failure
+     */
+    default void releaseConnector(SFTPConnector sftpConnector, Throwable failure) {
+        returnConnector(sftpConnector);
+    }
+
 }
@@ -0,0 +1,95 @@
+package szu.jason.ftp.spring.cache;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已知存在的远程目录集合<br>
+ *
+ * 由成功的建目录和列目录填充，上传到已知目录时无需再探测和创建目录。
+ * 目录存在时其所有上级目录也必然存在，因此加入目录时会一并加入上级目录。
+ * 集合超过maxSize时随机淘汰，maxSize小于等于0时不记录任何目录<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 跳过mkDirRecursive远程探测的并发有界目录集合
+ */
+public class KnownDirectorySet {
+
+    private final int maxSize;
+
+    private final Set<String> directories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param maxSize 最多记录的目录数
+     */
+    public KnownDirectorySet(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 目录是否已知存在
+     *
+     * @param remoteDir
+     * @return
+     */
+    public boolean contains(String remoteDir) {
+        return maxSize > 0 && directories.contains(normalize(remoteDir));
+    }
+
+    /**
+     * 记录目录及其所有上级目录
+     *
+     * @param remoteDir
+     */
+    public void add(String remoteDir) {
+        if (maxSize <= 0) {
+            return;
+        }
+        String path = normalize(remoteDir);
+        while (!path.isEmpty() && !path.equals("/") && directories.add(path)) {
+            int index = path.lastIndexOf('/');
+            path = index <= 0 ? "" : path.substring(0, index);
+        }
+        Iterator<String> iterator = directories.iterator();
+        while (directories.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 移除目录本身及其下所有子目录
+     *
+     * @param remoteDir
+     */
+    public void removeTree(String remoteDir) {
+        String path = normalize(remoteDir);
+        String prefix = path + "/";
+        directories.removeIf(dir -> dir.equals(path) || dir.startsWith(prefix));
+    }
+
+    public int getSize() {
+        return directories.size();
+    }
+
+    /**
+     * 合并重复的分隔符并去掉末尾的分隔符
+     *
+     * @param remoteDir
+     * @return
+     */
+    private static String normalize(String remoteDir) {
+        String path = remoteDir.replaceAll("/{2,}", "/");
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KnownDirectorySet[size=%d, maxSize=%d]", getSize(), maxSize);
+    }
+}
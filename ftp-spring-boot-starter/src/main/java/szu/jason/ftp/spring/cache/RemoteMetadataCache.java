@@ -0,0 +1,209 @@
+package szu.jason.ftp.spring.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 远程路径元数据缓存<br>
+ *
+ * 按远程路径缓存是否存在以及属性（SFTP为SftpATTRS，FTP的NLST只能得到是否存在，属性为null），
+ * 条目在ttl毫秒后过期，超过maxSize时按最近最少使用淘汰。本工具类自身的写操作（上传、移动、删除、建目录）
+ * 会使相关条目失效，其他客户端对服务器的修改最多在ttl之后可见<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 存在性与属性检查的TTL缓存，提供命中与未命中统计
+ */
+public class RemoteMetadataCache<A> {
+
+    /**
+     * 缓存条目
+     */
+    public static class Entry<A> {
+
+        private final boolean exist;
+
+        private final A attributes;
+
+        private final long expireTime;
+
+        Entry(boolean exist, A attributes, long expireTime) {
+            this.exist = exist;
+            this.attributes = attributes;
+            this.expireTime = expireTime;
+        }
+
+        public boolean isExist() {
+            return exist;
+        }
+
+        public A getAttributes() {
+            return attributes;
+        }
+    }
+
+    private final boolean enabled;
+
+    private final long ttl;
+
+    private final LinkedHashMap<String, Entry<A>> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param enabled 是否启用，未启用时不缓存任何条目
+     * @param ttl     条目有效期，单位毫秒
+     * @param maxSize 最多缓存的条目数
+     */
+    public RemoteMetadataCache(boolean enabled, long ttl, int maxSize) {
+        this.enabled = enabled && ttl > 0 && maxSize > 0;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Entry<A>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<A>> eldest) {
+                if (size() > maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param remotePath 远程路径
+     * @return 未命中或已过期时返回null
+     */
+    public Entry<A> get(String remotePath) {
+        if (!enabled) {
+            return null;
+        }
+        String key = normalize(remotePath);
+        synchronized (entries) {
+            Entry<A> entry = entries.get(key);
+            if (entry != null && entry.expireTime > System.currentTimeMillis()) {
+                hitCount.incrementAndGet();
+                return entry;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param remotePath 远程路径
+     * @param exist      是否存在
+     * @param attributes 路径属性，可以为null
+     */
+    public void put(String remotePath, boolean exist, A attributes) {
+        if (!enabled) {
+            return;
+        }
+        Entry<A> entry = new Entry<>(exist, attributes, System.currentTimeMillis() + ttl);
+        synchronized (entries) {
+            entries.put(normalize(remotePath), entry);
+        }
+    }
+
+    /**
+     * 使单个路径的条目失效
+     *
+     * @param remotePath 远程路径
+     */
+    public void invalidate(String remotePath) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(normalize(remotePath));
+        }
+    }
+
+    /**
+     * 使目录本身及其下所有路径的条目失效
+     *
+     * @param remoteDir 远程目录
+     */
+    public void invalidateTree(String remoteDir) {
+        if (!enabled) {
+            return;
+        }
+        String key = normalize(remoteDir);
+        String prefix = key.endsWith("/") ? key : key + "/";
+        synchronized (entries) {
+            Iterator<String> iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                String path = iterator.next();
+                if (path.equals(key) || path.startsWith(prefix)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 合并重复的分隔符并去掉末尾的分隔符，使同一路径的不同写法对应同一条目
+     *
+     * @param remotePath
+     * @return
+     */
+    private static String normalize(String remotePath) {
+        String path = remotePath.replaceAll("/{2,}", "/");
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoteMetadataCache[enabled=%s, size=%d, hit=%d, miss=%d, eviction=%d]",
+                enabled, getSize(), getHitCount(), getMissCount(), getEvictionCount());
+    }
+}
@@ -0,0 +1,74 @@
+package szu.jason.ftp.spring.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import szu.jason.ftp.spring.FTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.FTPClientUtilRegistry;
+import szu.jason.ftp.spring.FTPClientsProperties;
+import szu.jason.ftp.spring.FtpClientProtocolConstant;
+import szu.jason.ftp.spring.impl.PooledFTPClientUtilImpl;
+import szu.jason.ftp.spring.impl.PooledSFTPClientUtilImpl;
+import szu.jason.ftp.spring.pool.KeyedFTPClientPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 配置了ftp.clients.*时，为每个命名客户端注入FTPClientUtil，所有客户端共享一个按名称分组的连接池
+ */
+@Slf4j
+@Configuration
+@Conditional(FTPClientRegistryAutoConfiguration.OnFTPClientsCondition.class)
+@EnableConfigurationProperties({FTPClientsProperties.class})
+public class FTPClientRegistryAutoConfiguration {
+
+    @Bean(name = "keyedFTPClientPool")
+    public KeyedFTPClientPool keyedFTPClientPool(FTPClientsProperties ftpClientsProperties) {
+        return new KeyedFTPClientPool(ftpClientsProperties.getClients(), ftpClientsProperties.getKeyedPool());
+    }
+
+    @Bean(name = "ftpClientUtilRegistry")
+    public FTPClientUtilRegistry ftpClientUtilRegistry(FTPClientsProperties ftpClientsProperties,
+                                                       KeyedFTPClientPool keyedFTPClientPool) {
+        Map<String, FTPClientUtil> ftpClientUtils = new LinkedHashMap<>();
+        for (Map.Entry<String, FTPClientUtilProperties> client : ftpClientsProperties.getClients().entrySet()) {
+            FTPClientUtilProperties properties = client.getValue();
+            if (FtpClientProtocolConstant.SFTP_PROTOCOL.equals(properties.getProtocol())) {
+                ftpClientUtils.put(client.getKey(),
+                        new PooledSFTPClientUtilImpl(keyedFTPClientPool.getPool(client.getKey()), properties));
+            } else {
+                ftpClientUtils.put(client.getKey(),
+                        new PooledFTPClientUtilImpl(keyedFTPClientPool.getPool(client.getKey()), properties));
+            }
+            log.info("注册FTP客户端{}，协议：{}，host：{}", client.getKey(), properties.getProtocol(), properties.getHostname());
+        }
+        return new FTPClientUtilRegistry(ftpClientUtils);
+    }
+
+    /**
+     * 存在ftp.clients.*配置时生效
+     */
+    static class OnFTPClientsCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            Map<String, Object> clients = new RelaxedPropertyResolver(context.getEnvironment(), "ftp.clients.")
+                    .getSubProperties("");
+            return clients.isEmpty()
+                    ? ConditionOutcome.noMatch("未配置ftp.clients.*")
+                    : ConditionOutcome.match("已配置ftp.clients.*");
+        }
+    }
+
+}
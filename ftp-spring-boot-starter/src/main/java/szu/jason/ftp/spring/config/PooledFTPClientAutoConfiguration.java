@@ -1,21 +1,34 @@
 package szu.jason.ftp.spring.config;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.ObjectPool;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import szu.jason.ftp.spring.AsyncFTPClientUtil;
 import szu.jason.ftp.spring.FTPClientUtil;
 import szu.jason.ftp.spring.FTPClientUtilProperties;
 import szu.jason.ftp.spring.FtpClientProtocolConstant;
+import szu.jason.ftp.spring.ReactiveFTPClientUtil;
+import szu.jason.ftp.spring.SFTPConnector;
 import szu.jason.ftp.spring.exception.FTPProtocolNotFoundUtilException;
 import szu.jason.ftp.spring.factory.FTPClientPooledObjectFactory;
 import szu.jason.ftp.spring.factory.SFTPClientPooledObjectFactory;
+import szu.jason.ftp.spring.impl.AsyncFTPClientUtilImpl;
 import szu.jason.ftp.spring.impl.PooledFTPClientUtilImpl;
 import szu.jason.ftp.spring.impl.PooledSFTPClientUtilImpl;
+import szu.jason.ftp.spring.impl.ReactiveFTPClientUtilImpl;
 import szu.jason.ftp.spring.pool.FTPClientPool;
+import szu.jason.ftp.spring.pool.MultiHostFTPClientPool;
+
+import java.util.function.Function;
 
 /**
  * @author : Vander
@@ -37,8 +50,8 @@ public class PooledFTPClientAutoConfiguration {
             havingValue = "ftp",
             matchIfMissing = true
     )
-    public FTPClientPool ftpClientUtilCommonPool(FTPClientUtilProperties ftpClientUtilProperties) throws Exception {
-        return new FTPClientPool(new FTPClientPooledObjectFactory(ftpClientUtilProperties), ftpClientUtilProperties);
+    public ObjectPool<FTPClient> ftpClientUtilCommonPool(FTPClientUtilProperties ftpClientUtilProperties) throws Exception {
+        return createPool(ftpClientUtilProperties, FTPClientPooledObjectFactory::new);
     }
 
     @Bean(name = "sftpClientUtilPool")
@@ -46,21 +59,67 @@ public class PooledFTPClientAutoConfiguration {
             name = "ftp.client.protocol",
             havingValue = "sftp"
     )
-    public FTPClientPool sftpClientUtilCommonPool(FTPClientUtilProperties ftpClientUtilProperties) throws Exception {
-        return new FTPClientPool(new SFTPClientPooledObjectFactory(ftpClientUtilProperties), ftpClientUtilProperties);
+    public ObjectPool<SFTPConnector> sftpClientUtilCommonPool(FTPClientUtilProperties ftpClientUtilProperties) throws Exception {
+        return createPool(ftpClientUtilProperties, SFTPClientPooledObjectFactory::new);
     }
 
+    /**
+     * 配置了hosts时为每个节点创建独立的连接池，否则创建单节点连接池
+     *
+     * @param ftpClientUtilProperties
+     * @param factoryCreator
+     * @return
+     * @throws Exception
+     */
+    private static <T> ObjectPool<T> createPool(FTPClientUtilProperties ftpClientUtilProperties,
+                                                Function<FTPClientUtilProperties, PooledObjectFactory<T>> factoryCreator) throws Exception {
+        if (ftpClientUtilProperties.getHosts() == null || ftpClientUtilProperties.getHosts().isEmpty()) {
+            return new FTPClientPool<>(factoryCreator.apply(ftpClientUtilProperties), ftpClientUtilProperties);
+        }
+        return new MultiHostFTPClientPool<>(ftpClientUtilProperties,
+                endpointProperties -> new FTPClientPool<>(factoryCreator.apply(endpointProperties), endpointProperties));
+    }
+
+    /**
+     * 连接池按协议注册，FTP协议时为ObjectPool&lt;FTPClient&gt;，SFTP协议时为ObjectPool&lt;SFTPConnector&gt;
+     *
+     * @param ftpClientUtilProperties
+     * @param ftpClientPool
+     * @return
+     */
+    @SuppressWarnings("unchecked")
     @Bean(name = "pooledFTPClientUtil")
     public FTPClientUtil pooledFTPClientUtil(FTPClientUtilProperties ftpClientUtilProperties,
-                                             GenericObjectPool ftpClientPool) {
+                                             ObjectPool<?> ftpClientPool) {
         if (ftpClientUtilProperties.getProtocol().equals(FtpClientProtocolConstant.FTP_PROTOCOL)) {
-            return new PooledFTPClientUtilImpl(ftpClientPool);
+            return new PooledFTPClientUtilImpl((ObjectPool<FTPClient>) ftpClientPool, ftpClientUtilProperties);
         } else if (ftpClientUtilProperties.getProtocol().equals(FtpClientProtocolConstant.SFTP_PROTOCOL)) {
-            return new PooledSFTPClientUtilImpl(ftpClientPool);
+            return new PooledSFTPClientUtilImpl((ObjectPool<SFTPConnector>) ftpClientPool, ftpClientUtilProperties);
         } else {
             throw new FTPProtocolNotFoundUtilException(
                     String.format("FTP客户端暂不支持此协议", ftpClientUtilProperties.getProtocol()));
         }
     }
 
+    @Bean(name = "asyncFTPClientUtil", destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(AsyncFTPClientUtil.class)
+    public AsyncFTPClientUtil asyncFTPClientUtil(FTPClientUtilProperties ftpClientUtilProperties,
+                                                 @Qualifier("pooledFTPClientUtil") FTPClientUtil pooledFTPClientUtil) {
+        return new AsyncFTPClientUtilImpl(pooledFTPClientUtil, ftpClientUtilProperties);
+    }
+
+    /**
+     * reactor-core为可选依赖，存在时才注册响应式工具类
+     */
+    @Configuration
+    @ConditionalOnClass(name = "reactor.core.publisher.Flux")
+    static class ReactiveFTPClientUtilConfiguration {
+
+        @Bean(name = "reactiveFTPClientUtil")
+        public ReactiveFTPClientUtil reactiveFTPClientUtil(FTPClientUtilProperties ftpClientUtilProperties,
+                                                           @Qualifier("pooledFTPClientUtil") FTPClientUtil pooledFTPClientUtil) {
+            return new ReactiveFTPClientUtilImpl(pooledFTPClientUtil, ftpClientUtilProperties);
+        }
+    }
+
 }
@@ -0,0 +1,18 @@
+package szu.jason.ftp.spring.exception;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 服务器因连接数过多拒绝新连接，如FTP 421应答、SSH会话或通道被拒绝，连接池据此收缩连接数
+ */
+public class FTPConnectionRejectedException extends FTPClientUtilException {
+
+    public FTPConnectionRejectedException(String message) {
+        super(message);
+    }
+
+    public FTPConnectionRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -6,12 +6,14 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
 import org.apache.commons.net.ftp.FTPReply;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import szu.jason.ftp.spring.FTPClientUtilProperties;
 import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.exception.FTPConnectionRejectedException;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
@@ -35,7 +37,7 @@ public class FTPClientPooledObjectFactory implements PooledObjectFactory<FTPClie
 
     @Override
     public PooledObject<FTPClient> makeObject() throws Exception {
-        FTPClient ftpClient = new FTPClient();
+        FTPClient ftpClient = new StreamingFTPClient();
         String host = properties.getHostname();
         int port = properties.getPort();
         String username = properties.getUsername();
@@ -46,6 +48,7 @@ public class FTPClientPooledObjectFactory implements PooledObjectFactory<FTPClie
             ftpClient.setDefaultTimeout(properties.getDefaultTimeout());
             ftpClient.setConnectTimeout(properties.getConnectTimeout());
             ftpClient.setDataTimeout(properties.getDataTimeout());
+            ftpClient.setBufferSize(properties.getBufferSize());
 
             // 连接登录
             ftpClient.connect(host, port);
@@ -53,7 +56,14 @@ public class FTPClientPooledObjectFactory implements PooledObjectFactory<FTPClie
 
             ftpClient.enterRemotePassiveMode();
             ftpClient.enterLocalPassiveMode();
+            // 分段下载依赖REST偏移量，必须使用二进制模式才能保证偏移量与文件字节一致
+            ftpClient.setFileType(properties.getFileType());
             int reply = ftpClient.getReplyCode();
+            if (reply == FTPReply.SERVICE_NOT_AVAILABLE) {
+                ftpClient.disconnect();
+                throw new FTPConnectionRejectedException(String.format(
+                        "ftp服务器拒绝新连接,host:%s, port:%s, replyString:%s", host, port, ftpClient.getReplyString()));
+            }
             if (!FTPReply.isPositiveCompletion(reply)) {
                 ftpClient.disconnect();
                 String message = String
@@ -62,6 +72,15 @@ public class FTPClientPooledObjectFactory implements PooledObjectFactory<FTPClie
                 log.error(message);
                 throw new FTPClientUtilException(message);
             }
+        } catch (FTPConnectionRejectedException e) {
+            log.warn(e.getMessage());
+            throw e;
+        } catch (FTPConnectionClosedException e) {
+            // 服务器以421应答连接或登录时，commons-net直接抛出此异常
+            String message = String.format("ftp服务器拒绝新连接,host:%s, port:%s, errorMessage:%s",
+                    host, port, e.getMessage());
+            log.warn(message);
+            throw new FTPConnectionRejectedException(message, e);
         } catch (UnknownHostException e) {
             String message = String.format(
                     "请确认ftp服务器地址是否正确，无法连接到地址为: [%s] 的ftp服务器, errorMessage:%s",
@@ -114,22 +133,46 @@ public class FTPClientPooledObjectFactory implements PooledObjectFactory<FTPClie
         }
     }
 
+    /**
+     * 最近归还的连接跳过校验，空闲较久的连接发送NOOP确认控制连接可用
+     *
+     * @param p
+     * @return
+     */
     @Override
     public boolean validateObject(PooledObject<FTPClient> p) {
         FTPClient ftpClient = p.getObject();
-        if (ftpClient.isConnected()) {
-            try {
-                ftpClient.sendNoOp();
-            } catch (IOException e) {
-                String message = String.format(
-                        "发送noop消息到ftp服务器失败, errorMessage:%s", e.getMessage());
-                log.error(message);
+        if (!ftpClient.isConnected()) {
+            return false;
+        }
+        if (isRecentlyReturned(p, properties.getValidationSkipIdleMillis())) {
+            return true;
+        }
+        try {
+            if (!ftpClient.sendNoOp()) {
+                log.warn("发送noop消息到ftp服务器失败, replyString:{}", ftpClient.getReplyString());
                 return false;
             }
+        } catch (IOException e) {
+            String message = String.format(
+                    "发送noop消息到ftp服务器失败, errorMessage:%s", e.getMessage());
+            log.error(message);
+            return false;
         }
         return true;
     }
 
+    /**
+     * 连接归还后空闲时间是否小于skipMillis，新建的连接以创建时间计
+     *
+     * @param p
+     * @param skipMillis
+     * @return
+     */
+    static boolean isRecentlyReturned(PooledObject<?> p, long skipMillis) {
+        return skipMillis > 0 && System.currentTimeMillis() - p.getLastReturnTime() < skipMillis;
+    }
+
     @Override
     public void activateObject(PooledObject<FTPClient> p) throws Exception {
         // noop
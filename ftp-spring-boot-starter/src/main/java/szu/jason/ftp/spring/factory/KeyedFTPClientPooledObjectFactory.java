@@ -0,0 +1,82 @@
+package szu.jason.ftp.spring.factory;
+
+import org.apache.commons.pool2.KeyedPooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.FtpClientProtocolConstant;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.exception.FTPProtocolNotFoundUtilException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 按客户端名称创建连接，根据各客户端的协议委托给FTP或SFTP工厂
+ */
+public class KeyedFTPClientPooledObjectFactory implements KeyedPooledObjectFactory<String, Object> {
+
+    /**
+     * 客户端名称 -> 该客户端的连接工厂
+     */
+    private final Map<String, PooledObjectFactory<?>> factories = new LinkedHashMap<>();
+
+    public KeyedFTPClientPooledObjectFactory(Map<String, FTPClientUtilProperties> clients) {
+        for (Map.Entry<String, FTPClientUtilProperties> client : clients.entrySet()) {
+            FTPClientUtilProperties properties = client.getValue();
+            PooledObjectFactory<?> factory;
+            if (FtpClientProtocolConstant.SFTP_PROTOCOL.equals(properties.getProtocol())) {
+                factory = new SFTPClientPooledObjectFactory(properties);
+            } else if (properties.getProtocol() == null
+                    || FtpClientProtocolConstant.FTP_PROTOCOL.equals(properties.getProtocol())) {
+                factory = new FTPClientPooledObjectFactory(properties);
+            } else {
+                throw new FTPProtocolNotFoundUtilException(String.format("FTP客户端%s暂不支持此协议：%s",
+                        client.getKey(), properties.getProtocol()));
+            }
+            factories.put(client.getKey(), factory);
+        }
+    }
+
+    /**
+     * 同一客户端的连接均由该客户端的工厂创建，因此可按Object交给该工厂处理
+     *
+     * @param key
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private PooledObjectFactory<Object> factory(String key) {
+        PooledObjectFactory<?> factory = factories.get(key);
+        if (factory == null) {
+            throw new FTPClientUtilException(String.format("FTP客户端%s未配置", key));
+        }
+        return (PooledObjectFactory<Object>) factory;
+    }
+
+    @Override
+    public PooledObject<Object> makeObject(String key) throws Exception {
+        return factory(key).makeObject();
+    }
+
+    @Override
+    public void destroyObject(String key, PooledObject<Object> p) throws Exception {
+        factory(key).destroyObject(p);
+    }
+
+    @Override
+    public boolean validateObject(String key, PooledObject<Object> p) {
+        return factory(key).validateObject(p);
+    }
+
+    @Override
+    public void activateObject(String key, PooledObject<Object> p) throws Exception {
+        factory(key).activateObject(p);
+    }
+
+    @Override
+    public void passivateObject(String key, PooledObject<Object> p) throws Exception {
+        factory(key).passivateObject(p);
+    }
+}
@@ -0,0 +1,312 @@
+package szu.jason.ftp.spring.factory;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.SFTPConnector;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.exception.FTPConnectionRejectedException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * SSH会话管理器<br>
+ *
+ * 连接池中的每个{@link SFTPConnector}对应一个{@link ChannelSftp}，多个通道共享同一个SSH会话，
+ * 每个会话最多承载sftpChannelsPerSession个通道，打开通道只需一次往返，无需重新握手和认证<br>
+ *
+ * 服务器拒绝在已有会话上打开更多通道时（超过sshd的MaxSessions），该会话的容量下调为当前通道数，
+ * 后续通道改为在新会话上打开。会话上的最后一个通道关闭时断开会话<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 两级SFTP连接管理，少量SSH会话承载多个SFTP通道
+ */
+@Slf4j
+public class SFTPSessionManager {
+
+    /**
+     * JSch的zlib压缩依赖jzlib，classpath中没有jzlib时协商压缩会使会话建立失败
+     */
+    static final boolean ZLIB_AVAILABLE = isClassPresent("com.jcraft.jzlib.ZStream");
+
+    /**
+     * client pool 基本信息
+     */
+    private final FTPClientUtilProperties properties;
+    /**
+     * 当前打开的会话
+     */
+    private final List<SessionSlot> sessionSlots = new ArrayList<>();
+
+    public SFTPSessionManager(FTPClientUtilProperties properties) {
+        this.properties = properties;
+        if (properties.isCompressionEnabled() && !ZLIB_AVAILABLE) {
+            log.warn("classpath中缺少com.jcraft:jzlib，sftp不启用压缩传输");
+        }
+    }
+
+    /**
+     * 在已有会话或新会话上打开一个SFTP通道
+     *
+     * @return
+     * @throws JSchException
+     */
+    public SFTPConnector openConnector() throws JSchException {
+        while (true) {
+            SessionSlot slot = reserveSlot();
+            boolean newSession = slot == null;
+            if (newSession) {
+                // 握手和认证较慢，在锁外进行
+                slot = registerSlot(createSession());
+            }
+            ChannelSftp channelSftp = null;
+            try {
+                channelSftp = (ChannelSftp) slot.session.openChannel("sftp");
+                channelSftp.connect(properties.getConnectTimeout());
+                return new SFTPConnector(slot.session, channelSftp);
+            } catch (JSchException e) {
+                if (channelSftp != null) {
+                    channelSftp.disconnect();
+                }
+                if (!releaseRefusedSlot(slot, newSession)) {
+                    if (isRejection(e)) {
+                        // 新会话也无法打开通道，说明服务器已达到连接上限
+                        throw new FTPConnectionRejectedException(String.format(
+                                "sftp服务器拒绝打开通道, host:%s, errorMessage:%s", properties.getHostname(), e.getMessage()), e);
+                    }
+                    throw e;
+                }
+                log.debug("SSH会话拒绝打开更多SFTP通道，改为在新会话上打开：{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 关闭通道，会话上没有其他通道时一并断开会话
+     *
+     * @param sftpConnector
+     */
+    public void closeConnector(SFTPConnector sftpConnector) {
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        if (channelSftp != null) {
+            channelSftp.disconnect();
+        }
+        Session session = sftpConnector.getSession();
+        if (session == null) {
+            return;
+        }
+        boolean disconnect = true;
+        synchronized (sessionSlots) {
+            for (Iterator<SessionSlot> iterator = sessionSlots.iterator(); iterator.hasNext(); ) {
+                SessionSlot slot = iterator.next();
+                if (slot.session == session) {
+                    slot.channels--;
+                    if (slot.channels > 0 && session.isConnected()) {
+                        disconnect = false;
+                    } else {
+                        iterator.remove();
+                    }
+                    break;
+                }
+            }
+        }
+        if (disconnect) {
+            session.disconnect();
+        }
+    }
+
+    /**
+     * 当前打开的会话数
+     *
+     * @return
+     */
+    public int getSessionCount() {
+        synchronized (sessionSlots) {
+            return sessionSlots.size();
+        }
+    }
+
+    /**
+     * 当前打开的通道数
+     *
+     * @return
+     */
+    public int getChannelCount() {
+        synchronized (sessionSlots) {
+            int count = 0;
+            for (SessionSlot slot : sessionSlots) {
+                count += slot.channels;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 在通道最少的可用会话上预留一个通道位置，没有可用会话时返回null
+     *
+     * @return
+     */
+    private SessionSlot reserveSlot() {
+        synchronized (sessionSlots) {
+            SessionSlot candidate = null;
+            for (Iterator<SessionSlot> iterator = sessionSlots.iterator(); iterator.hasNext(); ) {
+                SessionSlot slot = iterator.next();
+                if (!slot.session.isConnected()) {
+                    // 会话已断开，其上的通道由连接池校验时销毁
+                    continue;
+                }
+                if (slot.channels < slot.capacity && (candidate == null || slot.channels < candidate.channels)) {
+                    candidate = slot;
+                }
+            }
+            if (candidate != null) {
+                candidate.channels++;
+            }
+            return candidate;
+        }
+    }
+
+    private SessionSlot registerSlot(Session session) {
+        SessionSlot slot = new SessionSlot(session, Math.max(1, properties.getSftpChannelsPerSession()));
+        slot.channels = 1;
+        synchronized (sessionSlots) {
+            sessionSlots.add(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * 通道打开失败时释放预留的位置
+     *
+     * @param slot
+     * @param newSession
+     * @return 是否可以换一个会话重试
+     */
+    private boolean releaseRefusedSlot(SessionSlot slot, boolean newSession) {
+        boolean retry;
+        boolean disconnect = false;
+        synchronized (sessionSlots) {
+            slot.channels--;
+            retry = !newSession && slot.session.isConnected();
+            if (retry) {
+                // 已有会话拒绝新通道，说明达到服务器的MaxSessions
+                slot.capacity = Math.max(1, slot.channels);
+            }
+            if (slot.channels <= 0) {
+                sessionSlots.remove(slot);
+                disconnect = true;
+            }
+        }
+        if (disconnect) {
+            slot.session.disconnect();
+        }
+        return retry;
+    }
+
+    /**
+     * 建立并认证一个新的SSH会话
+     *
+     * @return
+     * @throws JSchException
+     */
+    private Session createSession() throws JSchException {
+        JSch jsch = new JSch();
+        if (StringUtils.hasText(properties.getPrivateKey())) {
+            // 使用密钥验证方式，密钥可以使有口令的密钥，也可以是没有口令的密钥
+            if (StringUtils.hasText(properties.getPassPhrase())) {
+                jsch.addIdentity(properties.getPrivateKey(), properties.getPassPhrase());
+            } else {
+                jsch.addIdentity(properties.getPrivateKey());
+            }
+        }
+        Session session = jsch.getSession(properties.getUsername(), properties.getHostname(), properties.getPort());
+        if (session == null) {
+            throw new FTPClientUtilException(
+                    "创建ftp连接session失败,无法通过sftp与服务器建立链接，请检查主机名和用户名是否正确.");
+        }
+        session.setPassword(properties.getPassword());
+        session.setConfig(sessionConfig(properties, ZLIB_AVAILABLE));
+        session.setTimeout(properties.getConnectTimeout());
+        if (properties.getKeepAliveIdleMillis() > 0) {
+            // 会话空闲时由JSch定时发送keepalive@openssh.com，避免被NAT或防火墙断开
+            session.setServerAliveInterval((int) properties.getKeepAliveIdleMillis());
+        }
+        try {
+            session.connect();
+        } catch (JSchException e) {
+            if (isRejection(e)) {
+                throw new FTPConnectionRejectedException(String.format(
+                        "sftp服务器拒绝新会话, host:%s, errorMessage:%s", properties.getHostname(), e.getMessage()), e);
+            }
+            throw e;
+        }
+        return session;
+    }
+
+    /**
+     * SSH会话配置，开启压缩但缺少jzlib时不协商压缩
+     *
+     * @param properties
+     * @param zlibAvailable
+     * @return
+     */
+    static Properties sessionConfig(FTPClientUtilProperties properties, boolean zlibAvailable) {
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        // config.put("PreferredAuthentications", "password");
+        if (properties.isCompressionEnabled() && zlibAvailable) {
+            // 优先zlib@openssh.com（认证后才开始压缩），服务器不支持压缩时协商为none
+            config.put("compression.s2c", "zlib@openssh.com,zlib,none");
+            config.put("compression.c2s", "zlib@openssh.com,zlib,none");
+            config.put("compression_level", String.valueOf(properties.getCompressionLevel()));
+        }
+        return config;
+    }
+
+    private static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, SFTPSessionManager.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * sshd超过MaxStartups时在握手前直接断开连接，超过MaxSessions时拒绝打开通道
+     *
+     * @param e
+     * @return
+     */
+    private static boolean isRejection(JSchException e) {
+        String message = String.valueOf(e.getMessage());
+        return message.contains("closed by foreign host")
+                || message.contains("Connection reset")
+                || message.contains("channel is not opened");
+    }
+
+    /**
+     * 会话及其上打开的通道数
+     */
+    private static class SessionSlot {
+
+        private final Session session;
+
+        private int channels;
+
+        private int capacity;
+
+        SessionSlot(Session session, int capacity) {
+            this.session = session;
+            this.capacity = capacity;
+        }
+    }
+}
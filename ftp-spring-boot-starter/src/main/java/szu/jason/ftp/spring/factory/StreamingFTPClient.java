@@ -0,0 +1,29 @@
+package szu.jason.ftp.spring.factory;
+
+import org.apache.commons.net.ftp.FTPClient;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * commons-net 3.5的mlistDir、initiateListParsing都会先把整个目录的原始行读入内存，
+ * 这里公开数据连接，调用方可以边读边解析，读完后关闭数据连接并调用completePendingCommand<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 可直接打开数据连接的FTPClient，用于逐行读取MLSD等列目录结果
+ */
+public class StreamingFTPClient extends FTPClient {
+
+    /**
+     * 发送需要数据连接的命令并打开数据连接
+     *
+     * @param command 命令，如MLSD
+     * @param arg     命令参数，可以为null
+     * @return 数据连接，服务器拒绝命令或无法建立数据连接时返回null，原因见getReplyCode
+     * @throws IOException
+     */
+    public Socket openDataConnection(String command, String arg) throws IOException {
+        return _openDataConnection_(command, arg);
+    }
+}
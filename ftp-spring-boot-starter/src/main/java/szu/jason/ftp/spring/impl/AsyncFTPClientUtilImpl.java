@@ -0,0 +1,275 @@
+package szu.jason.ftp.spring.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPFile;
+import szu.jason.ftp.spring.AsyncFTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.RemoteFileInfo;
+import szu.jason.ftp.spring.util.ConnectionPermits;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 基于线程池的AsyncFTPClientUtil实现，实际操作委托给同步的FTPClientUtil，
+ * 同时执行的操作数不超过连接池当前的上限（自适应调节后的上限），JDK支持时使用虚拟线程。
+ * 复制等多连接操作按一个操作计算，其占用的连接数由同步实现自身的许可限制
+ */
+@Slf4j
+public class AsyncFTPClientUtilImpl implements AsyncFTPClientUtil {
+
+    /**
+     * 同步实现
+     */
+    private final FTPClientUtil ftpClientUtil;
+    /**
+     * 执行操作的线程池
+     */
+    private final ExecutorService executor;
+    /**
+     * 限制同时执行的操作数，许可总数跟随连接池当前上限
+     */
+    private final ConnectionPermits permits;
+    /**
+     * 线程池是否由本类创建，创建的线程池在shutdown时关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * 根据配置创建线程池：asyncVirtualThreads为true且JDK支持时使用虚拟线程，否则使用asyncThreads个平台线程
+     *
+     * @param ftpClientUtil
+     * @param properties
+     */
+    public AsyncFTPClientUtilImpl(FTPClientUtil ftpClientUtil, FTPClientUtilProperties properties) {
+        this(ftpClientUtil, createExecutor(properties), () -> maxTotalOf(ftpClientUtil, properties), true);
+    }
+
+    /**
+     * 使用外部线程池，由调用方负责关闭
+     *
+     * @param ftpClientUtil
+     * @param executor
+     * @param maxConcurrency 同时执行的最大操作数，小于等于0表示不限制
+     */
+    public AsyncFTPClientUtilImpl(FTPClientUtil ftpClientUtil, ExecutorService executor, int maxConcurrency) {
+        this(ftpClientUtil, executor, () -> maxConcurrency, false);
+    }
+
+    private AsyncFTPClientUtilImpl(FTPClientUtil ftpClientUtil,
+                                   ExecutorService executor,
+                                   IntSupplier maxConcurrencySupplier,
+                                   boolean ownExecutor) {
+        this.ftpClientUtil = ftpClientUtil;
+        this.executor = executor;
+        this.permits = new ConnectionPermits(maxConcurrencySupplier, 1);
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * 读取同步实现所用连接池的实时上限，无法读取时使用配置值
+     *
+     * @param ftpClientUtil
+     * @param properties
+     * @return
+     */
+    static int maxTotalOf(FTPClientUtil ftpClientUtil, FTPClientUtilProperties properties) {
+        if (ftpClientUtil instanceof GenericFTPClientUtilImpl) {
+            return ((GenericFTPClientUtilImpl) ftpClientUtil).currentMaxTotal();
+        }
+        if (ftpClientUtil instanceof GenericSFTPClientUtilImpl) {
+            return ((GenericSFTPClientUtilImpl) ftpClientUtil).currentMaxTotal();
+        }
+        return properties.getMaxTotal();
+    }
+
+    /**
+     * 关闭由本类创建的线程池
+     */
+    public void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> put(InputStream localInputStream, String remotePathUri,
+                                       String remoteFilename, String suffix) {
+        return run(() -> ftpClientUtil.put(localInputStream, remotePathUri, remoteFilename, suffix));
+    }
+
+    @Override
+    public CompletableFuture<Void> put(File localFile, String remoteDir, String remoteFilename, String suffix) {
+        return run(() -> ftpClientUtil.put(localFile, remoteDir, remoteFilename, suffix));
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String localFileAbsolutePathUri, String remoteDir,
+                                       String remoteFilename, String suffix) {
+        return run(() -> ftpClientUtil.put(localFileAbsolutePathUri, remoteDir, remoteFilename, suffix));
+    }
+
+    @Override
+    public CompletableFuture<Void> putResumable(File localFile, String remoteDir, String remoteFilename, String suffix) {
+        return run(() -> ftpClientUtil.putResumable(localFile, remoteDir, remoteFilename, suffix));
+    }
+
+    @Override
+    public CompletableFuture<Void> get(OutputStream localOutputStream, String remoteDir, String remoteFilename) {
+        return run(() -> ftpClientUtil.get(localOutputStream, remoteDir, remoteFilename));
+    }
+
+    @Override
+    public CompletableFuture<Void> get(File localFile, String remoteDir, String remoteFilename) {
+        return run(() -> ftpClientUtil.get(localFile, remoteDir, remoteFilename));
+    }
+
+    @Override
+    public CompletableFuture<Void> get(File localFile, String remoteDir, String remoteFilename, int segmentCount) {
+        return run(() -> ftpClientUtil.get(localFile, remoteDir, remoteFilename, segmentCount));
+    }
+
+    @Override
+    public CompletableFuture<Void> getResumable(File localFile, String remoteDir, String remoteFilename) {
+        return run(() -> ftpClientUtil.getResumable(localFile, remoteDir, remoteFilename));
+    }
+
+    @Override
+    public CompletableFuture<Void> get(String localFileDir, String remoteDir, String remoteFilename) {
+        return run(() -> ftpClientUtil.get(localFileDir, remoteDir, remoteFilename));
+    }
+
+    @Override
+    public CompletableFuture<Void> get(String localDir, String remoteFilePathUri) {
+        return run(() -> ftpClientUtil.get(localDir, remoteFilePathUri));
+    }
+
+    @Override
+    public CompletableFuture<Void> move(String remoteSrcDir, String remoteDestDir, String remoteFilename) {
+        return run(() -> ftpClientUtil.move(remoteSrcDir, remoteDestDir, remoteFilename));
+    }
+
+    @Override
+    public CompletableFuture<Void> copy(String remoteSrcDir, String remoteDestDir, String remoteSrcFilename,
+                                        String suffix, String remoteNewFilename) {
+        return run(() -> ftpClientUtil.copy(remoteSrcDir, remoteDestDir, remoteSrcFilename, suffix, remoteNewFilename));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteFile(String remoteFileAbsolutePathUri) {
+        return submit(() -> ftpClientUtil.deleteFile(remoteFileAbsolutePathUri));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeDirectory(String remoteDir) {
+        return submit(() -> ftpClientUtil.removeDirectory(remoteDir));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getRemoteDirFilenames(String remoteDir) {
+        return submit(() -> ftpClientUtil.getRemoteDirFilenames(remoteDir));
+    }
+
+    @Override
+    public CompletableFuture<List<FTPFile>> getRemoteDirFTPFiles(String remoteDir) {
+        return submit(() -> ftpClientUtil.getRemoteDirFTPFiles(remoteDir));
+    }
+
+    @Override
+    public CompletableFuture<List<RemoteFileInfo>> getRemoteFileByDir(String remoteDir, boolean recursive) {
+        return submit(() -> ftpClientUtil.getRemoteFileByDir(remoteDir, recursive));
+    }
+
+    @Override
+    public CompletableFuture<List<RemoteFileInfo>> getRemoteFileByDir(String remoteDir) {
+        return submit(() -> ftpClientUtil.getRemoteFileByDir(remoteDir));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isRemotePathExist(String remotePath) {
+        return submit(() -> ftpClientUtil.isRemotePathExist(remotePath));
+    }
+
+    /**
+     * 无返回值的操作
+     */
+    @FunctionalInterface
+    private interface Operation {
+        void execute() throws Exception;
+    }
+
+    private CompletableFuture<Void> run(Operation operation) {
+        return submit(() -> {
+            operation.execute();
+            return null;
+        });
+    }
+
+    /**
+     * 提交操作到线程池，执行前获取许可，保证同时执行的操作数不超过连接池当前上限
+     *
+     * @param action
+     * @param <T>
+     * @return
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> action) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    future.complete(action.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 创建线程池，JDK 21+且开启asyncVirtualThreads时使用虚拟线程，否则使用固定大小的守护线程池
+     *
+     * @param properties
+     * @return
+     */
+    private static ExecutorService createExecutor(FTPClientUtilProperties properties) {
+        if (properties.isAsyncVirtualThreads()) {
+            try {
+                // 编译目标为1.8，通过反射调用Executors.newVirtualThreadPerTaskExecutor
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.info("当前JDK不支持虚拟线程，异步FTP操作使用平台线程池");
+            }
+        }
+        int threads = properties.getAsyncThreads() > 0 ? properties.getAsyncThreads()
+                : Math.max(1, properties.isAdaptiveSizing()
+                ? Math.max(properties.getMaxTotal(), properties.getAdaptiveMaxTotal()) : properties.getMaxTotal());
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "async-ftp-client-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -20,6 +20,7 @@ public class FTPClientUtilImpl extends GenericFTPClientUtilImpl {
     private FTPClientPooledObjectFactory ftpClientPooledObjectFactory;
 
     public FTPClientUtilImpl(FTPClientUtilProperties properties) {
+        super(properties);
         ftpClientPooledObjectFactory = new FTPClientPooledObjectFactory(properties);
     }
 
@@ -10,17 +10,43 @@ import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPFileFilter;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
 import org.springframework.util.Assert;
 import szu.jason.ftp.spring.FTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
 import szu.jason.ftp.spring.FTPConnectFactory;
 import szu.jason.ftp.spring.RemoteFileInfo;
+import szu.jason.ftp.spring.RemoteFileInputStream;
+import szu.jason.ftp.spring.RemoteFileOutputStream;
+import szu.jason.ftp.spring.cache.KnownDirectorySet;
+import szu.jason.ftp.spring.cache.RemoteMetadataCache;
 import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.factory.StreamingFTPClient;
+import szu.jason.ftp.spring.journal.JournalCheckpoint;
+import szu.jason.ftp.spring.journal.TransferJournal;
+import szu.jason.ftp.spring.journal.TransferJournalStore;
+import szu.jason.ftp.spring.pool.TransferBufferPool;
+import szu.jason.ftp.spring.util.CompressionUtil;
+import szu.jason.ftp.spring.util.ConnectionPermits;
 import szu.jason.ftp.spring.util.FileUtil;
+import szu.jason.ftp.spring.util.ParallelDirectoryWalker;
+import szu.jason.ftp.spring.util.PipelinedCopier;
+import szu.jason.ftp.spring.util.PipelinedCopier.CopyStatistics;
+import szu.jason.ftp.spring.util.SegmentUtil;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author : Vander
@@ -30,27 +56,126 @@ import java.util.List;
 @Slf4j
 public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConnectFactory {
 
+    /**
+     * client 基本信息
+     */
+    protected final FTPClientUtilProperties properties;
+    /**
+     * 断点续传日志存储
+     */
+    protected final TransferJournalStore transferJournalStore;
+    /**
+     * 所有传输路径共享的缓冲区池
+     */
+    protected final TransferBufferPool transferBufferPool;
+    /**
+     * 服务器是否支持MLSD，首次列目录时通过FEAT协商
+     */
+    private volatile Boolean mlsdSupported;
+    /**
+     * 远程路径存在性缓存，NLST只能确定是否存在，属性为null
+     */
+    protected final RemoteMetadataCache<FTPFile> metadataCache;
+    /**
+     * 已知存在的远程目录，上传到这些目录时跳过目录探测
+     */
+    protected final KnownDirectorySet knownDirectories;
+    /**
+     * 需要同时占用两个连接的操作（如复制）的许可，许可数跟随连接池当前上限
+     */
+    protected final ConnectionPermits multiConnectionPermits;
+    /**
+     * 复制时下载和上传并行进行
+     */
+    protected final PipelinedCopier pipelinedCopier;
+    /**
+     * 每个连接当前所在的绝对路径工作目录，连接销毁后随GC移除
+     */
+    private final Map<FTPClient, String> workingDirectories = Collections.synchronizedMap(new WeakHashMap<>());
+    /**
+     * 不支持FXP（PASV或PORT被永久拒绝）的目的客户端，复制到这些客户端时直接使用流式复制。
+     * STOR、RETR失败或临时拒绝只影响本次复制，不记录
+     */
+    private final Set<GenericFTPClientUtilImpl> fxpRefusedTargets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /**
+     * 服务器拒绝过MODE Z，之后的传输不再尝试压缩
+     */
+    private volatile boolean deflateRefused;
+
+    protected GenericFTPClientUtilImpl(FTPClientUtilProperties properties) {
+        this.properties = properties;
+        this.transferJournalStore = new TransferJournalStore(properties.getJournalDir());
+        this.transferBufferPool = new TransferBufferPool(properties.getBufferSize(), properties.getBufferPoolMaxIdle());
+        this.metadataCache = new RemoteMetadataCache<>(properties.isMetadataCacheEnabled(),
+                properties.getMetadataCacheTtl(), properties.getMetadataCacheMaxSize());
+        this.knownDirectories = new KnownDirectorySet(properties.getKnownDirMaxSize());
+        this.multiConnectionPermits = new ConnectionPermits(this::currentMaxTotal);
+        this.pipelinedCopier = new PipelinedCopier(transferBufferPool, properties.getCopyPipelineBuffers(),
+                properties.getCopyReaderThreads());
+        if (properties.getFileTransferMode() != FTP.STREAM_TRANSFER_MODE && !properties.isDeflateTransfer()) {
+            log.warn("不支持的fileTransferMode：{}，使用STREAM模式传输", properties.getFileTransferMode());
+        }
+    }
+
+    /**
+     * 连接池当前的连接数上限，用于计算多连接操作的许可数，小于等于0表示不限制。
+     * 非池化实现取配置的maxTotal，池化实现取连接池的实时上限（自适应调节器会改变它）
+     *
+     * @return
+     */
+    protected int currentMaxTotal() {
+        return properties.getMaxTotal();
+    }
+
+    /**
+     * 获取传输缓冲区池，可用于查看命中与未命中统计
+     *
+     * @return
+     */
+    public TransferBufferPool getTransferBufferPool() {
+        return transferBufferPool;
+    }
+
+    /**
+     * 获取远程路径元数据缓存，可用于查看命中与未命中统计
+     *
+     * @return
+     */
+    public RemoteMetadataCache<FTPFile> getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * 获取已知存在的远程目录集合
+     *
+     * @return
+     */
+    public KnownDirectorySet getKnownDirectories() {
+        return knownDirectories;
+    }
+
     @Override
     public void put(InputStream localInputStream,
                     String remotePathUri,
                     String remoteFilename,
                     String suffix) throws Exception {
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
-            // 目录不存在则进行逐级创建
-            mkDirRecursive(ftpClient, remotePathUri);
-            // 进入对应的远程目录
-            ftpClient.changeWorkingDirectory(remotePathUri);
+            enterDirectory(ftpClient, remotePathUri);
             // 上传文件
-            ftpClient.storeFile(remoteFilename + suffix, localInputStream);
+            storeStream(ftpClient, remoteFilename + suffix, remoteFilename, localInputStream, false);
             // 重命名文件
             ftpClient.rename(remoteFilename + suffix, remoteFilename);
+            updateUploadedCache(remotePathUri, remoteFilename + suffix, remoteFilename);
         } catch (Exception e) {
+            failure = e;
+            forgetWorkingDirectory(ftpClient);
             String errorMsg = String.format("上传本地文件流到远程文件：%s/%s失败！", remotePathUri, remoteFilename);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
             localInputStream.close();
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
     }
 
@@ -59,7 +184,38 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
                     String remoteDir,
                     String remoteFilename,
                     String suffix) throws Exception {
-        this.put(new FileInputStream(localFile), remoteDir, remoteFilename, suffix);
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+            enterDirectory(ftpClient, remoteDir);
+            // 上传文件，本地文件经池中的缓冲区写入数据连接
+            boolean deflate = enterDeflateMode(ftpClient, remoteFilename);
+            try {
+                try (OutputStream remoteOutputStream = deflate(ftpClient.storeFileStream(remoteFilename + suffix), deflate)) {
+                    if (remoteOutputStream == null) {
+                        throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                                remoteFilename + suffix, ftpClient.getReplyString()));
+                    }
+                    FileUtil.copyToStream(fileChannel, remoteOutputStream, transferBufferPool);
+                }
+                if (!ftpClient.completePendingCommand()) {
+                    throw new FTPClientUtilException(String.format("上传文件失败，replyString:%s", ftpClient.getReplyString()));
+                }
+            } finally {
+                leaveDeflateMode(ftpClient, deflate);
+            }
+            // 重命名文件
+            ftpClient.rename(remoteFilename + suffix, remoteFilename);
+            updateUploadedCache(remoteDir, remoteFilename + suffix, remoteFilename);
+        } catch (Exception e) {
+            failure = e;
+            forgetWorkingDirectory(ftpClient);
+            String errorMsg = String.format("上传本地文件%s到远程文件：%s/%s失败！",
+                    localFile.getAbsolutePath(), remoteDir, remoteFilename);
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
     }
 
     @Override
@@ -70,23 +226,105 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
         this.put(new File(localFileAbsolutePathUri), remoteDir, remoteFilename, suffix);
     }
 
+    @Override
+    public void putResumable(File localFile,
+                             String remoteDir,
+                             String remoteFilename,
+                             String suffix) throws Exception {
+        String remoteTmpFilename = remoteFilename + StringUtils.defaultString(suffix);
+        String remoteTmpFilePathUri = remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteTmpFilename;
+        TransferJournal journal = null;
+        JournalCheckpoint checkpoint = null;
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+            enterDirectory(ftpClient, remoteDir);
+            journal = loadPutJournal(ftpClient, localFile, remoteTmpFilePathUri);
+            checkpoint = new JournalCheckpoint(journal, transferJournalStore, properties.getJournalCheckpointBytes());
+            checkpoint.save();
+
+            long offset = journal.getConfirmedBytes();
+            InputStream localInputStream = checkpoint.wrap(Channels.newInputStream(fileChannel.position(offset)));
+            // 续传时使用APPE追加到临时文件末尾，兼容不支持REST STOR的服务器
+            storeStream(ftpClient, remoteTmpFilename, remoteFilename, localInputStream, offset > 0);
+            ftpClient.rename(remoteTmpFilename, remoteFilename);
+            updateUploadedCache(remoteDir, remoteTmpFilename, remoteFilename);
+            transferJournalStore.delete(journal);
+        } catch (Exception e) {
+            failure = e;
+            forgetWorkingDirectory(ftpClient);
+            if (checkpoint != null) {
+                checkpoint.saveOnFailure(e);
+            }
+            String errorMsg = String.format("断点续传本地文件%s到远程文件：%s/%s失败，已传输%d字节！",
+                    localFile.getAbsolutePath(), remoteDir, remoteFilename,
+                    journal == null ? 0 : journal.getConfirmedBytes());
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
+    }
+
+    /**
+     * 读取上传日志并确定续传起点：本地文件未变化且服务器上临时文件不大于本地文件时，以临时文件大小为起点
+     *
+     * @param ftpClient
+     * @param localFile
+     * @param remoteTmpFilePathUri
+     * @return
+     * @throws IOException
+     */
+    private TransferJournal loadPutJournal(FTPClient ftpClient,
+                                           File localFile,
+                                           String remoteTmpFilePathUri) throws IOException {
+        String localPath = localFile.getAbsolutePath();
+        TransferJournal journal = transferJournalStore.load(TransferJournal.DIRECTION_PUT, localPath, remoteTmpFilePathUri);
+        long remoteTmpFileSize = -1;
+        if (journal != null
+                && journal.getLocalSize() == localFile.length()
+                && journal.getLocalLastModified() == localFile.lastModified()) {
+            FTPFile[] ftpFiles = ftpClient.listFiles(remoteTmpFilePathUri);
+            if (ftpFiles != null && ftpFiles.length == 1 && ftpFiles[0].isFile()) {
+                remoteTmpFileSize = ftpFiles[0].getSize();
+            }
+        }
+        if (remoteTmpFileSize < 0 || remoteTmpFileSize > localFile.length()) {
+            journal = new TransferJournal();
+            journal.setDirection(TransferJournal.DIRECTION_PUT);
+            journal.setLocalPath(localPath);
+            journal.setRemotePath(remoteTmpFilePathUri);
+            journal.setLocalSize(localFile.length());
+            journal.setLocalLastModified(localFile.lastModified());
+            remoteTmpFileSize = 0;
+        } else {
+            log.info("根据断点续传日志，从偏移量{}继续上传{}，日志记录已传输{}字节",
+                    remoteTmpFileSize, remoteTmpFilePathUri, journal.getConfirmedBytes());
+        }
+        // 以服务器上实际落盘的字节数为准
+        journal.setConfirmedBytes(remoteTmpFileSize);
+        journal.setRemoteSize(remoteTmpFileSize);
+        return journal;
+    }
+
     @Override
     public void get(OutputStream localOutputStream,
                     String remoteDir,
                     String remoteFilename) throws Exception {
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
             // 判断远程目录是否存在
-            Assert.isTrue(isRemotePathExist(remoteDir), String.format("远程目录：[%s]不存在，无法获取远程文件", remoteDir));
+            Assert.isTrue(isRemotePathExist(ftpClient, remoteDir), String.format("远程目录：[%s]不存在，无法获取远程文件", remoteDir));
             // 下载文件到本地
-            ftpClient.retrieveFile(remoteFilename, localOutputStream);
+            retrieveStream(ftpClient, remoteFilename, localOutputStream);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("下载远程文件：%s/%s到本地文件流失败！", remoteDir, remoteFilename);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
             localOutputStream.flush();
             localOutputStream.close();
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
     }
 
@@ -94,7 +332,189 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
     public void get(File localFile,
                     String remoteDir,
                     String remoteFilename) throws Exception {
-        this.get(new FileOutputStream(localFile), remoteDir, remoteFilename);
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // 判断远程目录是否存在
+            Assert.isTrue(isRemotePathExist(ftpClient, remoteDir), String.format("远程目录：[%s]不存在，无法获取远程文件", remoteDir));
+            // 下载文件，数据连接中的数据经池中的缓冲区写入本地文件
+            boolean deflate = enterDeflateMode(ftpClient, remoteFilename);
+            try {
+                try (InputStream remoteInputStream = inflate(ftpClient.retrieveFileStream(
+                        remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteFilename), deflate)) {
+                    if (remoteInputStream == null) {
+                        throw new FTPClientUtilException(String.format("打开远程文件%s/%s失败，replyString:%s",
+                                remoteDir, remoteFilename, ftpClient.getReplyString()));
+                    }
+                    FileUtil.copyFromStream(remoteInputStream, fileChannel, transferBufferPool);
+                }
+                if (!ftpClient.completePendingCommand()) {
+                    throw new FTPClientUtilException(String.format("下载文件失败，replyString:%s", ftpClient.getReplyString()));
+                }
+            } finally {
+                leaveDeflateMode(ftpClient, deflate);
+            }
+        } catch (Exception e) {
+            failure = e;
+            String errorMsg = String.format("下载远程文件：%s/%s到本地文件：%s失败！",
+                    remoteDir, remoteFilename, localFile.getAbsolutePath());
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
+    }
+
+    @Override
+    public void get(File localFile,
+                    String remoteDir,
+                    String remoteFilename,
+                    int segmentCount) throws Exception {
+        String remoteFilePathUri = remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteFilename;
+        long remoteFileSize;
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        try {
+            remoteFileSize = getRemoteFileSize(ftpClient, remoteFilePathUri);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
+
+        List<long[]> segments = SegmentUtil.split(remoteFileSize, segmentCount, SegmentUtil.MIN_SEGMENT_SIZE);
+        if (segments.size() <= 1) {
+            this.get(localFile, remoteDir, remoteFilename);
+            return;
+        }
+        log.info("分{}段并行下载远程文件：{}，文件大小：{}", segments.size(), remoteFilePathUri, remoteFileSize);
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SegmentUtil.runSegments(segments, "ftp-segment-get",
+                    (start, length) -> getSegment(fileChannel, remoteFilePathUri, start, length));
+        } catch (Exception e) {
+            String errorMsg = String.format("分段下载远程文件：%s到本地文件：%s失败！",
+                    remoteFilePathUri, localFile.getAbsolutePath());
+            throw new FTPClientUtilException(errorMsg, e);
+        }
+    }
+
+    /**
+     * 使用REST偏移量下载远程文件的一个分段，读满length字节后主动关闭数据连接
+     *
+     * @param fileChannel       本地文件通道
+     * @param remoteFilePathUri 远程文件全路径
+     * @param start             分段起始偏移量
+     * @param length            分段长度
+     * @throws Exception
+     */
+    private void getSegment(FileChannel fileChannel,
+                            String remoteFilePathUri,
+                            long start,
+                            long length) throws Exception {
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        InputStream remoteInputStream = null;
+        byte[] buffer = transferBufferPool.acquire();
+        try {
+            ftpClient.setRestartOffset(start);
+            remoteInputStream = ftpClient.retrieveFileStream(remoteFilePathUri);
+            if (remoteInputStream == null) {
+                throw new FTPClientUtilException(String.format("获取远程文件：%s偏移量%d处的数据流失败，replyString:%s",
+                        remoteFilePathUri, start, ftpClient.getReplyString()));
+            }
+            SegmentUtil.copyToChannel(remoteInputStream, fileChannel, start, length, buffer);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            transferBufferPool.release(buffer);
+            if (remoteInputStream != null) {
+                try {
+                    remoteInputStream.close();
+                    // 非最后一段会提前关闭数据连接，服务端返回426属于正常情况，此处仅读取应答
+                    ftpClient.completePendingCommand();
+                } catch (IOException e) {
+                    failure = e;
+                    log.warn("close segment stream IOException", e);
+                }
+            }
+            releaseFtpClient(ftpClient, failure);
+        }
+    }
+
+    @Override
+    public void getResumable(File localFile,
+                             String remoteDir,
+                             String remoteFilename) throws Exception {
+        String remoteFilePathUri = remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteFilename;
+        TransferJournal journal = null;
+        JournalCheckpoint checkpoint = null;
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        try {
+            long remoteFileSize = getRemoteFileSize(ftpClient, remoteFilePathUri);
+            String remoteLastModified = ftpClient.getModificationTime(remoteFilePathUri);
+            journal = loadGetJournal(localFile, remoteFilePathUri, remoteFileSize, remoteLastModified);
+            checkpoint = new JournalCheckpoint(journal, transferJournalStore, properties.getJournalCheckpointBytes());
+            checkpoint.save();
+
+            long offset = journal.getConfirmedBytes();
+            try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                fileChannel.truncate(offset);
+                OutputStream localOutputStream = checkpoint.wrap(Channels.newOutputStream(fileChannel.position(offset)));
+                ftpClient.setRestartOffset(offset);
+                retrieveStream(ftpClient, remoteFilePathUri, localOutputStream);
+            }
+            transferJournalStore.delete(journal);
+        } catch (Exception e) {
+            failure = e;
+            if (checkpoint != null) {
+                checkpoint.saveOnFailure(e);
+            }
+            String errorMsg = String.format("断点续传远程文件：%s到本地文件：%s失败，已传输%d字节！",
+                    remoteFilePathUri, localFile.getAbsolutePath(),
+                    journal == null ? 0 : journal.getConfirmedBytes());
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
+    }
+
+    /**
+     * 读取下载日志并确定续传起点：远程文件大小和修改时间与日志一致时，以本地文件大小为起点
+     *
+     * @param localFile
+     * @param remoteFilePathUri
+     * @param remoteFileSize
+     * @param remoteLastModified
+     * @return
+     */
+    private TransferJournal loadGetJournal(File localFile,
+                                           String remoteFilePathUri,
+                                           long remoteFileSize,
+                                           String remoteLastModified) {
+        String localPath = localFile.getAbsolutePath();
+        TransferJournal journal = transferJournalStore.load(TransferJournal.DIRECTION_GET, localPath, remoteFilePathUri);
+        long localFileSize = localFile.exists() ? localFile.length() : -1;
+        if (journal != null
+                && journal.getRemoteSize() == remoteFileSize
+                && StringUtils.equals(journal.getRemoteLastModified(), remoteLastModified)
+                && localFileSize >= 0 && localFileSize <= remoteFileSize) {
+            log.info("根据断点续传日志，从偏移量{}继续下载{}", localFileSize, remoteFilePathUri);
+            journal.setConfirmedBytes(localFileSize);
+            return journal;
+        }
+        journal = new TransferJournal();
+        journal.setDirection(TransferJournal.DIRECTION_GET);
+        journal.setLocalPath(localPath);
+        journal.setRemotePath(remoteFilePathUri);
+        journal.setRemoteSize(remoteFileSize);
+        journal.setRemoteLastModified(remoteLastModified);
+        journal.setConfirmedBytes(0);
+        return journal;
     }
 
     @Override
@@ -102,7 +522,7 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
                     String remoteDir,
                     String remoteFilename) throws Exception {
         FileUtil.createLocalDir(localFileDir);
-        this.get(new FileOutputStream(new File(localFileDir, remoteFilename)), remoteDir, remoteFilename);
+        this.get(new File(localFileDir, remoteFilename), remoteDir, remoteFilename);
     }
 
     @Override
@@ -128,14 +548,102 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
         }
     }
 
+    @Override
+    public RemoteFileInputStream getInputStream(String remoteDir,
+                                                String remoteFilename) throws Exception {
+        String remoteFilePathUri = remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteFilename;
+        FTPClient ftpClient = getFtpClient();
+        InputStream remoteInputStream;
+        boolean deflate = false;
+        try {
+            deflate = enterDeflateMode(ftpClient, remoteFilename);
+            remoteInputStream = inflate(ftpClient.retrieveFileStream(remoteFilePathUri), deflate);
+            if (remoteInputStream == null) {
+                throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                        remoteFilePathUri, ftpClient.getReplyString()));
+            }
+        } catch (Exception e) {
+            leaveDeflateMode(ftpClient, deflate);
+            releaseFtpClient(ftpClient, e);
+            throw new FTPClientUtilException(String.format("获取远程文件：%s的输入流失败！", remoteFilePathUri), e);
+        }
+        boolean deflated = deflate;
+        return new RemoteFileInputStream(remoteInputStream, () -> {
+            Throwable failure = null;
+            try {
+                // 未读完即关闭时服务端返回426属于正常情况，此处仅读取应答
+                ftpClient.completePendingCommand();
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                leaveDeflateMode(ftpClient, deflated);
+                releaseFtpClient(ftpClient, failure);
+            }
+        });
+    }
+
+    @Override
+    public RemoteFileOutputStream getOutputStream(String remoteDir,
+                                                  String remoteFilename,
+                                                  String suffix) throws Exception {
+        String remoteTmpFilename = remoteFilename + StringUtils.defaultString(suffix);
+        FTPClient ftpClient = getFtpClient();
+        OutputStream remoteOutputStream;
+        boolean deflate = false;
+        try {
+            enterDirectory(ftpClient, remoteDir);
+            deflate = enterDeflateMode(ftpClient, remoteFilename);
+            remoteOutputStream = deflate(ftpClient.storeFileStream(remoteTmpFilename), deflate);
+            if (remoteOutputStream == null) {
+                throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                        remoteTmpFilename, ftpClient.getReplyString()));
+            }
+        } catch (Exception e) {
+            forgetWorkingDirectory(ftpClient);
+            leaveDeflateMode(ftpClient, deflate);
+            releaseFtpClient(ftpClient, e);
+            throw new FTPClientUtilException(String.format("获取远程文件：%s/%s的输出流失败！",
+                    remoteDir, remoteTmpFilename), e);
+        }
+        boolean deflated = deflate;
+        return new RemoteFileOutputStream(remoteOutputStream, success -> {
+            Throwable failure = null;
+            try {
+                boolean completed = ftpClient.completePendingCommand();
+                leaveDeflateMode(ftpClient, deflated);
+                if (!success) {
+                    // 放弃上传，清理服务端残留的临时文件
+                    ftpClient.deleteFile(remoteTmpFilename);
+                    metadataCache.invalidate(remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteTmpFilename);
+                    return;
+                }
+                if (!completed) {
+                    throw new FTPClientUtilException(String.format("上传文件%s失败，replyString:%s",
+                            remoteTmpFilename, ftpClient.getReplyString()));
+                }
+                if (!remoteTmpFilename.equals(remoteFilename)) {
+                    ftpClient.rename(remoteTmpFilename, remoteFilename);
+                }
+                updateUploadedCache(remoteDir, remoteTmpFilename, remoteFilename);
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                releaseFtpClient(ftpClient, failure);
+            }
+        });
+    }
+
     @Override
     public void move(String remoteSrcDir,
                      String remoteDestDir,
                      String remoteFilename) throws Exception {
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
             // 校验源目录是否存在
-            Assert.isTrue(isRemotePathExist(remoteSrcDir),
+            Assert.isTrue(isRemotePathExist(ftpClient, remoteSrcDir),
                     String.format("远程目录：[%s]不存在，无法获取远程文件", remoteSrcDir));
             // 创建目的路径
             mkDirRecursive(ftpClient, remoteDestDir);
@@ -143,68 +651,327 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
             String srcPath = String.format("%s/%s", remoteSrcDir, remoteFilename);
             String desPath = String.format("%s/%s", remoteDestDir, remoteFilename);
             boolean renameResult = ftpClient.rename(srcPath, desPath);
+            metadataCache.invalidateTree(srcPath);
+            metadataCache.invalidate(desPath);
+            knownDirectories.removeTree(srcPath);
             if (renameResult == false) {
                 String errorMsg = String.format("无法将文件[%s]从远程目录：[%s] 移动到 [%s]!",
                         remoteFilename, remoteSrcDir, remoteDestDir);
                 throw new FTPClientUtilException(errorMsg);
             }
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("无法将文件[%s]从远程目录：[%s] 移动到 [%s]!",
                     remoteFilename, remoteSrcDir, remoteDestDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
     }
 
+    /**
+     * FTP的一条控制连接不能同时RETR和STOR，复制固定使用两个连接：一个读取源文件，一个写入目的文件。
+     * 同时进行的复制数受multiConnectionPermits限制，保证复制占用的连接数不超过maxTotal，避免互相等待第二个连接
+     */
     @Override
     public void copy(String remoteSrcDir,
                      String remoteDestDir,
                      String remoteSrcFilename,
                      String suffix,
                      String remoteNewFilename) throws Exception {
-        FTPClient ftpClient = getFtpClient();
-        InputStream remoteSrcFileInputStream = null;
+        copyTo(this, remoteSrcDir, remoteDestDir, remoteSrcFilename, suffix, remoteNewFilename);
+    }
+
+    /**
+     * 将本客户端服务器上的文件复制到destFtpClientUtil所连接的服务器，两者可以是同一个客户端。
+     * 开启fxpEnabled时优先使用FXP由两台服务器直接传输数据，服务器拒绝FXP（如禁止PORT指向第三方地址）时改用流式复制，
+     * 且之后复制到该目的客户端时不再尝试FXP
+     *
+     * @param destFtpClientUtil 目的服务器的客户端
+     * @param remoteSrcDir      源目录
+     * @param remoteDestDir     目的目录
+     * @param remoteSrcFilename 源文件名
+     * @param suffix            上传过程中临时文件的后缀
+     * @param remoteNewFilename 目的文件名，为空时与源文件同名
+     * @throws Exception
+     */
+    public void copyTo(GenericFTPClientUtilImpl destFtpClientUtil,
+                       String remoteSrcDir,
+                       String remoteDestDir,
+                       String remoteSrcFilename,
+                       String suffix,
+                       String remoteNewFilename) throws Exception {
+        Assert.notEmpty(new String[]{remoteSrcDir, remoteSrcFilename}, "源目录或源文件不允许为空！");
+        if (StringUtils.isBlank(remoteNewFilename)) {
+            remoteNewFilename = remoteSrcFilename;
+        }
+        String remoteTmpFilename = remoteNewFilename + StringUtils.defaultString(suffix);
+        String remoteFileUri = remoteSrcDir + IOUtils.DIR_SEPARATOR_UNIX + remoteSrcFilename;
+        multiConnectionPermits.acquire();
         try {
-            Assert.notEmpty(new String[]{remoteSrcDir, remoteSrcFilename}, "源目录或源文件不允许为空！");
-            // 判断远程源文件是否存在
-            String remoteFileUri = remoteSrcDir + IOUtils.DIR_SEPARATOR_UNIX + remoteSrcFilename;
-            Assert.isTrue(isRemotePathExist(remoteFileUri),
-                    String.format("源文件：[%s]不存在，无法获取远程文件", remoteFileUri));
-            // 获取源文件流
-            remoteSrcFileInputStream = ftpClient.retrieveFileStream(remoteSrcDir + "/" + remoteSrcFilename);
-            // 将文件流写入目的文件
-            if (StringUtils.isBlank(remoteNewFilename)) {
-                remoteNewFilename = remoteSrcFilename;
-            }
-            put(remoteSrcFileInputStream, remoteDestDir, remoteNewFilename, suffix);
+            if (properties.isFxpEnabled() && !fxpRefusedTargets.contains(destFtpClientUtil)
+                    && fxpCopy(destFtpClientUtil, remoteFileUri, remoteDestDir, remoteTmpFilename, remoteNewFilename)) {
+                return;
+            }
+            streamCopy(destFtpClientUtil, remoteFileUri, remoteDestDir, remoteTmpFilename, remoteNewFilename);
         } catch (Exception e) {
             String errorMsg = String.format("复制源文件: [%s/%s] 到目的文件: [%s/%s]失败！",
                     remoteSrcDir, remoteSrcFilename, remoteDestDir, remoteNewFilename);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            if (remoteSrcFileInputStream != null) {
+            multiConnectionPermits.release();
+        }
+    }
+
+    /**
+     * 经由本地中转复制，下载和上传分别在两个线程中进行
+     *
+     * @param destFtpClientUtil
+     * @param remoteFileUri
+     * @param remoteDestDir
+     * @param remoteTmpFilename
+     * @param remoteNewFilename
+     * @throws Exception
+     */
+    private void streamCopy(GenericFTPClientUtilImpl destFtpClientUtil,
+                            String remoteFileUri,
+                            String remoteDestDir,
+                            String remoteTmpFilename,
+                            String remoteNewFilename) throws Exception {
+        Throwable failure = null;
+        FTPClient srcFtpClient = getFtpClient();
+        try {
+            FTPClient destFtpClient = destFtpClientUtil.getFtpClient();
+            try {
+                // 判断远程源文件是否存在
+                Assert.isTrue(isRemotePathExist(srcFtpClient, remoteFileUri),
+                        String.format("源文件：[%s]不存在，无法获取远程文件", remoteFileUri));
+                destFtpClientUtil.enterDirectory(destFtpClient, remoteDestDir);
+                boolean srcDeflate = enterDeflateMode(srcFtpClient, remoteFileUri);
+                boolean destDeflate = false;
                 try {
-                    remoteSrcFileInputStream.close();
-                } catch (IOException e) {
-                    log.warn("close file IOException", e);
+                    destDeflate = destFtpClientUtil.enterDeflateMode(destFtpClient, remoteNewFilename);
+                    // 获取源文件流
+                    InputStream remoteSrcFileInputStream = inflate(srcFtpClient.retrieveFileStream(remoteFileUri), srcDeflate);
+                    if (remoteSrcFileInputStream == null) {
+                        throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                                remoteFileUri, srcFtpClient.getReplyString()));
+                    }
+                    // 将文件流写入目的文件
+                    try (OutputStream remoteDestFileOutputStream = destFtpClientUtil.deflate(
+                            destFtpClient.storeFileStream(remoteTmpFilename), destDeflate)) {
+                        if (remoteDestFileOutputStream == null) {
+                            throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                                    remoteTmpFilename, destFtpClient.getReplyString()));
+                        }
+                        CopyStatistics statistics = pipelinedCopier.copy(remoteSrcFileInputStream,
+                                remoteDestFileOutputStream);
+                        log.info("复制远程文件：{}到{}/{}，{}", remoteFileUri, remoteDestDir, remoteTmpFilename, statistics);
+                    } finally {
+                        remoteSrcFileInputStream.close();
+                        srcFtpClient.completePendingCommand();
+                    }
+                    if (!destFtpClient.completePendingCommand()) {
+                        throw new FTPClientUtilException(String.format("上传文件%s失败，replyString:%s",
+                                remoteTmpFilename, destFtpClient.getReplyString()));
+                    }
+                } finally {
+                    destFtpClientUtil.leaveDeflateMode(destFtpClient, destDeflate);
+                    leaveDeflateMode(srcFtpClient, srcDeflate);
+                }
+                destFtpClient.rename(remoteTmpFilename, remoteNewFilename);
+                destFtpClientUtil.updateUploadedCache(remoteDestDir, remoteTmpFilename, remoteNewFilename);
+            } catch (Exception e) {
+                failure = e;
+                destFtpClientUtil.forgetWorkingDirectory(destFtpClient);
+                throw e;
+            } finally {
+                destFtpClientUtil.releaseFtpClient(destFtpClient, failure);
+            }
+        } finally {
+            releaseFtpClient(srcFtpClient, failure);
+        }
+    }
+
+    /**
+     * 使用FXP复制：目的端PASV监听，源端PORT指向目的端，数据在两台服务器间直接传输，不经过本地
+     *
+     * @param destFtpClientUtil
+     * @param remoteFileUri
+     * @param remoteDestDir
+     * @param remoteTmpFilename
+     * @param remoteNewFilename
+     * @return 服务器拒绝FXP时返回false，此时尚未传输任何数据
+     * @throws Exception
+     */
+    private boolean fxpCopy(GenericFTPClientUtilImpl destFtpClientUtil,
+                            String remoteFileUri,
+                            String remoteDestDir,
+                            String remoteTmpFilename,
+                            String remoteNewFilename) throws Exception {
+        Throwable failure = null;
+        FTPClient srcFtpClient = getFtpClient();
+        int srcDataConnectionMode = srcFtpClient.getDataConnectionMode();
+        try {
+            FTPClient destFtpClient = destFtpClientUtil.getFtpClient();
+            int destDataConnectionMode = destFtpClient.getDataConnectionMode();
+            try {
+                Assert.isTrue(isRemotePathExist(srcFtpClient, remoteFileUri),
+                        String.format("源文件：[%s]不存在，无法获取远程文件", remoteFileUri));
+                destFtpClientUtil.enterDirectory(destFtpClient, remoteDestDir);
+                long startTime = System.currentTimeMillis();
+                FxpResult result = transferServerToServer(srcFtpClient, destFtpClient, remoteFileUri, remoteTmpFilename);
+                if (result != FxpResult.TRANSFERRED) {
+                    log.info("服务器拒绝FXP，改用流式复制，源端replyString:{}，目的端replyString:{}",
+                            srcFtpClient.getReplyString(), destFtpClient.getReplyString());
+                    if (result == FxpResult.UNSUPPORTED) {
+                        fxpRefusedTargets.add(destFtpClientUtil);
+                    }
+                    return false;
                 }
+                destFtpClient.rename(remoteTmpFilename, remoteNewFilename);
+                destFtpClientUtil.updateUploadedCache(remoteDestDir, remoteTmpFilename, remoteNewFilename);
+                log.info("FXP复制远程文件：{}到{}/{}，耗时{}ms", remoteFileUri, remoteDestDir, remoteNewFilename,
+                        System.currentTimeMillis() - startTime);
+                return true;
+            } catch (Exception e) {
+                failure = e;
+                destFtpClientUtil.forgetWorkingDirectory(destFtpClient);
+                throw e;
+            } finally {
+                restoreDataConnectionMode(destFtpClient, destDataConnectionMode);
+                destFtpClientUtil.releaseFtpClient(destFtpClient, failure);
+            }
+        } finally {
+            restoreDataConnectionMode(srcFtpClient, srcDataConnectionMode);
+            releaseFtpClient(srcFtpClient, failure);
+        }
+    }
+
+    /**
+     * 依次发送PASV（目的端）、PORT（源端）、STOR（目的端）、RETR（源端），再等待两端的传输完成应答。
+     * 等待期间两条控制连接上没有数据，读应答的超时临时改为fxpReplyTimeout。
+     * 目的端进入被动模式后，任一步失败都无法确认两端的数据连接状态，断开两条连接，归还时由连接池销毁
+     *
+     * @param srcFtpClient
+     * @param destFtpClient
+     * @param remoteFileUri
+     * @param remoteTmpFilename
+     * @return 传输结果
+     * @throws IOException
+     */
+    private FxpResult transferServerToServer(FTPClient srcFtpClient,
+                                             FTPClient destFtpClient,
+                                             String remoteFileUri,
+                                             String remoteTmpFilename) throws IOException {
+        if (!destFtpClient.enterRemotePassiveMode()) {
+            return refusedBy(destFtpClient);
+        }
+        boolean transferred = false;
+        try {
+            InetAddress passiveHost = InetAddress.getByName(destFtpClient.getPassiveHost());
+            if (!srcFtpClient.enterRemoteActiveMode(passiveHost, destFtpClient.getPassivePort())) {
+                log.info("源端拒绝PORT，replyString:{}", srcFtpClient.getReplyString());
+                return refusedBy(srcFtpClient);
+            }
+            if (!destFtpClient.remoteStore(remoteTmpFilename)) {
+                return FxpResult.REFUSED;
+            }
+            if (!srcFtpClient.remoteRetrieve(remoteFileUri)) {
+                log.info("源端拒绝RETR，replyString:{}", srcFtpClient.getReplyString());
+                return FxpResult.REFUSED;
             }
-            returnFtpClient(ftpClient);
+            boolean retrieved;
+            boolean stored;
+            int srcSoTimeout = srcFtpClient.getSoTimeout();
+            int destSoTimeout = destFtpClient.getSoTimeout();
+            try {
+                srcFtpClient.setSoTimeout(Math.max(0, properties.getFxpReplyTimeout()));
+                destFtpClient.setSoTimeout(Math.max(0, properties.getFxpReplyTimeout()));
+                retrieved = srcFtpClient.completePendingCommand();
+                stored = destFtpClient.completePendingCommand();
+            } finally {
+                srcFtpClient.setSoTimeout(srcSoTimeout);
+                destFtpClient.setSoTimeout(destSoTimeout);
+            }
+            if (!retrieved || !stored) {
+                throw new FTPClientUtilException(String.format("FXP传输失败，源端replyString:%s，目的端replyString:%s",
+                        srcFtpClient.getReplyString(), destFtpClient.getReplyString()));
+            }
+            transferred = true;
+            return FxpResult.TRANSFERRED;
+        } finally {
+            if (!transferred) {
+                disconnectQuietly(srcFtpClient);
+                disconnectQuietly(destFtpClient);
+            }
+        }
+    }
+
+    /**
+     * PASV或PORT被拒绝：永久拒绝（5xx）说明服务器不支持FXP，临时拒绝（4xx）只影响本次复制
+     *
+     * @param ftpClient 拒绝命令的一端
+     * @return
+     */
+    private static FxpResult refusedBy(FTPClient ftpClient) {
+        return FTPReply.isNegativePermanent(ftpClient.getReplyCode()) ? FxpResult.UNSUPPORTED : FxpResult.REFUSED;
+    }
+
+    /**
+     * FXP传输的结果
+     */
+    private enum FxpResult {
+        /**
+         * 传输完成
+         */
+        TRANSFERRED,
+        /**
+         * 服务器不支持FXP，之后复制到该目的客户端不再尝试
+         */
+        UNSUPPORTED,
+        /**
+         * 本次传输被拒绝，之后仍会尝试FXP
+         */
+        REFUSED
+    }
+
+    private static void disconnectQuietly(FTPClient ftpClient) {
+        try {
+            ftpClient.disconnect();
+        } catch (IOException e) {
+            log.warn("断开FTP连接异常：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * FXP会把连接切换为远程数据连接模式，归还前恢复为原来的本地模式
+     *
+     * @param ftpClient
+     * @param dataConnectionMode
+     */
+    private static void restoreDataConnectionMode(FTPClient ftpClient, int dataConnectionMode) {
+        if (dataConnectionMode == FTPClient.PASSIVE_LOCAL_DATA_CONNECTION_MODE) {
+            ftpClient.enterLocalPassiveMode();
+        } else if (dataConnectionMode == FTPClient.ACTIVE_LOCAL_DATA_CONNECTION_MODE) {
+            ftpClient.enterLocalActiveMode();
         }
     }
 
     @Override
     public boolean deleteFile(String remoteFileAbsolutePathUri) throws Exception {
         boolean result;
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
             result = ftpClient.deleteFile(remoteFileAbsolutePathUri);
+            metadataCache.invalidate(remoteFileAbsolutePathUri);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("删除远程文件：[%s] 失败！", remoteFileAbsolutePathUri);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
         return result;
     }
@@ -212,14 +979,18 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
     @Override
     public boolean removeDirectory(String remoteDir) throws Exception {
         boolean result;
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
             result = ftpClient.removeDirectory(remoteDir);
+            metadataCache.invalidateTree(remoteDir);
+            knownDirectories.removeTree(remoteDir);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("删除远程目录：[%s] 失败", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
         return result;
     }
@@ -228,17 +999,19 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
     public List<String> getRemoteDirFilenames(String remoteDir) throws Exception {
         String[] allFilenameArray = null;
         List<String> allFilenames = null;
+        Throwable failure = null;
         FTPClient ftpClient = null;
         try {
             ftpClient = getFtpClient();
             allFilenameArray = ftpClient.listNames(remoteDir);
             allFilenames = Arrays.asList(allFilenameArray);
         } catch (IOException e) {
+            failure = e;
             String errorMsg = String
                     .format("获取path:[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
         return allFilenames;
     }
@@ -247,16 +1020,18 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
     public List<FTPFile> getRemoteDirFTPFiles(String remoteDir) throws Exception {
         FTPFile[] allFilesArray;
         List<FTPFile> allFiles;
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
             allFilesArray = ftpClient.listFiles(remoteDir);
             allFiles = Arrays.asList(allFilesArray);
         } catch (IOException e) {
+            failure = e;
             String errorMsg = String
                     .format("获取path:[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
         return allFiles;
     }
@@ -272,6 +1047,15 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
         return listRemoteDirFileInfo(remoteDir, false);
     }
 
+    @Override
+    public Stream<RemoteFileInfo> streamRemoteFileByDir(String remoteDir,
+                                                        boolean recursive) throws Exception {
+        FTPListIterator iterator = new FTPListIterator(getFtpClient(), trimSeparator(remoteDir), recursive);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
     /**
      * 传入过滤器，列出远程目录
      *
@@ -284,17 +1068,19 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
                                             FTPFileFilter filter) throws Exception {
         FTPFile[] filteredFilesArray = null;
         List<FTPFile> filteredFiles = null;
+        Throwable failure = null;
         FTPClient ftpClient = null;
         try {
             ftpClient = getFtpClient();
             filteredFilesArray = ftpClient.listFiles(remoteDir, filter);
             filteredFiles = Arrays.asList(filteredFilesArray);
         } catch (IOException e) {
+            failure = e;
             String errorMsg = String
                     .format("获取path:[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
         return filteredFiles;
     }
@@ -307,6 +1093,7 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
      */
     public boolean isFileExist(String filePath) {
         boolean isExitFlag = false;
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
             FTPFile[] ftpFiles = ftpClient.listFiles(new String(filePath.getBytes(), FTP.DEFAULT_CONTROL_ENCODING));
@@ -314,23 +1101,179 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
                 isExitFlag = true;
             }
         } catch (IOException e) {
+            failure = e;
             String errorMsg = String.format("获取文件：[%s] 属性时发生I/O异常,请确认与ftp服务器的连接正常", filePath);
             throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseFtpClient(ftpClient, failure);
         }
         return isExitFlag;
     }
 
     /**
-     * 保证ftp路径右端有且仅有一个/
+     * 使用共享缓冲区池将输入流上传为远程文件，替代storeFile/appendFile中每次分配缓冲区的复制
      *
-     * @param path
-     * @return
+     * @param ftpClient
+     * @param remoteFilename 远程文件名
+     * @param targetFilename 重命名后的目标文件名，用于自适应压缩判断
+     * @param inputStream    本地输入流
+     * @param append         是否以APPE追加到远程文件末尾
+     * @throws IOException
      */
-    private static String trimSeparator(String path) {
-        int end = path.length() - 1;
-        for (; end >= 0 && path.charAt(end) == '/'; end--) ;
-        return path.substring(0, end + 1) + "/";
-    }
+    private void storeStream(FTPClient ftpClient,
+                             String remoteFilename,
+                             String targetFilename,
+                             InputStream inputStream,
+                             boolean append) throws IOException {
+        boolean deflate = enterDeflateMode(ftpClient, targetFilename);
+        try {
+            try (OutputStream remoteOutputStream = deflate(append
+                    ? ftpClient.appendFileStream(remoteFilename)
+                    : ftpClient.storeFileStream(remoteFilename), deflate)) {
+                if (remoteOutputStream == null) {
+                    throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                            remoteFilename, ftpClient.getReplyString()));
+                }
+                transferBufferPool.copy(inputStream, remoteOutputStream);
+            }
+            if (!ftpClient.completePendingCommand()) {
+                throw new FTPClientUtilException(String.format("上传文件%s失败，replyString:%s",
+                        remoteFilename, ftpClient.getReplyString()));
+            }
+        } finally {
+            leaveDeflateMode(ftpClient, deflate);
+        }
+    }
+
+    /**
+     * 使用共享缓冲区池下载远程文件到输出流，替代retrieveFile中每次分配缓冲区的复制
+     *
+     * @param ftpClient
+     * @param remoteFilename 远程文件名
+     * @param outputStream   本地输出流
+     * @throws IOException
+     */
+    private void retrieveStream(FTPClient ftpClient,
+                                String remoteFilename,
+                                OutputStream outputStream) throws IOException {
+        // 断点续传时REST偏移量在MODE Z下含义不明确，不压缩
+        boolean deflate = ftpClient.getRestartOffset() == 0 && enterDeflateMode(ftpClient, remoteFilename);
+        try {
+            try (InputStream remoteInputStream = inflate(ftpClient.retrieveFileStream(remoteFilename), deflate)) {
+                if (remoteInputStream == null) {
+                    throw new FTPClientUtilException(String.format("打开远程文件%s失败，replyString:%s",
+                            remoteFilename, ftpClient.getReplyString()));
+                }
+                transferBufferPool.copy(remoteInputStream, outputStream);
+            }
+            if (!ftpClient.completePendingCommand()) {
+                throw new FTPClientUtilException(String.format("下载文件%s失败，replyString:%s",
+                        remoteFilename, ftpClient.getReplyString()));
+            }
+        } finally {
+            leaveDeflateMode(ftpClient, deflate);
+        }
+    }
+
+    /**
+     * 开启压缩传输且文件不属于已压缩格式时发送MODE Z，服务器拒绝后不再尝试
+     *
+     * @param ftpClient
+     * @param remoteFilename 用于自适应压缩判断的文件名
+     * @return 是否已进入MODE Z
+     * @throws IOException
+     */
+    private boolean enterDeflateMode(FTPClient ftpClient, String remoteFilename) throws IOException {
+        if (!properties.isDeflateTransfer() || deflateRefused) {
+            return false;
+        }
+        if (properties.isCompressionAdaptive()
+                && CompressionUtil.isCompressed(remoteFilename, properties.getCompressedExtensions())) {
+            return false;
+        }
+        if (FTPReply.isPositiveCompletion(ftpClient.sendCommand("MODE", "Z"))) {
+            return true;
+        }
+        log.info("FTP服务器不支持MODE Z，使用不压缩传输，replyString:{}", ftpClient.getReplyString());
+        deflateRefused = true;
+        return false;
+    }
+
+    /**
+     * 传输结束后恢复MODE S，列目录等操作的数据连接不经过解压。恢复失败时断开连接，由连接池销毁
+     *
+     * @param ftpClient
+     * @param deflate   是否已进入MODE Z
+     */
+    private void leaveDeflateMode(FTPClient ftpClient, boolean deflate) {
+        if (!deflate) {
+            return;
+        }
+        try {
+            if (FTPReply.isPositiveCompletion(ftpClient.sendCommand("MODE", "S"))) {
+                return;
+            }
+            log.warn("恢复MODE S失败，断开连接，replyString:{}", ftpClient.getReplyString());
+        } catch (IOException e) {
+            log.warn("恢复MODE S失败，断开连接", e);
+        }
+        try {
+            ftpClient.disconnect();
+        } catch (IOException e) {
+            log.warn("断开FTP连接异常", e);
+        }
+    }
+
+    private OutputStream deflate(OutputStream remoteOutputStream, boolean deflate) {
+        return remoteOutputStream == null || !deflate ? remoteOutputStream
+                : CompressionUtil.deflate(remoteOutputStream, properties.getCompressionLevel(), properties.getBufferSize());
+    }
+
+    private InputStream inflate(InputStream remoteInputStream, boolean deflate) {
+        return remoteInputStream == null || !deflate ? remoteInputStream
+                : CompressionUtil.inflate(remoteInputStream, properties.getBufferSize());
+    }
+
+    /**
+     * 上传并重命名后更新缓存：临时文件已不存在，目标文件已存在
+     *
+     * @param remoteDir
+     * @param remoteTmpFilename
+     * @param remoteFilename
+     */
+    private void updateUploadedCache(String remoteDir, String remoteTmpFilename, String remoteFilename) {
+        metadataCache.put(remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteTmpFilename,
+                remoteTmpFilename.equals(remoteFilename), null);
+        metadataCache.put(remoteDir + IOUtils.DIR_SEPARATOR_UNIX + remoteFilename, true, null);
+    }
+
+    /**
+     * 获取远程文件大小
+     *
+     * @param ftpClient
+     * @param remoteFilePathUri
+     * @return
+     * @throws IOException
+     */
+    private static long getRemoteFileSize(FTPClient ftpClient, String remoteFilePathUri) throws IOException {
+        FTPFile[] ftpFiles = ftpClient.listFiles(remoteFilePathUri);
+        if (ftpFiles == null || ftpFiles.length != 1 || !ftpFiles[0].isFile()) {
+            throw new FTPClientUtilException(String.format("远程文件：[%s]不存在，无法获取文件大小", remoteFilePathUri));
+        }
+        return ftpFiles[0].getSize();
+    }
+
+    /**
+     * 保证ftp路径右端有且仅有一个/
+     *
+     * @param path
+     * @return
+     */
+    private static String trimSeparator(String path) {
+        int end = path.length() - 1;
+        for (; end >= 0 && path.charAt(end) == '/'; end--) ;
+        return path.substring(0, end + 1) + "/";
+    }
 
     /**
      * 列出远程目录的文件信息，以RemoteFileInfo包裹
@@ -341,18 +1284,70 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
      */
     protected List<RemoteFileInfo> listRemoteDirFileInfo(String remoteDir,
                                                          boolean recursive) {
+        int maxFanOut = getListMaxFanOut();
+        if (recursive && maxFanOut > 1) {
+            return ParallelDirectoryWalker.walk(trimSeparator(remoteDir), maxFanOut, "ftp-list", this::listSingleDir);
+        }
+        Throwable failure = null;
         FTPClient ftpClient = null;
         List<RemoteFileInfo> remoteFileInfoList = new ArrayList<>();
         try {
             ftpClient = getFtpClient();
             return listRemoteDirFileInfo(ftpClient, remoteFileInfoList, trimSeparator(remoteDir), recursive);
         } catch (Exception e) {
+            failure = e;
             throw new FTPClientUtilException(String.format("列出远程目录：%s下的文件异常", remoteDir), e);
         } finally {
-            returnFtpClient(ftpClient);
+            releaseFtpClient(ftpClient, failure);
         }
     }
 
+    /**
+     * 递归列目录时的并行度，不超过连接池的maxTotal
+     *
+     * @return
+     */
+    protected int getListMaxFanOut() {
+        int maxTotal = properties.getMaxTotal();
+        return maxTotal > 0 ? Math.min(properties.getListMaxFanOut(), maxTotal) : properties.getListMaxFanOut();
+    }
+
+    /**
+     * 借用一个连接列出单个目录，供并行遍历使用
+     *
+     * @param remoteDir 以"/"结尾的远程目录
+     * @param files     当前目录下的文件
+     * @return 子目录
+     * @throws IOException
+     */
+    private List<String> listSingleDir(String remoteDir, List<RemoteFileInfo> files) throws IOException {
+        List<String> subDirs = new ArrayList<>();
+        Throwable failure = null;
+        FTPClient ftpClient = getFtpClient();
+        try {
+            FTPFile[] remoteFiles = listFTPFiles(ftpClient, remoteDir);
+            if (remoteFiles == null) {
+                return subDirs;
+            }
+            for (FTPFile ftpFile : remoteFiles) {
+                if (isSelfOrParent(ftpFile)) {
+                    continue;
+                }
+                if (ftpFile.isDirectory()) {
+                    knownDirectories.add(remoteDir + ftpFile.getName());
+                    subDirs.add(remoteDir + ftpFile.getName() + "/");
+                } else {
+                    files.add(toRemoteFileInfo(ftpFile, remoteDir));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
+        return subDirs;
+    }
 
     /**
      * 递归扫描path下的所有文件
@@ -363,86 +1358,276 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
      * @param recursive 是否扫描子文件
      * @throws Exception
      */
-    private static List<RemoteFileInfo> listRemoteDirFileInfo(FTPClient ftpClient,
-                                                              List<RemoteFileInfo> ftpFiles,
-                                                              String remoteDir,
-                                                              boolean recursive)
+    private List<RemoteFileInfo> listRemoteDirFileInfo(FTPClient ftpClient,
+                                                       List<RemoteFileInfo> ftpFiles,
+                                                       String remoteDir,
+                                                       boolean recursive)
             throws Exception {
-        FTPFile[] remoteFiles = ftpClient.listFiles(remoteDir);
+        FTPFile[] remoteFiles = listFTPFiles(ftpClient, remoteDir);
         if (remoteFiles == null || remoteFiles.length == 0) {
             return ftpFiles;
         }
 
         for (FTPFile ftpFile : remoteFiles) {
+            if (isSelfOrParent(ftpFile)) {
+                continue;
+            }
             if (ftpFile.isDirectory()) {//文件夹
+                knownDirectories.add(remoteDir + ftpFile.getName());
                 if (recursive) {
                     listRemoteDirFileInfo(ftpClient, ftpFiles,
                             remoteDir + ftpFile.getName() + "/", true);
                 }
             } else {//文件
-                RemoteFileInfo remoteFileInfo = new RemoteFileInfo(ftpFile.getSize(),
-                        ftpFile.getName(),
-                        ftpFile.isDirectory(),
-                        ftpFile.isFile(),
-                        ftpFile.isSymbolicLink(),
-                        remoteDir);
-                ftpFiles.add(remoteFileInfo);
+                ftpFiles.add(toRemoteFileInfo(ftpFile, remoteDir));
             }
         }
         return ftpFiles;
     }
 
     /**
-     * 支持mkdir -p的创建目录方式
+     * 列出单个目录，服务器支持时使用MLSD，否则使用LIST
      *
      * @param ftpClient
-     * @param directoryPath
+     * @param remoteDir
+     * @return
+     * @throws IOException
      */
-    private void mkDirRecursive(FTPClient ftpClient, String directoryPath) throws Exception {
-        // 判断远程目录是否存在
-        boolean isDirExist = isRemotePathExist(directoryPath);
+    private FTPFile[] listFTPFiles(FTPClient ftpClient, String remoteDir) throws IOException {
+        if (!isMlsdSupported(ftpClient)) {
+            return ftpClient.listFiles(remoteDir);
+        }
+        FTPFile[] remoteFiles = ftpClient.mlistDir(remoteDir);
+        // 无法建立数据连接时mlistDir返回空数组，命令未实现则退回LIST
+        if (remoteFiles.length == 0 && FTPReply.isNegativePermanent(ftpClient.getReplyCode())
+                && ftpClient.getReplyCode() != FTPReply.FILE_UNAVAILABLE) {
+            log.warn("服务器不支持MLSD，replyString:{}，改用LIST列目录", ftpClient.getReplyString());
+            mlsdSupported = Boolean.FALSE;
+            return ftpClient.listFiles(remoteDir);
+        }
+        return remoteFiles;
+    }
 
-        if (!isDirExist) {
-            StringBuilder dirPath = new StringBuilder();
-            dirPath.append(IOUtils.DIR_SEPARATOR_UNIX);
-            String[] dirSplit = StringUtils.split(directoryPath, IOUtils.DIR_SEPARATOR_UNIX);
+    /**
+     * 通过FEAT协商服务器是否支持MLSD，支持MLST的服务器同时支持MLSD（RFC 3659），协商结果在所有连接间共享
+     *
+     * @param ftpClient
+     * @return
+     */
+    private boolean isMlsdSupported(FTPClient ftpClient) {
+        if (!properties.isPreferMlsd()) {
+            return false;
+        }
+        Boolean supported = mlsdSupported;
+        if (supported == null) {
             try {
-                // ftp server不支持递归创建目录,只能一级一级创建
-                for (String dirName : dirSplit) {
-                    dirPath.append(dirName);
-                    mkDirSingleHierarchy(ftpClient, dirPath.toString());
-                    dirPath.append(IOUtils.DIR_SEPARATOR_UNIX);
-                }
-            } catch (Exception e) {
-                String errorMsg = String
-                        .format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常, errorMessage:%s",
-                                directoryPath, e.getMessage());
-                throw new FTPClientUtilException(errorMsg, e);
+                supported = ftpClient.hasFeature("MLST");
+            } catch (IOException e) {
+                log.warn("FEAT协商失败，改用LIST列目录", e);
+                supported = Boolean.FALSE;
             }
+            log.info("服务器{}MLSD，列目录将使用{}", supported ? "支持" : "不支持", supported ? "MLSD" : "LIST");
+            mlsdSupported = supported;
         }
+        return supported;
     }
 
     /**
-     * 创建单层目录
+     * MLSD返回的当前目录（type=cdir）和上级目录（type=pdir）条目，以及LIST返回的.和..
      *
-     * @param directoryPath
+     * @param ftpFile
      * @return
-     * @throws SftpException
      */
-    private boolean mkDirSingleHierarchy(FTPClient ftpClient, String directoryPath) throws Exception {
-        boolean isDirExist = false;
+    private static boolean isSelfOrParent(FTPFile ftpFile) {
+        String name = ftpFile.getName();
+        if (name == null || name.equals(".") || name.equals("..")) {
+            return true;
+        }
+        String rawListing = StringUtils.lowerCase(ftpFile.getRawListing());
+        return StringUtils.contains(rawListing, "type=cdir;") || StringUtils.contains(rawListing, "type=pdir;");
+    }
+
+    /**
+     * 将FTPFile转化为RemoteFileInfo，MLSD的时间精确到秒，LIST的时间精度取决于服务器
+     *
+     * @param ftpFile
+     * @param remoteDir
+     * @return
+     */
+    private static RemoteFileInfo toRemoteFileInfo(FTPFile ftpFile, String remoteDir) {
+        RemoteFileInfo remoteFileInfo = new RemoteFileInfo(ftpFile.getSize(),
+                ftpFile.getName(),
+                ftpFile.isDirectory(),
+                ftpFile.isFile(),
+                ftpFile.isSymbolicLink(),
+                remoteDir);
+        if (ftpFile.getTimestamp() != null) {
+            remoteFileInfo.setLastModifiedTime(ftpFile.getTimestamp().getTime());
+        }
+        return remoteFileInfo;
+    }
+
+    /**
+     * 支持mkdir -p的创建目录方式：已知目录直接返回，否则从最深一级向上探测，
+     * 找到最深的已存在目录后只创建其下缺失的各级目录
+     *
+     * @param ftpClient
+     * @param directoryPath
+     */
+    private void mkDirRecursive(FTPClient ftpClient, String directoryPath) throws Exception {
+        String[] dirSplit = StringUtils.split(directoryPath, IOUtils.DIR_SEPARATOR_UNIX);
+        String absoluteDirPath = joinPath(dirSplit, dirSplit.length);
+        if (knownDirectories.contains(absoluteDirPath)) {
+            return;
+        }
         try {
-            isDirExist = isRemotePathExist(directoryPath);
-        } catch (SftpException e) {
-            log.info(String.format("正在逐级创建目录 [%s]", directoryPath));
-            ftpClient.makeDirectory(directoryPath);
+            int existingDepth = dirSplit.length;
+            while (existingDepth > 0 && !probeDirectory(ftpClient, joinPath(dirSplit, existingDepth))) {
+                existingDepth--;
+            }
+            // ftp server不支持递归创建目录,只能一级一级创建
+            for (int depth = existingDepth + 1; depth <= dirSplit.length; depth++) {
+                String dirPath = joinPath(dirSplit, depth);
+                log.info(String.format("正在逐级创建目录 [%s]", dirPath));
+                boolean created = ftpClient.makeDirectory(dirPath);
+                metadataCache.invalidate(dirPath);
+                // NLST无法识别空目录，创建失败时通过进入目录确认其是否已存在
+                if (!created && !changeWorkingDirectory(ftpClient, dirPath)) {
+                    throw new FTPClientUtilException(String.format("创建目录:%s失败，replyString:%s",
+                            dirPath, ftpClient.getReplyString()));
+                }
+            }
+            knownDirectories.add(absoluteDirPath);
+        } catch (Exception e) {
+            String errorMsg = String
+                    .format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常, errorMessage:%s",
+                            directoryPath, e.getMessage());
+            throw new FTPClientUtilException(errorMsg, e);
+        }
+    }
+
+    /**
+     * 使用已借出的连接判断目录是否存在，依次查询已知目录集合、元数据缓存和服务器
+     *
+     * @param ftpClient
+     * @param remoteDir
+     * @return
+     * @throws IOException
+     */
+    private boolean probeDirectory(FTPClient ftpClient, String remoteDir) throws IOException {
+        if (knownDirectories.contains(remoteDir)) {
             return true;
         }
-        if (!isDirExist) {
-            log.info(String.format("正在逐级创建目录 [%s]", directoryPath));
-            ftpClient.makeDirectory(directoryPath);
+        boolean exist = isRemotePathExist(ftpClient, remoteDir);
+        if (exist) {
+            knownDirectories.add(remoteDir);
+        }
+        return exist;
+    }
+
+    /**
+     * 确保远程目录存在并进入该目录，已知目录已被其他客户端删除时重新创建
+     *
+     * @param ftpClient
+     * @param remoteDir
+     * @throws Exception
+     */
+    private void enterDirectory(FTPClient ftpClient, String remoteDir) throws Exception {
+        // 连接已在该目录下时无需探测目录，也无需再发送CWD
+        if (isInWorkingDirectory(ftpClient, remoteDir)) {
+            return;
+        }
+        // 目录不存在则进行逐级创建
+        mkDirRecursive(ftpClient, remoteDir);
+        // 进入对应的远程目录
+        if (changeWorkingDirectory(ftpClient, remoteDir)) {
+            return;
+        }
+        knownDirectories.removeTree(remoteDir);
+        metadataCache.invalidateTree(remoteDir);
+        mkDirRecursive(ftpClient, remoteDir);
+        if (!changeWorkingDirectory(ftpClient, remoteDir)) {
+            throw new FTPClientUtilException(String.format("进入远程目录：%s失败，replyString:%s",
+                    remoteDir, ftpClient.getReplyString()));
+        }
+    }
+
+    /**
+     * 发送CWD并记录连接的工作目录，相对路径无法确定进入后的绝对路径，不做记录
+     *
+     * @param ftpClient
+     * @param remoteDir
+     * @return
+     * @throws IOException
+     */
+    private boolean changeWorkingDirectory(FTPClient ftpClient, String remoteDir) throws IOException {
+        boolean changed = ftpClient.changeWorkingDirectory(remoteDir);
+        String workingDirectory = normalizeWorkingDirectory(remoteDir);
+        if (changed && workingDirectory != null) {
+            workingDirectories.put(ftpClient, workingDirectory);
+        } else {
+            workingDirectories.remove(ftpClient);
+        }
+        return changed;
+    }
+
+    /**
+     * 连接是否已在指定目录下
+     *
+     * @param ftpClient
+     * @param remoteDir
+     * @return
+     */
+    private boolean isInWorkingDirectory(FTPClient ftpClient, String remoteDir) {
+        if (!properties.isTrackWorkingDirectory()) {
+            return false;
+        }
+        String workingDirectory = normalizeWorkingDirectory(remoteDir);
+        return workingDirectory != null && workingDirectory.equals(workingDirectories.get(ftpClient));
+    }
+
+    /**
+     * 获取连接当前所在的工作目录，未知时返回null
+     *
+     * @param ftpClient
+     * @return
+     */
+    protected String getWorkingDirectory(FTPClient ftpClient) {
+        return workingDirectories.get(ftpClient);
+    }
+
+    /**
+     * 操作失败后工作目录不再可信（如目录已被其他客户端删除），下次使用该连接时重新发送CWD
+     *
+     * @param ftpClient
+     */
+    protected void forgetWorkingDirectory(FTPClient ftpClient) {
+        workingDirectories.remove(ftpClient);
+    }
+
+    /**
+     * 将绝对路径统一为不带末尾/的形式，相对路径返回null
+     *
+     * @param remoteDir
+     * @return
+     */
+    static String normalizeWorkingDirectory(String remoteDir) {
+        if (remoteDir == null || remoteDir.isEmpty() || remoteDir.charAt(0) != IOUtils.DIR_SEPARATOR_UNIX) {
+            return null;
         }
-        return true;
+        String[] dirSplit = StringUtils.split(remoteDir, IOUtils.DIR_SEPARATOR_UNIX);
+        return joinPath(dirSplit, dirSplit.length);
+    }
+
+    /**
+     * 拼接前depth级目录为绝对路径
+     *
+     * @param dirSplit
+     * @param depth
+     * @return
+     */
+    private static String joinPath(String[] dirSplit, int depth) {
+        return IOUtils.DIR_SEPARATOR_UNIX + StringUtils.join(dirSplit, IOUtils.DIR_SEPARATOR_UNIX, 0, depth);
     }
 
     /**
@@ -453,28 +1638,37 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
      */
     public void mkDir(String directoryPath) {
         boolean isDirExist = false;
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
         try {
-            isDirExist = ftpClient.changeWorkingDirectory(
-                    new String(directoryPath.getBytes(), FTP.DEFAULT_CONTROL_ENCODING));
-        } catch (UnsupportedEncodingException e) {
-            String errorMsg = String.format("文件编码:[%s]不存在, errorMessage:%s",
-                    FTP.DEFAULT_CONTROL_ENCODING, e.getMessage());
-            throw new FTPClientUtilException(errorMsg, e);
-        } catch (IOException e) {
-            log.info(String.format(
-                    "您的配置项path:[%s]不存在，将尝试进行目录创建, errorMessage:%s",
-                    directoryPath, e.getMessage()));
-        }
-        // 目录不存在则创建目录
-        if (!isDirExist) {
             try {
-                ftpClient.makeDirectory(directoryPath);
-            } catch (IOException e) {
-                String errorMsg = String.format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常, errorMessage:%s",
-                        directoryPath, e.getMessage());
+                isDirExist = changeWorkingDirectory(ftpClient,
+                        new String(directoryPath.getBytes(), FTP.DEFAULT_CONTROL_ENCODING));
+            } catch (UnsupportedEncodingException e) {
+                failure = e;
+                String errorMsg = String.format("文件编码:[%s]不存在, errorMessage:%s",
+                        FTP.DEFAULT_CONTROL_ENCODING, e.getMessage());
                 throw new FTPClientUtilException(errorMsg, e);
+            } catch (IOException e) {
+                failure = e;
+                log.info(String.format(
+                        "您的配置项path:[%s]不存在，将尝试进行目录创建, errorMessage:%s",
+                        directoryPath, e.getMessage()));
             }
+            // 目录不存在则创建目录
+            if (!isDirExist) {
+                try {
+                    ftpClient.makeDirectory(directoryPath);
+                    metadataCache.invalidate(directoryPath);
+                } catch (IOException e) {
+                    failure = e;
+                    String errorMsg = String.format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常, errorMessage:%s",
+                            directoryPath, e.getMessage());
+                    throw new FTPClientUtilException(errorMsg, e);
+                }
+            }
+        } finally {
+            releaseFtpClient(ftpClient, failure);
         }
     }
 
@@ -487,15 +1681,235 @@ public abstract class GenericFTPClientUtilImpl implements FTPClientUtil, FTPConn
      */
     @Override
     public boolean isRemotePathExist(String remotePath) throws Exception{
+        RemoteMetadataCache.Entry<FTPFile> entry = metadataCache.get(remotePath);
+        if (entry != null) {
+            return entry.isExist();
+        }
+        Throwable failure = null;
         FTPClient ftpClient = getFtpClient();
+        try {
+            return isRemotePathExist(ftpClient, remotePath);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            releaseFtpClient(ftpClient, failure);
+        }
+    }
+
+    /**
+     * 使用已借出的连接判断远程路径是否存在，操作内部的检查都应使用此方法，避免再从连接池借用连接
+     *
+     * @param ftpClient
+     * @param remotePath
+     * @return
+     * @throws IOException
+     */
+    private boolean isRemotePathExist(FTPClient ftpClient, String remotePath) throws IOException {
+        RemoteMetadataCache.Entry<FTPFile> entry = metadataCache.get(remotePath);
+        if (entry != null) {
+            return entry.isExist();
+        }
         try {
             String[] names = ftpClient.listNames(remotePath);
-            return names != null && names.length > 0;
+            boolean exist = names != null && names.length > 0;
+            metadataCache.put(remotePath, exist, null);
+            return exist;
         } catch (IOException e) {
             log.error("判断远程ftp上{}是否存在时发生异常", remotePath);
             throw e;
-        } finally {
-            returnFtpClient(ftpClient);
+        }
+    }
+
+    /**
+     * 惰性遍历远程目录：支持MLSD时通过{@link StreamingFTPClient}的数据连接逐行读取并解析，内存占用与目录大小无关；
+     * 否则LIST结果由FTPListParseEngine分页解析，但commons-net 3.5的readServerList会先读入目录的全部原始行，
+     * 单个目录很大时仍占用与行数成正比的内存。子目录压入待遍历栈，当前目录遍历完后再列出下一个目录，
+     * 遍历结束或关闭时归还连接
+     */
+    private class FTPListIterator implements Iterator<RemoteFileInfo> {
+
+        /**
+         * 每次从解析引擎中解析的条目数
+         */
+        private static final int PAGE_SIZE = 128;
+
+        private final FTPClient ftpClient;
+
+        private final boolean recursive;
+
+        private final Deque<String> pendingDirs = new ArrayDeque<>();
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private String currentDir;
+
+        private FTPListParseEngine parseEngine;
+
+        private Iterator<FTPFile> page = Collections.emptyIterator();
+        /**
+         * 当前目录MLSD的数据连接，读完后关闭
+         */
+        private Socket mlsdSocket;
+
+        private BufferedReader mlsdReader;
+
+        private RemoteFileInfo next;
+        /**
+         * 列目录过程中的异常，归还连接时据此判断连接是否已损坏
+         */
+        private Throwable failure;
+
+        FTPListIterator(FTPClient ftpClient, String remoteDir, boolean recursive) {
+            this.ftpClient = ftpClient;
+            this.recursive = recursive;
+            this.pendingDirs.push(remoteDir);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (released.get()) {
+                return false;
+            }
+            try {
+                next = advance();
+            } catch (Exception e) {
+                failure = e;
+                close();
+                throw new FTPClientUtilException(String.format("列出远程目录：%s下的文件异常", currentDir), e);
+            }
+            if (next == null) {
+                close();
+            }
+            return next != null;
+        }
+
+        @Override
+        public RemoteFileInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RemoteFileInfo remoteFileInfo = next;
+            next = null;
+            return remoteFileInfo;
+        }
+
+        private RemoteFileInfo advance() throws IOException {
+            while (true) {
+                while (page.hasNext()) {
+                    RemoteFileInfo remoteFileInfo = accept(page.next());
+                    if (remoteFileInfo != null) {
+                        return remoteFileInfo;
+                    }
+                }
+                if (mlsdReader != null) {
+                    String line;
+                    while ((line = mlsdReader.readLine()) != null) {
+                        RemoteFileInfo remoteFileInfo = accept(MLSxEntryParser.parseEntry(line));
+                        if (remoteFileInfo != null) {
+                            return remoteFileInfo;
+                        }
+                    }
+                    closeMlsd(true);
+                    continue;
+                }
+                if (parseEngine != null && parseEngine.hasNext()) {
+                    page = Arrays.asList(parseEngine.getNext(PAGE_SIZE)).iterator();
+                    continue;
+                }
+                if (pendingDirs.isEmpty()) {
+                    return null;
+                }
+                currentDir = pendingDirs.pop();
+                parseEngine = null;
+                if (!openMlsd()) {
+                    parseEngine = ftpClient.initiateListParsing(currentDir);
+                }
+            }
+        }
+
+        /**
+         * 子目录压入待遍历栈，文件转换为RemoteFileInfo
+         *
+         * @param ftpFile
+         * @return 需要跳过的条目返回null
+         */
+        private RemoteFileInfo accept(FTPFile ftpFile) {
+            // 无法解析的行为null
+            if (ftpFile == null || isSelfOrParent(ftpFile)) {
+                return null;
+            }
+            if (ftpFile.isDirectory()) {
+                if (recursive) {
+                    pendingDirs.push(currentDir + ftpFile.getName() + "/");
+                }
+                return null;
+            }
+            return toRemoteFileInfo(ftpFile, currentDir);
+        }
+
+        /**
+         * 对当前目录发送MLSD并打开数据连接
+         *
+         * @return 不使用MLSD时返回false，由调用方改用LIST
+         * @throws IOException
+         */
+        private boolean openMlsd() throws IOException {
+            if (!(ftpClient instanceof StreamingFTPClient) || !isMlsdSupported(ftpClient)) {
+                return false;
+            }
+            Socket socket = ((StreamingFTPClient) ftpClient).openDataConnection("MLSD", currentDir);
+            if (socket == null) {
+                int replyCode = ftpClient.getReplyCode();
+                if (FTPReply.isNegativePermanent(replyCode) && replyCode != FTPReply.FILE_UNAVAILABLE) {
+                    log.warn("服务器不支持MLSD，replyString:{}，改用LIST列目录", ftpClient.getReplyString());
+                    mlsdSupported = Boolean.FALSE;
+                    return false;
+                }
+                // 与mlistDir一致，目录不存在或无法建立数据连接时按空目录处理
+                return true;
+            }
+            mlsdSocket = socket;
+            mlsdReader = new BufferedReader(new InputStreamReader(socket.getInputStream(), ftpClient.getControlEncoding()));
+            return true;
+        }
+
+        /**
+         * 关闭MLSD的数据连接，提前关闭时服务器应答426，同样由completePendingCommand读取
+         *
+         * @param complete 是否读取传输结束的应答，连接已损坏时不再读取
+         * @throws IOException
+         */
+        private void closeMlsd(boolean complete) throws IOException {
+            Socket socket = mlsdSocket;
+            mlsdSocket = null;
+            mlsdReader = null;
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // 数据连接已不再使用，忽略关闭异常
+                }
+            }
+            if (complete) {
+                ftpClient.completePendingCommand();
+            }
+        }
+
+        void close() {
+            if (released.compareAndSet(false, true)) {
+                if (mlsdSocket != null) {
+                    try {
+                        closeMlsd(failure == null);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                releaseFtpClient(ftpClient, failure);
+            }
         }
     }
 
@@ -2,8 +2,11 @@ package szu.jason.ftp.spring.impl;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
 import lombok.extern.slf4j.Slf4j;
@@ -12,16 +15,38 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.ftp.FTPFile;
 import org.springframework.util.Assert;
 import szu.jason.ftp.spring.FTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
 import szu.jason.ftp.spring.RemoteFileInfo;
+import szu.jason.ftp.spring.RemoteFileInputStream;
+import szu.jason.ftp.spring.RemoteFileOutputStream;
 import szu.jason.ftp.spring.SFTPConnector;
 import szu.jason.ftp.spring.SFTPConnectorFactory;
+import szu.jason.ftp.spring.cache.KnownDirectorySet;
+import szu.jason.ftp.spring.cache.RemoteMetadataCache;
 import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.journal.JournalCheckpoint;
+import szu.jason.ftp.spring.journal.TransferJournal;
+import szu.jason.ftp.spring.journal.TransferJournalStore;
+import szu.jason.ftp.spring.pool.TransferBufferPool;
 import szu.jason.ftp.spring.util.FileUtil;
+import szu.jason.ftp.spring.util.ConnectionPermits;
+import szu.jason.ftp.spring.util.ParallelDirectoryWalker;
+import szu.jason.ftp.spring.util.PipelinedCopier;
+import szu.jason.ftp.spring.util.PipelinedCopier.CopyStatistics;
+import szu.jason.ftp.spring.util.SegmentUtil;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author : Vander
@@ -31,11 +56,102 @@ import java.util.function.Predicate;
 @Slf4j
 public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPConnectorFactory {
 
+    /**
+     * 服务端命令标准错误输出最多保留的字节数，仅用于日志
+     */
+    private static final int EXEC_ERROR_OUTPUT_LIMIT = 4096;
+
+    /**
+     * client 基本信息
+     */
+    protected final FTPClientUtilProperties properties;
+    /**
+     * 断点续传日志存储
+     */
+    protected final TransferJournalStore transferJournalStore;
+    /**
+     * 所有传输路径共享的缓冲区池
+     */
+    protected final TransferBufferPool transferBufferPool;
+    /**
+     * 远程路径存在性与属性缓存
+     */
+    protected final RemoteMetadataCache<SftpATTRS> metadataCache;
+    /**
+     * 已知存在的远程目录，上传到这些目录时跳过目录探测
+     */
+    protected final KnownDirectorySet knownDirectories;
+    /**
+     * 需要同时占用两个连接的操作（如复制）的许可，许可数跟随连接池当前上限
+     */
+    protected final ConnectionPermits multiConnectionPermits;
+    /**
+     * 复制时下载和上传并行进行
+     */
+    protected final PipelinedCopier pipelinedCopier;
+    /**
+     * 服务器不允许通过exec执行cp，之后的复制直接使用流式复制
+     */
+    private volatile boolean execCopyRefused;
+    /**
+     * 是否已记录服务器声明的复制扩展
+     */
+    private volatile boolean copyExtensionLogged;
+
+    protected GenericSFTPClientUtilImpl(FTPClientUtilProperties properties) {
+        this.properties = properties;
+        this.transferJournalStore = new TransferJournalStore(properties.getJournalDir());
+        this.transferBufferPool = new TransferBufferPool(properties.getBufferSize(), properties.getBufferPoolMaxIdle());
+        this.metadataCache = new RemoteMetadataCache<>(properties.isMetadataCacheEnabled(),
+                properties.getMetadataCacheTtl(), properties.getMetadataCacheMaxSize());
+        this.knownDirectories = new KnownDirectorySet(properties.getKnownDirMaxSize());
+        this.multiConnectionPermits = new ConnectionPermits(this::currentMaxTotal);
+        this.pipelinedCopier = new PipelinedCopier(transferBufferPool, properties.getCopyPipelineBuffers(),
+                properties.getCopyReaderThreads());
+    }
+
+    /**
+     * 连接池当前的连接数上限，用于计算多连接操作的许可数，小于等于0表示不限制
+     *
+     * @return
+     */
+    protected int currentMaxTotal() {
+        return properties.getMaxTotal();
+    }
+
+    /**
+     * 获取传输缓冲区池，可用于查看命中与未命中统计
+     *
+     * @return
+     */
+    public TransferBufferPool getTransferBufferPool() {
+        return transferBufferPool;
+    }
+
+    /**
+     * 获取远程路径元数据缓存，可用于查看命中与未命中统计
+     *
+     * @return
+     */
+    public RemoteMetadataCache<SftpATTRS> getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * 获取已知存在的远程目录集合
+     *
+     * @return
+     */
+    public KnownDirectorySet getKnownDirectories() {
+        return knownDirectories;
+    }
+
     @Override
     public void put(InputStream localInputStream,
                     String remotePathUri,
                     String remoteFilename,
                     String suffix) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         String remoteFileAbsolutePathUri = "";
@@ -46,63 +162,421 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
             remoteFileAbsolutePathUri = remotePathUri + "/" + remoteFilename;
             channelSftp.put(localInputStream, remoteFileAbsolutePathUri + suffix);
             channelSftp.rename(remoteFileAbsolutePathUri + suffix, remoteFileAbsolutePathUri);
+            invalidateUploaded(remoteFileAbsolutePathUri + suffix, remoteFileAbsolutePathUri);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("上传本地文件流到远程文件：%s失败！", remoteFileAbsolutePathUri);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
             localInputStream.close();
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
     }
 
     @Override
     public void put(File localFile, String remoteDir, String remoteFilename, String suffix) throws Exception {
-        try {
-            this.put(new FileInputStream(localFile), remoteDir, remoteFilename, suffix);
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+            // 远程目录不存在则传建
+            mkDirRecursive(channelSftp, remoteDir);
+            // 上传文件到远程，本地文件经池中的缓冲区写入远程文件流
+            String remoteFileAbsolutePathUri = remoteDir + "/" + remoteFilename;
+            try (OutputStream remoteOutputStream = channelSftp.put(remoteFileAbsolutePathUri + suffix)) {
+                FileUtil.copyToStream(fileChannel, remoteOutputStream, transferBufferPool);
+            }
+            channelSftp.rename(remoteFileAbsolutePathUri + suffix, remoteFileAbsolutePathUri);
+            invalidateUploaded(remoteFileAbsolutePathUri + suffix, remoteFileAbsolutePathUri);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("上传本地文件%s到远程目录：%s失败！", localFile.getAbsolutePath(), remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseConnector(sftpConnector, failure);
+        }
+    }
+
+    /**
+     * 多通道并行上传本地文件：先在临时文件末尾写入最后一个字节确定文件大小，
+     * 再由多个连接按偏移量并行写入各自的区间，全部分段确认成功后才重命名为目标文件
+     *
+     * @param localFile      本地文件
+     * @param remoteDir      远程目录
+     * @param remoteFilename 上传后，在服务器上的文件名
+     * @param suffix         上传时的临时后缀
+     * @param segmentCount   分段数，小于等于1或文件较小时退化为单连接上传
+     * @throws Exception
+     */
+    public void put(File localFile,
+                    String remoteDir,
+                    String remoteFilename,
+                    String suffix,
+                    int segmentCount) throws Exception {
+        long localFileSize = localFile.length();
+        List<long[]> segments = SegmentUtil.split(localFileSize, segmentCount, SegmentUtil.MIN_SEGMENT_SIZE);
+        if (segments.size() <= 1) {
+            this.put(localFile, remoteDir, remoteFilename, suffix);
+            return;
+        }
+        String remoteFileAbsolutePathUri = remoteDir + "/" + remoteFilename;
+        String remoteTmpFilePathUri = remoteFileAbsolutePathUri + StringUtils.defaultString(suffix);
+        log.info("分{}段并行上传本地文件：{}到远程文件：{}，文件大小：{}",
+                segments.size(), localFile.getAbsolutePath(), remoteFileAbsolutePathUri, localFileSize);
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+            Throwable failure = null;
+            SFTPConnector sftpConnector = getConnector();
+            try {
+                ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+                mkDirRecursive(channelSftp, remoteDir);
+                // 以覆盖模式写入最后一个字节，临时文件被截断后大小即为本地文件大小
+                byte[] buffer = transferBufferPool.acquire();
+                try (OutputStream remoteOutputStream = channelSftp.put(remoteTmpFilePathUri,
+                        null, ChannelSftp.OVERWRITE, localFileSize - 1)) {
+                    SegmentUtil.copyFromChannel(fileChannel, localFileSize - 1, 1, remoteOutputStream, buffer);
+                } finally {
+                    transferBufferPool.release(buffer);
+                }
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                releaseConnector(sftpConnector, failure);
+            }
+
+            SegmentUtil.runSegments(segments, "sftp-segment-put",
+                    (start, length) -> putSegment(fileChannel, remoteTmpFilePathUri, localFileSize, start, length));
+
+            sftpConnector = getConnector();
+            try {
+                ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+                long remoteFileSize = channelSftp.lstat(remoteTmpFilePathUri).getSize();
+                if (remoteFileSize != localFileSize) {
+                    throw new FTPClientUtilException(String.format("远程临时文件：%s大小%d与本地文件大小%d不一致",
+                            remoteTmpFilePathUri, remoteFileSize, localFileSize));
+                }
+                if (!remoteTmpFilePathUri.equals(remoteFileAbsolutePathUri)) {
+                    channelSftp.rename(remoteTmpFilePathUri, remoteFileAbsolutePathUri);
+                }
+                invalidateUploaded(remoteTmpFilePathUri, remoteFileAbsolutePathUri);
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                releaseConnector(sftpConnector, failure);
+            }
+        } catch (Exception e) {
+            String errorMsg = String.format("分段上传本地文件%s到远程文件：%s失败！",
+                    localFile.getAbsolutePath(), remoteFileAbsolutePathUri);
+            throw new FTPClientUtilException(errorMsg, e);
+        }
+    }
+
+    /**
+     * 以RESUME模式打开远程临时文件（不截断），写入一个分段。
+     * JSch在RESUME模式下会把服务端当前文件大小加到offset上，而临时文件大小已固定为本地文件大小，
+     * 因此传入start - 文件大小即可定位到start
+     *
+     * @param fileChannel          本地文件通道
+     * @param remoteTmpFilePathUri 远程临时文件
+     * @param localFileSize        本地文件大小
+     * @param start                分段起始偏移量
+     * @param length               分段长度
+     * @throws Exception
+     */
+    private void putSegment(FileChannel fileChannel,
+                            String remoteTmpFilePathUri,
+                            long localFileSize,
+                            long start,
+                            long length) throws Exception {
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        byte[] buffer = transferBufferPool.acquire();
+        try (OutputStream remoteOutputStream = sftpConnector.getChannelSftp().put(remoteTmpFilePathUri,
+                null, ChannelSftp.RESUME, start - localFileSize)) {
+            SegmentUtil.copyFromChannel(fileChannel, start, length, remoteOutputStream, buffer);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            transferBufferPool.release(buffer);
+            releaseConnector(sftpConnector, failure);
         }
     }
 
     @Override
     public void put(String localFileAbsolutePathUri, String remoteDir, String remoteFilename, String suffix) throws Exception {
         try {
-            this.put(new FileInputStream(localFileAbsolutePathUri), remoteDir, remoteFilename, suffix);
+            this.put(new File(localFileAbsolutePathUri), remoteDir, remoteFilename, suffix);
         } catch (Exception e) {
             String errorMsg = String.format("上传本地文件%s到远程目录：%s失败！", localFileAbsolutePathUri, remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         }
     }
 
+    @Override
+    public void putResumable(File localFile,
+                             String remoteDir,
+                             String remoteFilename,
+                             String suffix) throws Exception {
+        String remoteFileAbsolutePathUri = remoteDir + "/" + remoteFilename;
+        String remoteTmpFilePathUri = remoteFileAbsolutePathUri + StringUtils.defaultString(suffix);
+        TransferJournal journal = null;
+        JournalCheckpoint checkpoint = null;
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+            mkDirRecursive(channelSftp, remoteDir);
+            journal = loadPutJournal(channelSftp, localFile, remoteTmpFilePathUri);
+            checkpoint = new JournalCheckpoint(journal, transferJournalStore, properties.getJournalCheckpointBytes());
+            checkpoint.save();
+
+            long offset = journal.getConfirmedBytes();
+            InputStream localInputStream = checkpoint.wrap(Channels.newInputStream(fileChannel.position(offset)));
+            // APPEND模式从临时文件末尾写入，且不会跳过本地流中的数据
+            channelSftp.put(localInputStream, remoteTmpFilePathUri,
+                    offset > 0 ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE);
+            if (!remoteTmpFilePathUri.equals(remoteFileAbsolutePathUri)) {
+                channelSftp.rename(remoteTmpFilePathUri, remoteFileAbsolutePathUri);
+            }
+            invalidateUploaded(remoteTmpFilePathUri, remoteFileAbsolutePathUri);
+            transferJournalStore.delete(journal);
+        } catch (Exception e) {
+            failure = e;
+            if (checkpoint != null) {
+                checkpoint.saveOnFailure(e);
+            }
+            String errorMsg = String.format("断点续传本地文件%s到远程文件：%s失败，已传输%d字节！",
+                    localFile.getAbsolutePath(), remoteFileAbsolutePathUri,
+                    journal == null ? 0 : journal.getConfirmedBytes());
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseConnector(sftpConnector, failure);
+        }
+    }
+
+    /**
+     * 读取上传日志并确定续传起点：本地文件未变化且服务器上临时文件不大于本地文件时，以临时文件大小为起点
+     *
+     * @param channelSftp
+     * @param localFile
+     * @param remoteTmpFilePathUri
+     * @return
+     */
+    private TransferJournal loadPutJournal(ChannelSftp channelSftp,
+                                           File localFile,
+                                           String remoteTmpFilePathUri) {
+        String localPath = localFile.getAbsolutePath();
+        TransferJournal journal = transferJournalStore.load(TransferJournal.DIRECTION_PUT, localPath, remoteTmpFilePathUri);
+        long remoteTmpFileSize = -1;
+        if (journal != null
+                && journal.getLocalSize() == localFile.length()
+                && journal.getLocalLastModified() == localFile.lastModified()) {
+            try {
+                remoteTmpFileSize = channelSftp.lstat(remoteTmpFilePathUri).getSize();
+            } catch (SftpException e) {
+                log.info("远程临时文件{}不存在，将重新上传", remoteTmpFilePathUri);
+            }
+        }
+        if (remoteTmpFileSize < 0 || remoteTmpFileSize > localFile.length()) {
+            journal = new TransferJournal();
+            journal.setDirection(TransferJournal.DIRECTION_PUT);
+            journal.setLocalPath(localPath);
+            journal.setRemotePath(remoteTmpFilePathUri);
+            journal.setLocalSize(localFile.length());
+            journal.setLocalLastModified(localFile.lastModified());
+            remoteTmpFileSize = 0;
+        } else {
+            log.info("根据断点续传日志，从偏移量{}继续上传{}，日志记录已传输{}字节",
+                    remoteTmpFileSize, remoteTmpFilePathUri, journal.getConfirmedBytes());
+        }
+        // 以服务器上实际落盘的字节数为准
+        journal.setConfirmedBytes(remoteTmpFileSize);
+        journal.setRemoteSize(remoteTmpFileSize);
+        return journal;
+    }
+
     @Override
     public void get(OutputStream localOutputStream,
                     String remoteDir,
                     String remoteFilename) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         try {
             channelSftp.get(remoteDir + "/" + remoteFilename, localOutputStream);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("下载远程文件：%s/%s到本地文件流失败！", remoteDir, remoteFilename);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
             localOutputStream.flush();
             localOutputStream.close();
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
     }
 
     @Override
     public void get(File localFile, String remoteDir, String remoteFilename) throws Exception {
-        try {
-            this.get(new FileOutputStream(localFile), remoteDir, remoteFilename);
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             InputStream remoteInputStream = channelSftp.get(remoteDir + "/" + remoteFilename)) {
+            // 远程文件流经池中的缓冲区写入本地文件
+            FileUtil.copyFromStream(remoteInputStream, fileChannel, transferBufferPool);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("下载远程文件：%s/%s到本地文件：%s失败！",
                     remoteDir, remoteFilename, localFile.getAbsolutePath());
             throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseConnector(sftpConnector, failure);
+        }
+    }
+
+    @Override
+    public void get(File localFile, String remoteDir, String remoteFilename, int segmentCount) throws Exception {
+        String remoteFilePathUri = remoteDir + "/" + remoteFilename;
+        long remoteFileSize;
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        try {
+            remoteFileSize = sftpConnector.getChannelSftp().lstat(remoteFilePathUri).getSize();
+        } catch (SftpException e) {
+            failure = e;
+            String errorMsg = String.format("获取远程文件：%s大小失败！", remoteFilePathUri);
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseConnector(sftpConnector, failure);
+        }
+
+        List<long[]> segments = SegmentUtil.split(remoteFileSize, segmentCount, SegmentUtil.MIN_SEGMENT_SIZE);
+        if (segments.size() <= 1) {
+            this.get(localFile, remoteDir, remoteFilename);
+            return;
+        }
+        log.info("分{}段并行下载远程文件：{}，文件大小：{}", segments.size(), remoteFilePathUri, remoteFileSize);
+        try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SegmentUtil.runSegments(segments, "sftp-segment-get",
+                    (start, length) -> getSegment(fileChannel, remoteFilePathUri, start, length));
+        } catch (Exception e) {
+            String errorMsg = String.format("分段下载远程文件：%s到本地文件：%s失败！",
+                    remoteFilePathUri, localFile.getAbsolutePath());
+            throw new FTPClientUtilException(errorMsg, e);
+        }
+    }
+
+    /**
+     * 从skip偏移量开始下载远程文件的一个分段
+     *
+     * @param fileChannel       本地文件通道
+     * @param remoteFilePathUri 远程文件全路径
+     * @param start             分段起始偏移量
+     * @param length            分段长度
+     * @throws Exception
+     */
+    private void getSegment(FileChannel fileChannel,
+                            String remoteFilePathUri,
+                            long start,
+                            long length) throws Exception {
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        InputStream remoteInputStream = null;
+        byte[] buffer = transferBufferPool.acquire();
+        try {
+            remoteInputStream = sftpConnector.getChannelSftp().get(remoteFilePathUri, null, start);
+            SegmentUtil.copyToChannel(remoteInputStream, fileChannel, start, length, buffer);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            transferBufferPool.release(buffer);
+            if (remoteInputStream != null) {
+                try {
+                    remoteInputStream.close();
+                } catch (IOException e) {
+                    failure = e;
+                    log.warn("close segment stream IOException", e);
+                }
+            }
+            releaseConnector(sftpConnector, failure);
+        }
+    }
+
+    @Override
+    public void getResumable(File localFile, String remoteDir, String remoteFilename) throws Exception {
+        String remoteFilePathUri = remoteDir + "/" + remoteFilename;
+        TransferJournal journal = null;
+        JournalCheckpoint checkpoint = null;
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        try {
+            SftpATTRS sftpATTRS = channelSftp.lstat(remoteFilePathUri);
+            journal = loadGetJournal(localFile, remoteFilePathUri,
+                    sftpATTRS.getSize(), String.valueOf(sftpATTRS.getMTime()));
+            checkpoint = new JournalCheckpoint(journal, transferJournalStore, properties.getJournalCheckpointBytes());
+            checkpoint.save();
+
+            long offset = journal.getConfirmedBytes();
+            try (FileChannel fileChannel = FileChannel.open(localFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                fileChannel.truncate(offset);
+                OutputStream localOutputStream = checkpoint.wrap(Channels.newOutputStream(fileChannel.position(offset)));
+                channelSftp.get(remoteFilePathUri, localOutputStream, null, ChannelSftp.RESUME, offset);
+                localOutputStream.flush();
+            }
+            transferJournalStore.delete(journal);
+        } catch (Exception e) {
+            failure = e;
+            if (checkpoint != null) {
+                checkpoint.saveOnFailure(e);
+            }
+            String errorMsg = String.format("断点续传远程文件：%s到本地文件：%s失败，已传输%d字节！",
+                    remoteFilePathUri, localFile.getAbsolutePath(),
+                    journal == null ? 0 : journal.getConfirmedBytes());
+            throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseConnector(sftpConnector, failure);
         }
+    }
 
+    /**
+     * 读取下载日志并确定续传起点：远程文件大小和修改时间与日志一致时，以本地文件大小为起点
+     *
+     * @param localFile
+     * @param remoteFilePathUri
+     * @param remoteFileSize
+     * @param remoteLastModified
+     * @return
+     */
+    private TransferJournal loadGetJournal(File localFile,
+                                           String remoteFilePathUri,
+                                           long remoteFileSize,
+                                           String remoteLastModified) {
+        String localPath = localFile.getAbsolutePath();
+        TransferJournal journal = transferJournalStore.load(TransferJournal.DIRECTION_GET, localPath, remoteFilePathUri);
+        long localFileSize = localFile.exists() ? localFile.length() : -1;
+        if (journal != null
+                && journal.getRemoteSize() == remoteFileSize
+                && StringUtils.equals(journal.getRemoteLastModified(), remoteLastModified)
+                && localFileSize >= 0 && localFileSize <= remoteFileSize) {
+            log.info("根据断点续传日志，从偏移量{}继续下载{}", localFileSize, remoteFilePathUri);
+            journal.setConfirmedBytes(localFileSize);
+            return journal;
+        }
+        journal = new TransferJournal();
+        journal.setDirection(TransferJournal.DIRECTION_GET);
+        journal.setLocalPath(localPath);
+        journal.setRemotePath(remoteFilePathUri);
+        journal.setRemoteSize(remoteFileSize);
+        journal.setRemoteLastModified(remoteLastModified);
+        journal.setConfirmedBytes(0);
+        return journal;
     }
 
     @Override
@@ -110,7 +584,7 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
         try {
             FileUtil.createLocalDir(localFileDir);
             File localFile = new File(localFileDir, remoteFilename);
-            this.get(new FileOutputStream(localFile.getAbsolutePath()), remoteDir, remoteFilename);
+            this.get(localFile, remoteDir, remoteFilename);
         } catch (Exception e) {
             String errorMsg = String.format("下载远程文件：%s/%s到本地目录：%s失败！",
                     remoteDir, remoteFilename, localFileDir);
@@ -130,26 +604,73 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
         int index = remoteFilePathUri.lastIndexOf("/");
         String remoteDir = "";
         String remoteFilename = "";
-        SFTPConnector sftpConnector = null;
         try {
-            sftpConnector = getConnector();
-            ChannelSftp channelSftp = sftpConnector.getChannelSftp();
             remoteDir = remoteFilePathUri.substring(0, index);
             remoteFilename = remoteFilePathUri.substring(index + 1);
             FileUtil.createLocalDir(localDir);
-            channelSftp.get(remoteFilePathUri, localDir + File.separator + remoteFilename);
+            this.get(new File(localDir, remoteFilename), remoteDir, remoteFilename);
         } catch (Exception e) {
             String errorMsg = String.format("下载远程文件：%s到本地目录：%s失败！", remoteFilePathUri, localDir);
             throw new FTPClientUtilException(errorMsg, e);
-        } finally {
-            returnConnector(sftpConnector);
         }
     }
 
+    @Override
+    public RemoteFileInputStream getInputStream(String remoteDir,
+                                                String remoteFilename) throws Exception {
+        String remoteFilePathUri = remoteDir + "/" + remoteFilename;
+        SFTPConnector sftpConnector = getConnector();
+        InputStream remoteInputStream;
+        try {
+            remoteInputStream = sftpConnector.getChannelSftp().get(remoteFilePathUri);
+        } catch (Exception e) {
+            releaseConnector(sftpConnector, e);
+            throw new FTPClientUtilException(String.format("获取远程文件：%s的输入流失败！", remoteFilePathUri), e);
+        }
+        // JSch的输入流关闭时已确认服务端的关闭应答，流上的读异常由调用方感知，连接状态在归还时重新检查
+        return new RemoteFileInputStream(remoteInputStream, () -> releaseConnector(sftpConnector, null));
+    }
+
+    @Override
+    public RemoteFileOutputStream getOutputStream(String remoteDir,
+                                                  String remoteFilename,
+                                                  String suffix) throws Exception {
+        String remoteFileAbsolutePathUri = remoteDir + "/" + remoteFilename;
+        String remoteTmpFilePathUri = remoteFileAbsolutePathUri + StringUtils.defaultString(suffix);
+        SFTPConnector sftpConnector = getConnector();
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        OutputStream remoteOutputStream;
+        try {
+            mkDirRecursive(channelSftp, remoteDir);
+            remoteOutputStream = getOutputStream(channelSftp, remoteTmpFilePathUri);
+        } catch (Exception e) {
+            releaseConnector(sftpConnector, e);
+            throw new FTPClientUtilException(String.format("获取远程文件：%s的输出流失败！", remoteTmpFilePathUri), e);
+        }
+        return new RemoteFileOutputStream(remoteOutputStream, success -> {
+            Throwable failure = null;
+            try {
+                if (!success) {
+                    // 放弃上传，清理服务端残留的临时文件
+                    channelSftp.rm(remoteTmpFilePathUri);
+                } else if (!remoteTmpFilePathUri.equals(remoteFileAbsolutePathUri)) {
+                    channelSftp.rename(remoteTmpFilePathUri, remoteFileAbsolutePathUri);
+                }
+                invalidateUploaded(remoteTmpFilePathUri, remoteFileAbsolutePathUri);
+            } catch (SftpException e) {
+                failure = e;
+                throw new IOException(String.format("完成远程文件：%s的上传失败！", remoteTmpFilePathUri), e);
+            } finally {
+                releaseConnector(sftpConnector, failure);
+            }
+        });
+    }
+
     @Override
     public void move(String remoteSrcDir,
                      String remoteDestDir,
                      String remoteFilename) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         try {
@@ -162,12 +683,16 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
             String srcPath = String.format("%s/%s", remoteSrcDir, remoteFilename);
             String desPath = String.format("%s/%s", remoteDestDir, remoteFilename);
             channelSftp.rename(srcPath, desPath);
+            metadataCache.invalidateTree(srcPath);
+            metadataCache.invalidate(desPath);
+            knownDirectories.removeTree(srcPath);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("无法将文件[%s]从远程目录：[%s] 移动到 [%s]!",
                     remoteFilename, remoteSrcDir, remoteDestDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
     }
 
@@ -177,7 +702,16 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
                      String remoteSrcFilename,
                      String suffix,
                      String remoteNewFilename) throws Exception {
+        Assert.notEmpty(new String[]{remoteSrcDir, remoteSrcFilename}, "源目录或源文件不允许为空！");
+        if (StringUtils.isBlank(remoteNewFilename)) {
+            remoteNewFilename = remoteSrcFilename;
+        }
+        suffix = StringUtils.defaultString(suffix);
         try {
+            if (properties.isSftpExecCopy() && !execCopyRefused
+                    && copyByExec(remoteSrcDir, remoteDestDir, remoteSrcFilename, suffix, remoteNewFilename)) {
+                return;
+            }
             copyByInputStreamAndOutputStream(remoteSrcDir,
                     remoteDestDir, remoteSrcFilename, suffix, remoteNewFilename);
         } catch (Exception e) {
@@ -190,28 +724,37 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
 
     @Override
     public boolean deleteFile(String remoteFileAbsolutePathUri) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         try {
             channelSftp.rm(remoteFileAbsolutePathUri);
+            metadataCache.invalidate(remoteFileAbsolutePathUri);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("删除远程文件：[%s] 失败！", remoteFileAbsolutePathUri);
             throw new FTPClientUtilException(errorMsg, e);
+        } finally {
+            releaseConnector(sftpConnector, failure);
         }
         return true;
     }
 
     @Override
     public boolean removeDirectory(String remoteDir) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         try {
             channelSftp.rmdir(remoteDir);
+            metadataCache.invalidateTree(remoteDir);
+            knownDirectories.removeTree(remoteDir);
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("删除远程目录：[%s] 失败", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
         return true;
     }
@@ -234,6 +777,7 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      * @throws Exception
      */
     private List<String> listRemoteDirFilenames(String remoteDir) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         List<String> allFilenames = new ArrayList<>();
@@ -252,12 +796,13 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
                 allFilenames.add(trimSeparator(remoteDir) + strName);
             }
         } catch (SftpException e) {
+            failure = e;
             String errorMsg = String
                     .format("获取path:[%s] 下文件列表时发生I/O异常,请确认与ftp服务器的连接正常,拥有目录ls权限, errorMessage:%s",
                             remoteDir, e.getMessage());
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
         return allFilenames;
     }
@@ -270,6 +815,7 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      * @throws Exception
      */
     private List<FTPFile> listRemoteDirFTPFiles(String remoteDir) throws Exception {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         // 校验远程目录是否存在,不检查则直接创建
@@ -312,10 +858,11 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
                 ftpFiles.add(ftpFile);
             }
         } catch (Exception e) {
+            failure = e;
             String errorMsg = String.format("Get directory：%s file list failed", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
         return ftpFiles;
     }
@@ -346,6 +893,24 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
         return listRemoteDirFileInfo(remoteDir, false);
     }
 
+    /**
+     * 以流的形式惰性列出远程目录的文件，通过ls(path, LsEntrySelector)逐条回调，不会构建Vector
+     *
+     * @param remoteDir 用户访问ftp路径
+     * @param recursive 是否扫描子文件夹
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public Stream<RemoteFileInfo> streamRemoteFileByDir(String remoteDir,
+                                                        boolean recursive) throws Exception {
+        SFTPListIterator iterator = new SFTPListIterator(getConnector(), trimSeparator(remoteDir), recursive);
+        iterator.start();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
     /**
      * 判断远程文件或路径是否存在
      *
@@ -355,64 +920,247 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      */
     @Override
     public boolean isRemotePathExist(String remotePath) throws SftpException {
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         try {
             return isRemotePathExist(remotePath, sftpATTRS -> true, channelSftp);
+        } catch (SftpException | RuntimeException e) {
+            failure = e;
+            throw e;
         } finally {
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
 
     }
 
     /**
-     * 通过获取两条管道，以本地内存作为中转，实现文件复制
+     * 在连接所在的SSH会话上打开exec通道执行cp，数据只在服务器本地复制，完成后通过SFTP重命名临时文件。
+     * JSch不支持发送SFTP扩展请求，服务器即使声明copy-data/copy-file扩展也无法使用，因此仅记录日志
      *
      * @param remoteSrcDir
      * @param remoteDestDir
      * @param remoteSrcFilename
      * @param suffix
      * @param remoteNewFilename
+     * @return 服务器不允许执行命令或cp失败时返回false，由调用方改用流式复制
      * @throws Exception
      */
-    private void copyByInputStreamAndOutputStream(String remoteSrcDir,
-                                                  String remoteDestDir,
-                                                  String remoteSrcFilename,
-                                                  String suffix,
-                                                  String remoteNewFilename) throws Exception {
-        SFTPConnector inputSftpConnector = getConnector();
-        SFTPConnector outputSftpConnector = getConnector();
-        ChannelSftp inputChannelSftp = inputSftpConnector.getChannelSftp();
-        ChannelSftp outputChannelSftp = outputSftpConnector.getChannelSftp();
-        InputStream remoteSrcFileInputStream = null;
+    private boolean copyByExec(String remoteSrcDir,
+                               String remoteDestDir,
+                               String remoteSrcFilename,
+                               String suffix,
+                               String remoteNewFilename) throws Exception {
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         try {
-            // 校验路径是否存在，不存在则创建目的路径
-            mkDirRecursive(inputChannelSftp, remoteDestDir);
-
-            // 验证需要copy的源文件是否存在
-            Assert.isTrue(checkRemoteFileExist(remoteSrcDir, remoteSrcFilename, inputChannelSftp),
+            if (!copyExtensionLogged) {
+                copyExtensionLogged = true;
+                log.info("SFTP服务器copy-data扩展：{}，copy-file扩展：{}（当前JSch版本不支持扩展请求）",
+                        channelSftp.getExtension("copy-data"), channelSftp.getExtension("copy-file"));
+            }
+            mkDirRecursive(channelSftp, remoteDestDir);
+            Assert.isTrue(checkRemoteFileExist(remoteSrcDir, remoteSrcFilename, channelSftp),
                     String.format("远程文件%s/%s不存在", remoteSrcDir, remoteSrcFilename));
             String remoteSrcFilePathUri = remoteSrcDir + "/" + remoteSrcFilename;
-            remoteSrcFileInputStream = inputChannelSftp.get(remoteSrcFilePathUri);
             String remoteTmpFilePathUri = remoteDestDir + "/" + remoteNewFilename + suffix;
-            // 生成空文件并获取远程目的文件流
-            OutputStream remoteTmpFileOutputStream = getOutputStream(outputChannelSftp, remoteTmpFilePathUri);
-            // 写入将读取到的远程文件流写入到远程目的文件流
-            write(remoteSrcFileInputStream, remoteTmpFileOutputStream);
+            String command = String.format("cp -- %s %s",
+                    quoteShellArgument(remoteSrcFilePathUri), quoteShellArgument(remoteTmpFilePathUri));
+            long startTime = System.currentTimeMillis();
+            int exitStatus;
+            BoundedOutputStream errorOutput = new BoundedOutputStream(EXEC_ERROR_OUTPUT_LIMIT);
+            try {
+                exitStatus = exec(sftpConnector.getSession(), command, errorOutput);
+            } catch (JSchException e) {
+                log.info("SFTP服务器无法执行复制命令，改用流式复制：{}", e.getMessage());
+                // 通道数达到MaxSessions只是暂时的，其余情况说明服务器禁止执行命令
+                if (!String.valueOf(e.getMessage()).contains("channel is not opened")) {
+                    execCopyRefused = true;
+                }
+                return false;
+            } catch (IOException e) {
+                // 超时或被中断，断开通道后cp可能仍在写入，删除临时文件，cp持有的文件句柄随进程结束释放
+                removeQuietly(channelSftp, remoteTmpFilePathUri);
+                throw e;
+            }
+            if (exitStatus != 0) {
+                log.info("服务端复制命令[{}]失败，改用流式复制，exitStatus:{}，stderr:{}",
+                        command, exitStatus, errorOutput.toString("UTF-8").trim());
+                if (isExecRefused(exitStatus)) {
+                    execCopyRefused = true;
+                }
+                return false;
+            }
+            metadataCache.invalidate(remoteTmpFilePathUri);
+            if (!isRemotePathExist(remoteTmpFilePathUri, sftpATTRS -> true, channelSftp)) {
+                // ForceCommand internal-sftp等配置下命令被替换为sftp服务，正常退出但并未复制
+                log.info("服务端复制命令[{}]未生成目标文件，改用流式复制", command);
+                execCopyRefused = true;
+                return false;
+            }
             String remoteDestFilePathUri = remoteDestDir + "/" + remoteNewFilename;
-            outputChannelSftp.rename(remoteTmpFilePathUri, remoteDestFilePathUri);
+            channelSftp.rename(remoteTmpFilePathUri, remoteDestFilePathUri);
+            invalidateUploaded(remoteTmpFilePathUri, remoteDestFilePathUri);
+            log.info("服务端复制远程文件：{}到{}，耗时{}ms", remoteSrcFilePathUri, remoteDestFilePathUri,
+                    System.currentTimeMillis() - startTime);
+            return true;
         } catch (Exception e) {
+            failure = e;
             throw e;
         } finally {
-            if (remoteSrcFileInputStream != null) {
+            releaseConnector(sftpConnector, failure);
+        }
+    }
+
+    /**
+     * cp失败的退出码中，126、127表示命令不可执行，-1表示服务器未返回退出码（通常为禁止执行命令），
+     * 这些情况之后不再尝试服务端复制；其余退出码（如源文件无权限）只对本次复制改用流式复制
+     *
+     * @param exitStatus
+     * @return
+     */
+    static boolean isExecRefused(int exitStatus) {
+        return exitStatus == 126 || exitStatus == 127 || exitStatus == -1;
+    }
+
+    private void removeQuietly(ChannelSftp channelSftp, String remoteFilePathUri) {
+        try {
+            channelSftp.rm(remoteFilePathUri);
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                log.warn("删除临时文件{}失败：{}", remoteFilePathUri, e.getMessage());
+            }
+        } finally {
+            metadataCache.invalidate(remoteFilePathUri);
+        }
+    }
+
+    /**
+     * 执行命令并等待结束，超过sftpExecCopyTimeout仍未结束时向命令发送KILL信号（服务器不一定支持），断开通道并抛出异常
+     *
+     * @param session
+     * @param command
+     * @param errorOutput 命令的标准错误输出
+     * @return 退出码，服务器未返回时为-1
+     * @throws JSchException 打开通道失败
+     * @throws IOException
+     */
+    private int exec(Session session, String command, OutputStream errorOutput) throws JSchException, IOException {
+        ChannelExec channelExec = (ChannelExec) session.openChannel("exec");
+        try {
+            channelExec.setCommand(command);
+            // 标准输入为空流，命令读取输入时立即得到EOF
+            channelExec.setInputStream(new ByteArrayInputStream(new byte[0]));
+            channelExec.setErrStream(errorOutput);
+            InputStream commandOutput = channelExec.getInputStream();
+            channelExec.connect(properties.getConnectTimeout());
+            long timeout = properties.getSftpExecCopyTimeout();
+            long deadline = System.currentTimeMillis() + timeout;
+            // 命令的标准输出读到末尾即表示通道已关闭
+            byte[] buffer = new byte[1024];
+            while (!channelExec.isClosed()) {
+                if (commandOutput.available() > 0) {
+                    commandOutput.read(buffer);
+                    continue;
+                }
+                if (timeout > 0 && System.currentTimeMillis() > deadline) {
+                    try {
+                        channelExec.sendSignal("KILL");
+                    } catch (Exception e) {
+                        log.debug("发送KILL信号失败：{}", e.getMessage());
+                    }
+                    throw new IOException(String.format("服务端命令[%s]执行超时", command));
+                }
                 try {
-                    remoteSrcFileInputStream.close();
-                } catch (IOException e) {
-                    log.warn("close file IOException", e);
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(String.format("等待服务端命令[%s]结束时被中断", command));
+                }
+            }
+            return channelExec.getExitStatus();
+        } finally {
+            channelExec.disconnect();
+        }
+    }
+
+    /**
+     * 用单引号包裹shell参数，参数中的单引号替换为'\''
+     *
+     * @param argument
+     * @return
+     */
+    static String quoteShellArgument(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * 通过获取两条管道，以本地内存作为中转，实现文件复制。
+     * 同时进行的复制数受multiConnectionPermits限制，保证复制占用的连接数不超过maxTotal
+     *
+     * @param remoteSrcDir
+     * @param remoteDestDir
+     * @param remoteSrcFilename
+     * @param suffix
+     * @param remoteNewFilename
+     * @throws Exception
+     */
+    private void copyByInputStreamAndOutputStream(String remoteSrcDir,
+                                                  String remoteDestDir,
+                                                  String remoteSrcFilename,
+                                                  String suffix,
+                                                  String remoteNewFilename) throws Exception {
+        multiConnectionPermits.acquire();
+        try {
+            SFTPConnector inputSftpConnector = getConnector();
+            SFTPConnector outputSftpConnector = null;
+            InputStream remoteSrcFileInputStream = null;
+            Throwable failure = null;
+            try {
+                // 第二个连接在try中借用，借用失败时第一个连接同样会被归还
+                outputSftpConnector = getConnector();
+                ChannelSftp inputChannelSftp = inputSftpConnector.getChannelSftp();
+                ChannelSftp outputChannelSftp = outputSftpConnector.getChannelSftp();
+                // 校验路径是否存在，不存在则创建目的路径
+                mkDirRecursive(inputChannelSftp, remoteDestDir);
+
+                // 验证需要copy的源文件是否存在
+                Assert.isTrue(checkRemoteFileExist(remoteSrcDir, remoteSrcFilename, inputChannelSftp),
+                        String.format("远程文件%s/%s不存在", remoteSrcDir, remoteSrcFilename));
+                String remoteSrcFilePathUri = remoteSrcDir + "/" + remoteSrcFilename;
+                remoteSrcFileInputStream = inputChannelSftp.get(remoteSrcFilePathUri);
+                String remoteTmpFilePathUri = remoteDestDir + "/" + remoteNewFilename + suffix;
+                // 生成空文件并获取远程目的文件流
+                OutputStream remoteTmpFileOutputStream = getOutputStream(outputChannelSftp, remoteTmpFilePathUri);
+                // 写入将读取到的远程文件流写入到远程目的文件流，下载和上传分别在两个线程中进行
+                try {
+                    CopyStatistics statistics = pipelinedCopier.copy(remoteSrcFileInputStream, remoteTmpFileOutputStream);
+                    log.info("复制远程文件：{}到{}，{}", remoteSrcFilePathUri, remoteTmpFilePathUri, statistics);
+                } finally {
+                    remoteTmpFileOutputStream.close();
+                }
+                String remoteDestFilePathUri = remoteDestDir + "/" + remoteNewFilename;
+                outputChannelSftp.rename(remoteTmpFilePathUri, remoteDestFilePathUri);
+                invalidateUploaded(remoteTmpFilePathUri, remoteDestFilePathUri);
+            } catch (Exception e) {
+                failure = e;
+                throw e;
+            } finally {
+                if (remoteSrcFileInputStream != null) {
+                    try {
+                        remoteSrcFileInputStream.close();
+                    } catch (IOException e) {
+                        log.warn("close file IOException", e);
+                    }
+                }
+                releaseConnector(inputSftpConnector, failure);
+                if (outputSftpConnector != null) {
+                    releaseConnector(outputSftpConnector, failure);
                 }
             }
-            returnConnector(inputSftpConnector);
-            returnConnector(outputSftpConnector);
+        } finally {
+            multiConnectionPermits.release();
         }
     }
 
@@ -428,6 +1176,7 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
             try {
                 // warn 检查mkdir -p
                 channelSftp.mkdir(directoryPath);
+                metadataCache.invalidate(directoryPath);
             } catch (SftpException e) {
                 String errorMsg = String
                         .format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常,拥有目录创建权限, errorMessage:%s",
@@ -461,9 +1210,9 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      * @return
      * @throws SftpException
      */
-    private static boolean checkRemoteFileExist(String remoteDir,
-                                                String remoteFilename,
-                                                ChannelSftp channelSftp) throws SftpException {
+    private boolean checkRemoteFileExist(String remoteDir,
+                                         String remoteFilename,
+                                         ChannelSftp channelSftp) throws SftpException {
         String remoteFilePath = trimSeparator(remoteDir) + remoteFilename;
         return isRemotePathExist(remoteFilePath,
                 sftpATTRS -> !sftpATTRS.isLink() && !sftpATTRS.isDir(), channelSftp);
@@ -476,8 +1225,8 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      * @param channelSftp
      * @return
      */
-    private static boolean checkRemoteDirExist(ChannelSftp channelSftp,
-                                               String remoteDir) throws SftpException {
+    private boolean checkRemoteDirExist(ChannelSftp channelSftp,
+                                        String remoteDir) throws SftpException {
         return isRemotePathExist(remoteDir, sftpATTRS -> sftpATTRS.isDir(), channelSftp);
     }
 
@@ -488,7 +1237,9 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      * @param inputStream
      * @param outputStream
      * @throws Exception
+     * @deprecated 每次调用都会分配缓冲区，内部已改用{@link TransferBufferPool#copy(InputStream, OutputStream)}
      */
+    @Deprecated
     public static void write(InputStream inputStream,
                              OutputStream outputStream) throws Exception {
         BufferedInputStream bufferedInputStream = null;
@@ -543,6 +1294,17 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
         }
     }
 
+    /**
+     * 上传并重命名后使临时文件和目标文件的缓存失效
+     *
+     * @param remoteTmpFilePathUri
+     * @param remoteFilePathUri
+     */
+    private void invalidateUploaded(String remoteTmpFilePathUri, String remoteFilePathUri) {
+        metadataCache.invalidate(remoteTmpFilePathUri);
+        metadataCache.invalidate(remoteFilePathUri);
+    }
+
     /**
      * 保证ftp路径右端有且仅有一个/
      *
@@ -565,6 +1327,11 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      */
     protected List<RemoteFileInfo> listRemoteDirFileInfo(String remoteDir,
                                                          boolean recursive) throws Exception {
+        int maxFanOut = getListMaxFanOut();
+        if (recursive && maxFanOut > 1) {
+            return ParallelDirectoryWalker.walk(trimSeparator(remoteDir), maxFanOut, "sftp-list", this::listSingleDir);
+        }
+        Throwable failure = null;
         SFTPConnector sftpConnector = getConnector();
         ChannelSftp channelSftp = sftpConnector.getChannelSftp();
         // 需要递归目录
@@ -572,14 +1339,62 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
         try {
             listRemoteDirFileInfoSup(channelSftp, remoteFileInfoList, trimSeparator(remoteDir), recursive);
         } catch (IOException e) {
+            failure = e;
             String errorMsg = String.format("sftp client list remoteDir: %s files exception!", remoteDir);
             throw new FTPClientUtilException(errorMsg, e);
         } finally {
-            returnConnector(sftpConnector);
+            releaseConnector(sftpConnector, failure);
         }
         return remoteFileInfoList;
     }
 
+    /**
+     * 递归列目录时的并行度，不超过连接池的maxTotal
+     *
+     * @return
+     */
+    protected int getListMaxFanOut() {
+        int maxTotal = properties.getMaxTotal();
+        return maxTotal > 0 ? Math.min(properties.getListMaxFanOut(), maxTotal) : properties.getListMaxFanOut();
+    }
+
+    /**
+     * 借用一个连接列出单个目录，供并行遍历使用，目录和链接按子目录处理，与顺序遍历一致
+     *
+     * @param remoteDir 以"/"结尾的远程目录
+     * @param files     当前目录下的文件
+     * @return 子目录
+     * @throws SftpException
+     */
+    private List<String> listSingleDir(String remoteDir, List<RemoteFileInfo> files) throws SftpException {
+        List<String> subDirs = new ArrayList<>();
+        Throwable failure = null;
+        SFTPConnector sftpConnector = getConnector();
+        try {
+            Vector<?> vector = sftpConnector.getChannelSftp().ls(remoteDir);
+            for (Object entry : vector) {
+                LsEntry lsEntry = (LsEntry) entry;
+                if (lsEntry.getFilename().equals(".") || lsEntry.getFilename().equals("..")) {
+                    continue;
+                }
+                if (lsEntry.getAttrs().isDir() || lsEntry.getAttrs().isLink()) {
+                    if (lsEntry.getAttrs().isDir()) {
+                        knownDirectories.add(remoteDir + lsEntry.getFilename());
+                    }
+                    subDirs.add(remoteDir + lsEntry.getFilename() + "/");
+                } else {
+                    files.add(toRemoteFileInfo(lsEntry, remoteDir));
+                }
+            }
+        } catch (SftpException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            releaseConnector(sftpConnector, failure);
+        }
+        return subDirs;
+    }
+
     /**
      * 递归地列出远程文件信息
      *
@@ -607,6 +1422,9 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
             }
             //文件夹
             if (lsEntry.getAttrs().isDir() || lsEntry.getAttrs().isLink()) {
+                if (lsEntry.getAttrs().isDir()) {
+                    knownDirectories.add(remoteDir + lsEntry.getFilename());
+                }
                 if (recursive) {
                     listRemoteDirFileInfoSup(channelSftp,
                             remoteFileInfoList, remoteDir + lsEntry.getFilename() + "/", true);
@@ -651,13 +1469,19 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
      * @return
      * @throws SftpException
      */
-    private static boolean isRemotePathExist(String remotePath, Predicate<SftpATTRS> filter, ChannelSftp channelSftp) throws SftpException {
+    private boolean isRemotePathExist(String remotePath, Predicate<SftpATTRS> filter, ChannelSftp channelSftp) throws SftpException {
+        RemoteMetadataCache.Entry<SftpATTRS> entry = metadataCache.get(remotePath);
+        if (entry != null) {
+            return entry.isExist() && filter.test(entry.getAttributes());
+        }
         try {
             SftpATTRS sftpATTRS = channelSftp.lstat(remotePath);
+            metadataCache.put(remotePath, true, sftpATTRS);
             return filter.test(sftpATTRS);
         } catch (SftpException e) {
             //id为2代表文件不存在
             if (e.id == 2) {
+                metadataCache.put(remotePath, false, null);
                 return false;
             }
             throw new FTPClientUtilException(String.format("判断远程目录：%s是否存在时发生异常！", remotePath), e);
@@ -665,88 +1489,281 @@ public abstract class GenericSFTPClientUtilImpl implements FTPClientUtil, SFTPCo
     }
 
     /**
-     * 支持mkdir -p的创建目录方式
+     * 支持mkdir -p的创建目录方式：已知目录直接返回，否则从最深一级向上探测，
+     * 找到最深的已存在目录后只创建其下缺失的各级目录
      *
      * @param channelSftp
      * @param directoryPath
      */
-    private static void mkDirRecursive(ChannelSftp channelSftp, String directoryPath) {
-        boolean isDirExist = false;
+    private void mkDirRecursive(ChannelSftp channelSftp, String directoryPath) {
+        String[] dirSplit = StringUtils.split(directoryPath, IOUtils.DIR_SEPARATOR_UNIX);
+        String absoluteDirPath = joinPath(dirSplit, dirSplit.length);
+        if (knownDirectories.contains(absoluteDirPath)) {
+            return;
+        }
         try {
-            SftpATTRS sftpATTRS = channelSftp.lstat(directoryPath);
-            isDirExist = sftpATTRS.isDir();
-        } catch (SftpException e) {
-            if (e.getMessage().toLowerCase().equals("no such file")) {
-                log.info(String.format(
-                        "您的配置项path:[%s]不存在，将尝试进行目录创建, errorMessage:%s",
-                        directoryPath, e.getMessage()));
-                isDirExist = false;
+            int existingDepth = dirSplit.length;
+            while (existingDepth > 0 && !probeDirectory(channelSftp, joinPath(dirSplit, existingDepth))) {
+                existingDepth--;
             }
-        }
-        if (!isDirExist) {
-            StringBuilder dirPath = new StringBuilder();
-            dirPath.append(IOUtils.DIR_SEPARATOR_UNIX);
-            String[] dirSplit = StringUtils.split(directoryPath, IOUtils.DIR_SEPARATOR_UNIX);
-            try {
-                // ftp server不支持递归创建目录,只能一级一级创建
-                for (String dirName : dirSplit) {
-                    dirPath.append(dirName);
-                    mkDirSingleHierarchy(channelSftp, dirPath.toString());
-                    dirPath.append(IOUtils.DIR_SEPARATOR_UNIX);
+            // ftp server不支持递归创建目录,只能一级一级创建
+            for (int depth = existingDepth + 1; depth <= dirSplit.length; depth++) {
+                String dirPath = joinPath(dirSplit, depth);
+                log.info(String.format("正在逐级创建目录 [%s]", dirPath));
+                try {
+                    channelSftp.mkdir(dirPath);
+                    metadataCache.invalidate(dirPath);
+                } catch (SftpException e) {
+                    // 并发上传时目录可能已被其他线程创建
+                    metadataCache.invalidate(dirPath);
+                    if (!checkRemoteDirExist(channelSftp, dirPath)) {
+                        throw e;
+                    }
                 }
-            } catch (SftpException e) {
-                String errorMsg = String
-                        .format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常,拥有目录创建权限, errorMessage:%s",
-                                directoryPath, e.getMessage());
-                throw new FTPClientUtilException(errorMsg, e);
             }
+            knownDirectories.add(absoluteDirPath);
+        } catch (SftpException e) {
+            String errorMsg = String
+                    .format("创建目录:%s时发生I/O异常,请确认与ftp服务器的连接正常,拥有目录创建权限, errorMessage:%s",
+                            directoryPath, e.getMessage());
+            throw new FTPClientUtilException(errorMsg, e);
         }
     }
 
     /**
-     * 创建单层目录
+     * 判断目录是否存在，依次查询已知目录集合、元数据缓存和服务器
      *
-     * @param directoryPath
+     * @param channelSftp
+     * @param remoteDir
      * @return
      * @throws SftpException
      */
-    private static boolean mkDirSingleHierarchy(ChannelSftp channelSftp, String directoryPath) throws SftpException {
-        boolean isDirExist = false;
-        SftpATTRS sftpATTRS = null;
-        try {
-            sftpATTRS = channelSftp.lstat(directoryPath);
-        } catch (SftpException e) {
-            log.info(String.format("正在逐级创建目录 [%s]", directoryPath));
-            channelSftp.mkdir(directoryPath);
+    private boolean probeDirectory(ChannelSftp channelSftp, String remoteDir) throws SftpException {
+        if (knownDirectories.contains(remoteDir)) {
             return true;
         }
-        isDirExist = sftpATTRS.isDir();
-        if (!isDirExist) {
-            log.info(String.format("正在逐级创建目录 [%s]", directoryPath));
-            channelSftp.mkdir(directoryPath);
+        boolean exist = checkRemoteDirExist(channelSftp, remoteDir);
+        if (exist) {
+            knownDirectories.add(remoteDir);
         }
-        return true;
+        return exist;
+    }
+
+    /**
+     * 拼接前depth级目录为绝对路径
+     *
+     * @param dirSplit
+     * @param depth
+     * @return
+     */
+    private static String joinPath(String[] dirSplit, int depth) {
+        return IOUtils.DIR_SEPARATOR_UNIX + StringUtils.join(dirSplit, IOUtils.DIR_SEPARATOR_UNIX, 0, depth);
     }
 
     /**
      * 创建单层目录
      *
      * @param directoryPath
-     * @return
+     * @return 是否创建成功，失败原因见日志
      * @throws SftpException
      */
     public boolean mkDir(String directoryPath) throws SftpException {
 
-        boolean isDirExist = false;
+        boolean created = false;
+        Throwable failure = null;
         SFTPConnector sftpConnector = null;
         try {
             sftpConnector = getConnector();
             ChannelSftp channelSftp = sftpConnector.getChannelSftp();
             channelSftp.mkdir(directoryPath);
+            metadataCache.invalidate(directoryPath);
+            created = true;
 //            mkDirRecursive(channelSftp, directoryPath);
         } catch (Exception e) {
+            failure = e;
             log.error(String.format("创建目录 [%s]发生异常", directoryPath), e);
+        } finally {
+            if (sftpConnector != null) {
+                releaseConnector(sftpConnector, failure);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 惰性遍历远程目录：ls的回调在独立线程中执行，逐条放入有界队列，队列满时回调阻塞，
+     * 从而按消费速度读取目录；消费方关闭后回调返回BREAK终止ls，由列目录线程归还连接。
+     * 消费方超过streamListIdleTimeout未读取时同样终止ls，避免未关闭的Stream一直占用连接
+     */
+    private class SFTPListIterator implements Iterator<RemoteFileInfo>, Runnable {
+
+        /**
+         * 队列中最多缓存的条目数
+         */
+        private static final int QUEUE_CAPACITY = 1024;
+
+        private final Object endOfList = new Object();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        private final SFTPConnector sftpConnector;
+
+        private final String remoteDir;
+
+        private final boolean recursive;
+
+        private volatile boolean closed;
+        /**
+         * 消费方长时间未读取，列目录线程已放弃
+         */
+        private volatile boolean abandoned;
+
+        private boolean finished;
+
+        private RemoteFileInfo next;
+
+        SFTPListIterator(SFTPConnector sftpConnector, String remoteDir, boolean recursive) {
+            this.sftpConnector = sftpConnector;
+            this.remoteDir = remoteDir;
+            this.recursive = recursive;
+        }
+
+        void start() {
+            Thread thread = new Thread(this, "sftp-list-" + remoteDir);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            Throwable failure = null;
+            try {
+                ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+                Deque<String> pendingDirs = new ArrayDeque<>();
+                pendingDirs.push(remoteDir);
+                while (!closed && !pendingDirs.isEmpty()) {
+                    String currentDir = pendingDirs.pop();
+                    channelSftp.ls(currentDir, lsEntry -> {
+                        String filename = lsEntry.getFilename();
+                        if (filename.equals(".") || filename.equals("..")) {
+                            return closed ? ChannelSftp.LsEntrySelector.BREAK : ChannelSftp.LsEntrySelector.CONTINUE;
+                        }
+                        if (lsEntry.getAttrs().isDir() || lsEntry.getAttrs().isLink()) {
+                            if (recursive) {
+                                pendingDirs.push(currentDir + filename + "/");
+                            }
+                        } else {
+                            enqueue(toRemoteFileInfo(lsEntry, currentDir));
+                        }
+                        return closed ? ChannelSftp.LsEntrySelector.BREAK : ChannelSftp.LsEntrySelector.CONTINUE;
+                    });
+                }
+                enqueue(endOfList);
+            } catch (Exception e) {
+                failure = e;
+                enqueue(e);
+            } finally {
+                releaseConnector(sftpConnector, failure);
+            }
+        }
+
+        /**
+         * 放入队列，队列满时等待消费，消费方关闭或超过streamListIdleTimeout未读取后放弃
+         *
+         * @param item
+         */
+        private void enqueue(Object item) {
+            long idleTimeout = properties.getStreamListIdleTimeout();
+            long deadline = System.currentTimeMillis() + idleTimeout;
+            try {
+                while (!closed) {
+                    if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    if (idleTimeout > 0 && System.currentTimeMillis() >= deadline) {
+                        log.warn("列出远程目录：{}时超过{}ms未被读取，可能未关闭Stream，停止列目录并归还连接",
+                                remoteDir, idleTimeout);
+                        abandoned = true;
+                        closed = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (finished || (closed && !abandoned)) {
+                return false;
+            }
+            Object item;
+            try {
+                item = abandoned ? queue.poll() : queue.take();
+                if (item == null) {
+                    finished = true;
+                    throw new FTPClientUtilException(String.format("列出远程目录：%s下的文件时超过%dms未读取，已停止列目录",
+                            remoteDir, properties.getStreamListIdleTimeout()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new FTPClientUtilException(String.format("列出远程目录：%s下的文件时被中断", remoteDir), e);
+            }
+            if (item == endOfList) {
+                finished = true;
+                return false;
+            }
+            if (item instanceof Exception) {
+                finished = true;
+                throw new FTPClientUtilException(String.format("sftp client list remoteDir: %s files exception!", remoteDir),
+                        (Exception) item);
+            }
+            next = (RemoteFileInfo) item;
+            return true;
+        }
+
+        @Override
+        public RemoteFileInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RemoteFileInfo remoteFileInfo = next;
+            next = null;
+            return remoteFileInfo;
+        }
+
+        void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * 只保留前limit个字节，超出部分丢弃，避免命令输出大量错误信息时占用过多内存
+     */
+    static class BoundedOutputStream extends ByteArrayOutputStream {
+
+        private final int limit;
+
+        BoundedOutputStream(int limit) {
+            super(Math.min(limit, 256));
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (count < limit) {
+                super.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            super.write(b, off, Math.max(0, Math.min(len, limit - count)));
         }
-        return true;
     }
 }
@@ -2,20 +2,33 @@ package szu.jason.ftp.spring.impl;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.apache.commons.pool2.ObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPool;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
 import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.pool.MultiHostFTPClientPool;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 
 /**
  * @author : Vander
  * @date :   2020/9/3
- * @description : 实现池化的FTP客户端，每次操作完将连接放回
+ * @description : 实现池化的FTP客户端，每次操作完将连接放回，操作失败且连接已损坏时销毁连接
  */
 @Slf4j
 public class PooledFTPClientUtilImpl extends GenericFTPClientUtilImpl {
 
-    private GenericObjectPool<FTPClient> pool;
+    private ObjectPool<FTPClient> pool;
+
+    public PooledFTPClientUtilImpl(ObjectPool<FTPClient> pool) {
+        this(pool, new FTPClientUtilProperties());
+    }
 
-    public PooledFTPClientUtilImpl(GenericObjectPool<FTPClient> pool) {
+    public PooledFTPClientUtilImpl(ObjectPool<FTPClient> pool, FTPClientUtilProperties properties) {
+        super(properties);
         this.pool = pool;
     }
 
@@ -30,6 +43,28 @@ public class PooledFTPClientUtilImpl extends GenericFTPClientUtilImpl {
         return ftpClient;
     }
 
+    @Override
+    protected int currentMaxTotal() {
+        return maxTotalOf(pool, properties.getMaxTotal());
+    }
+
+    /**
+     * 读取连接池的实时上限，多节点连接池为各节点上限之和，无法读取时使用配置值
+     *
+     * @param pool
+     * @param configuredMaxTotal
+     * @return
+     */
+    static int maxTotalOf(ObjectPool<?> pool, int configuredMaxTotal) {
+        if (pool instanceof GenericObjectPool) {
+            return ((GenericObjectPool<?>) pool).getMaxTotal();
+        }
+        if (pool instanceof MultiHostFTPClientPool) {
+            return ((MultiHostFTPClientPool<?>) pool).getMaxTotal();
+        }
+        return configuredMaxTotal;
+    }
+
     @Override
     public void returnFtpClient(FTPClient fTPClient) {
         try {
@@ -38,4 +73,73 @@ public class PooledFTPClientUtilImpl extends GenericFTPClientUtilImpl {
             throw new FTPClientUtilException("归还连接到SFTP连接池异常！", e);
         }
     }
+
+    /**
+     * 操作失败且连接已损坏时从连接池中销毁，否则正常归还
+     *
+     * @param fTPClient
+     * @param failure
+     */
+    @Override
+    public void releaseFtpClient(FTPClient fTPClient, Throwable failure) {
+        if (fTPClient == null) {
+            return;
+        }
+        if (!isBroken(fTPClient, failure)) {
+            returnFtpClient(fTPClient);
+            return;
+        }
+        log.warn("FTP连接已损坏，从连接池中销毁：{}", failure == null ? "连接已断开" : failure.toString());
+        forgetWorkingDirectory(fTPClient);
+        try {
+            if (pool instanceof MultiHostFTPClientPool) {
+                ((MultiHostFTPClientPool<FTPClient>) pool).invalidateObject(fTPClient, isHostFailure(fTPClient, failure));
+            } else {
+                pool.invalidateObject(fTPClient);
+            }
+        } catch (Exception e) {
+            log.warn("销毁FTP连接异常", e);
+        }
+    }
+
+    /**
+     * 连接已断开或操作过程中出现IO异常（含服务器主动关闭、421、读写超时）视为损坏；
+     * 仅返回错误应答（如550文件不存在）的连接仍可复用
+     *
+     * @param ftpClient
+     * @param failure
+     * @return
+     */
+    static boolean isBroken(FTPClient ftpClient, Throwable failure) {
+        if (!ftpClient.isConnected()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 连接已断开或出现网络异常（连接被关闭、重置、读写超时）时归因于服务器节点，多节点连接池据此摘除节点；
+     * 本地文件、本地流的IO异常同样会销毁连接，但不计入节点的失败次数
+     *
+     * @param ftpClient
+     * @param failure
+     * @return
+     */
+    static boolean isHostFailure(FTPClient ftpClient, Throwable failure) {
+        if (!ftpClient.isConnected()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketException || cause instanceof SocketTimeoutException
+                    || cause instanceof FTPConnectionClosedException) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,21 +1,36 @@
 package szu.jason.ftp.spring.impl;
 
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.ObjectPool;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
 import szu.jason.ftp.spring.SFTPConnector;
 import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.pool.MultiHostFTPClientPool;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 
 /**
  * @author : Vander
  * @date :   2020/9/3
- * @description : 实现池化的SFTP客户端，每次操作完将连接放回
+ * @description : 实现池化的SFTP客户端，每次操作完将连接放回，操作失败且连接已损坏时销毁连接
  */
 @Slf4j
 public class PooledSFTPClientUtilImpl extends GenericSFTPClientUtilImpl {
 
-    private GenericObjectPool<SFTPConnector> pool;
+    private ObjectPool<SFTPConnector> pool;
+
+    public PooledSFTPClientUtilImpl(ObjectPool<SFTPConnector> pool) {
+        this(pool, new FTPClientUtilProperties());
+    }
 
-    public PooledSFTPClientUtilImpl(GenericObjectPool<SFTPConnector> pool) {
+    public PooledSFTPClientUtilImpl(ObjectPool<SFTPConnector> pool, FTPClientUtilProperties properties) {
+        super(properties);
         this.pool = pool;
     }
 
@@ -30,6 +45,11 @@ public class PooledSFTPClientUtilImpl extends GenericSFTPClientUtilImpl {
         return sftpConnector;
     }
 
+    @Override
+    protected int currentMaxTotal() {
+        return PooledFTPClientUtilImpl.maxTotalOf(pool, properties.getMaxTotal());
+    }
+
     @Override
     public void returnConnector(SFTPConnector sftpConnector) {
         try {
@@ -38,4 +58,91 @@ public class PooledSFTPClientUtilImpl extends GenericSFTPClientUtilImpl {
             throw new FTPClientUtilException("归还连接到SFTP连接池异常！", e);
         }
     }
+
+    /**
+     * 操作失败且连接已损坏时从连接池中销毁，否则正常归还
+     *
+     * @param sftpConnector
+     * @param failure
+     */
+    @Override
+    public void releaseConnector(SFTPConnector sftpConnector, Throwable failure) {
+        if (sftpConnector == null) {
+            return;
+        }
+        if (!isBroken(sftpConnector, failure)) {
+            returnConnector(sftpConnector);
+            return;
+        }
+        log.warn("SFTP连接已损坏，从连接池中销毁：{}", failure == null ? "连接已断开" : failure.toString());
+        try {
+            if (pool instanceof MultiHostFTPClientPool) {
+                ((MultiHostFTPClientPool<SFTPConnector>) pool).invalidateObject(sftpConnector,
+                        isHostFailure(sftpConnector, failure));
+            } else {
+                pool.invalidateObject(sftpConnector);
+            }
+        } catch (Exception e) {
+            log.warn("销毁SFTP连接异常", e);
+        }
+    }
+
+    /**
+     * 通道或会话已断开、出现IO或JSch异常、或服务端返回连接级错误（SSH_FX_NO_CONNECTION、SSH_FX_CONNECTION_LOST）视为损坏；
+     * 文件不存在、无权限等普通错误的连接仍可复用
+     *
+     * @param sftpConnector
+     * @param failure
+     * @return
+     */
+    static boolean isBroken(SFTPConnector sftpConnector, Throwable failure) {
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        Session session = sftpConnector.getSession();
+        if (channelSftp == null || !channelSftp.isConnected() || channelSftp.isClosed()
+                || session == null || !session.isConnected()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof JSchException) {
+                return true;
+            }
+            if (cause instanceof SftpException) {
+                int id = ((SftpException) cause).id;
+                if (id == ChannelSftp.SSH_FX_NO_CONNECTION || id == ChannelSftp.SSH_FX_CONNECTION_LOST) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 通道或会话已断开、出现JSch或网络异常、或服务端返回连接级错误时归因于服务器节点；
+     * 本地文件、本地流的IO异常不计入节点的失败次数
+     *
+     * @param sftpConnector
+     * @param failure
+     * @return
+     */
+    static boolean isHostFailure(SFTPConnector sftpConnector, Throwable failure) {
+        ChannelSftp channelSftp = sftpConnector.getChannelSftp();
+        Session session = sftpConnector.getSession();
+        if (channelSftp == null || !channelSftp.isConnected() || channelSftp.isClosed()
+                || session == null || !session.isConnected()) {
+            return true;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JSchException || cause instanceof SocketException
+                    || cause instanceof SocketTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SftpException) {
+                int id = ((SftpException) cause).id;
+                if (id == ChannelSftp.SSH_FX_NO_CONNECTION || id == ChannelSftp.SSH_FX_CONNECTION_LOST) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,135 @@
+package szu.jason.ftp.spring.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import szu.jason.ftp.spring.FTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.ReactiveFTPClientUtil;
+import szu.jason.ftp.spring.RemoteFileInputStream;
+import szu.jason.ftp.spring.RemoteFileOutputStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 基于{@link FTPClientUtil#getInputStream}和{@link FTPClientUtil#getOutputStream}的响应式实现，
+ * 阻塞的网络读写都在boundedElastic调度器上执行，不会占用调用方的事件循环线程
+ */
+@Slf4j
+public class ReactiveFTPClientUtilImpl implements ReactiveFTPClientUtil {
+
+    /**
+     * 上传时预取的数据块数量，决定了内存中最多缓存多少尚未写出的数据块
+     */
+    private static final int PUT_PREFETCH = 4;
+
+    private final FTPClientUtil ftpClientUtil;
+
+    private final int chunkSize;
+
+    private final Scheduler scheduler;
+
+    public ReactiveFTPClientUtilImpl(FTPClientUtil ftpClientUtil,
+                                     FTPClientUtilProperties properties) {
+        this(ftpClientUtil, properties, Schedulers.boundedElastic());
+    }
+
+    public ReactiveFTPClientUtilImpl(FTPClientUtil ftpClientUtil,
+                                     FTPClientUtilProperties properties,
+                                     Scheduler scheduler) {
+        this.ftpClientUtil = ftpClientUtil;
+        this.chunkSize = properties.getBufferSize();
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Flux<ByteBuffer> get(String remoteDir, String remoteFilename) {
+        return Flux.using(
+                () -> ftpClientUtil.getInputStream(remoteDir, remoteFilename),
+                this::readChunks,
+                ReactiveFTPClientUtilImpl::closeQuietly)
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * 每次下游请求时读取一个数据块，数据块会交给下游持有，因此每次都分配新的缓冲区
+     *
+     * @param remoteInputStream
+     * @return
+     */
+    private Flux<ByteBuffer> readChunks(RemoteFileInputStream remoteInputStream) {
+        return Flux.generate(sink -> {
+            byte[] chunk = new byte[chunkSize];
+            try {
+                int bytesRead = remoteInputStream.read(chunk);
+                if (bytesRead < 0) {
+                    sink.complete();
+                } else {
+                    sink.next(ByteBuffer.wrap(chunk, 0, bytesRead));
+                }
+            } catch (IOException e) {
+                sink.error(e);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> put(Publisher<ByteBuffer> content,
+                          String remoteDir,
+                          String remoteFilename,
+                          String suffix) {
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> ftpClientUtil.getOutputStream(remoteDir, remoteFilename, suffix))
+                        .subscribeOn(scheduler),
+                remoteOutputStream -> Flux.from(content)
+                        .publishOn(scheduler, PUT_PREFETCH)
+                        .doOnNext(chunk -> writeChunk(remoteOutputStream, chunk))
+                        .then(),
+                remoteOutputStream -> Mono.fromCallable(() -> {
+                    remoteOutputStream.close();
+                    return remoteOutputStream;
+                }).subscribeOn(scheduler),
+                (remoteOutputStream, e) -> abort(remoteOutputStream),
+                this::abort);
+    }
+
+    private static void writeChunk(RemoteFileOutputStream remoteOutputStream, ByteBuffer chunk) {
+        try {
+            if (chunk.hasArray()) {
+                remoteOutputStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+                chunk.position(chunk.limit());
+            } else {
+                byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                remoteOutputStream.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Mono<Void> abort(RemoteFileOutputStream remoteOutputStream) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                remoteOutputStream.abort();
+            } catch (IOException e) {
+                log.warn("abort remote output stream IOException", e);
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    private static void closeQuietly(RemoteFileInputStream remoteInputStream) {
+        try {
+            remoteInputStream.close();
+        } catch (IOException e) {
+            log.warn("close remote input stream IOException", e);
+        }
+    }
+}
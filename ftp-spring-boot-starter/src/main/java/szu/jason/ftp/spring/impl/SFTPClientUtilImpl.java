@@ -20,6 +20,7 @@ public class SFTPClientUtilImpl extends GenericSFTPClientUtilImpl {
     private SFTPClientPooledObjectFactory sftpClientPooledObjectFactory;
 
     public SFTPClientUtilImpl(FTPClientUtilProperties properties) {
+        super(properties);
         sftpClientPooledObjectFactory = new SFTPClientPooledObjectFactory(properties);
     }
 
@@ -0,0 +1,96 @@
+package szu.jason.ftp.spring.journal;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 统计传输字节数，每传输checkpointBytes字节将进度写入断点续传日志
+ */
+public class JournalCheckpoint {
+
+    private final TransferJournal journal;
+
+    private final TransferJournalStore store;
+
+    private final long checkpointBytes;
+
+    private long lastSavedBytes;
+
+    public JournalCheckpoint(TransferJournal journal, TransferJournalStore store, long checkpointBytes) {
+        this.journal = journal;
+        this.store = store;
+        this.checkpointBytes = checkpointBytes;
+        this.lastSavedBytes = journal.getConfirmedBytes();
+    }
+
+    /**
+     * 记录新传输的字节数
+     *
+     * @param bytes
+     */
+    public void advance(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        journal.setConfirmedBytes(journal.getConfirmedBytes() + bytes);
+        if (journal.getConfirmedBytes() - lastSavedBytes >= checkpointBytes) {
+            save();
+        }
+    }
+
+    /**
+     * 立即保存当前进度
+     */
+    public void save() {
+        store.save(journal);
+        lastSavedBytes = journal.getConfirmedBytes();
+    }
+
+    /**
+     * 传输失败后保存当前进度，保存失败时附加为传输异常的被抑制异常，不覆盖传输异常
+     *
+     * @param failure 传输异常
+     */
+    public void saveOnFailure(Throwable failure) {
+        try {
+            save();
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * 包装输入流，读取的字节计入进度
+     *
+     * @param inputStream
+     * @return
+     */
+    public InputStream wrap(InputStream inputStream) {
+        return new ProxyInputStream(inputStream) {
+            @Override
+            protected void afterRead(int n) {
+                advance(n);
+            }
+        };
+    }
+
+    /**
+     * 包装输出流，写出的字节计入进度
+     *
+     * @param outputStream
+     * @return
+     */
+    public OutputStream wrap(OutputStream outputStream) {
+        return new ProxyOutputStream(outputStream) {
+            @Override
+            protected void afterWrite(int n) {
+                advance(n);
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package szu.jason.ftp.spring.journal;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 断点续传日志，记录一次传输两端文件的标识以及已确认的字节数
+ */
+@Getter
+@Setter
+public class TransferJournal {
+    /**
+     * 上传
+     */
+    public static final String DIRECTION_PUT = "put";
+    /**
+     * 下载
+     */
+    public static final String DIRECTION_GET = "get";
+
+    /**
+     * 传输方向，put或get
+     */
+    private String direction;
+    /**
+     * 本地文件绝对路径
+     */
+    private String localPath;
+    /**
+     * 远程文件路径，上传时为带后缀的临时文件
+     */
+    private String remotePath;
+    /**
+     * 本地文件大小
+     */
+    private long localSize;
+    /**
+     * 本地文件最后修改时间
+     */
+    private long localLastModified;
+    /**
+     * 远程文件大小
+     */
+    private long remoteSize;
+    /**
+     * 远程文件最后修改时间，FTP为MDTM应答，SFTP为mtime秒数
+     */
+    private String remoteLastModified;
+    /**
+     * 已确认传输的字节数
+     */
+    private long confirmedBytes;
+    /**
+     * 日志最后更新时间
+     */
+    private long updateTime;
+
+}
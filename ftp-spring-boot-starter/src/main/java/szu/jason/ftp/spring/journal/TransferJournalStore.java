@@ -0,0 +1,89 @@
+package szu.jason.ftp.spring.journal;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.DigestUtils;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 断点续传日志的本地存储，每次传输对应目录下的一个json文件，传输成功后删除
+ */
+@Slf4j
+public class TransferJournalStore {
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final Path journalDir;
+
+    public TransferJournalStore(String journalDir) {
+        this.journalDir = new File(journalDir).toPath();
+    }
+
+    /**
+     * 读取日志，不存在或已损坏时返回null
+     *
+     * @param direction
+     * @param localPath
+     * @param remotePath
+     * @return
+     */
+    public TransferJournal load(String direction, String localPath, String remotePath) {
+        Path journalFile = journalFile(direction, localPath, remotePath);
+        if (!Files.exists(journalFile)) {
+            return null;
+        }
+        try {
+            String json = new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8);
+            return JSON.parseObject(json, TransferJournal.class);
+        } catch (Exception e) {
+            log.warn("读取断点续传日志{}失败，将重新传输", journalFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * 保存日志，先写临时文件再替换，避免进程中断时留下不完整的日志
+     *
+     * @param journal
+     */
+    public void save(TransferJournal journal) {
+        Path journalFile = journalFile(journal.getDirection(), journal.getLocalPath(), journal.getRemotePath());
+        journal.setUpdateTime(System.currentTimeMillis());
+        try {
+            Files.createDirectories(journalDir);
+            Path tmpFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            Files.write(tmpFile, JSON.toJSONString(journal).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FTPClientUtilException(String.format("保存断点续传日志：%s失败！", journalFile), e);
+        }
+    }
+
+    /**
+     * 删除日志
+     *
+     * @param journal
+     */
+    public void delete(TransferJournal journal) {
+        Path journalFile = journalFile(journal.getDirection(), journal.getLocalPath(), journal.getRemotePath());
+        try {
+            Files.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            log.warn("删除断点续传日志{}失败", journalFile, e);
+        }
+    }
+
+    private Path journalFile(String direction, String localPath, String remotePath) {
+        String key = direction + "|" + localPath + "|" + remotePath;
+        return journalDir.resolve(DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + JOURNAL_SUFFIX);
+    }
+}
@@ -0,0 +1,146 @@
+package szu.jason.ftp.spring.pool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池自适应调节器<br>
+ *
+ * 以配置的maxTotal为初始值，在[adaptiveMinTotal, adaptiveMaxTotal]范围内按AIMD方式调整连接池上限：
+ * 有线程等待连接或平均等待时间超过adaptiveBorrowWaitMillis时每个周期加1，
+ * 服务器拒绝新连接（FTP 421、SSH会话或通道被拒绝）时乘以adaptiveBackoffFactor，
+ * 连续多个周期都有空闲连接且无人等待时每个周期减1<br>
+ *
+ * 每个连接池（即每台服务器）拥有独立的调节器，因此上限按服务器分别收敛<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 根据借用等待时间和服务器拒绝情况动态调整连接池大小
+ */
+@Slf4j
+public class AdaptivePoolController {
+
+    /**
+     * 被拒绝后暂停扩容的周期数
+     */
+    private static final int REJECTION_COOLDOWN_INTERVALS = 3;
+    /**
+     * 连续空闲多少个周期后缩容
+     */
+    private static final int IDLE_SHRINK_INTERVALS = 3;
+
+    private final GenericObjectPool<?> pool;
+
+    private final FTPClientUtilProperties properties;
+
+    private final int minTotal;
+
+    private final int maxTotal;
+    /**
+     * 配置的maxIdle，连接池上限降低时maxIdle随之降低，回升时不超过配置值
+     */
+    private final int configuredMaxIdle;
+
+    private final ScheduledExecutorService scheduler;
+    /**
+     * 上一周期结束时的借用总次数
+     */
+    private long lastBorrowedCount;
+    /**
+     * 连续空闲的周期数
+     */
+    private int idleIntervals;
+    /**
+     * 最近一次因拒绝而收缩的时间
+     */
+    private volatile long lastBackoffMillis;
+
+    public AdaptivePoolController(GenericObjectPool<?> pool, FTPClientUtilProperties properties) {
+        this.pool = pool;
+        this.properties = properties;
+        this.minTotal = Math.max(1, properties.getAdaptiveMinTotal());
+        this.maxTotal = Math.max(minTotal, properties.getAdaptiveMaxTotal());
+        this.configuredMaxIdle = properties.getMaxIdle();
+        this.lastBorrowedCount = pool.getBorrowedCount();
+        resize(Math.min(maxTotal, Math.max(minTotal, pool.getMaxTotal())), "初始化");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ftp-pool-adaptive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, properties.getAdaptiveIntervalMillis());
+        scheduler.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 服务器拒绝新连接时调用，乘性收缩，同一周期内的多次拒绝只收缩一次
+     */
+    public synchronized void onRejected() {
+        long now = System.currentTimeMillis();
+        if (now - lastBackoffMillis < properties.getAdaptiveIntervalMillis()) {
+            return;
+        }
+        lastBackoffMillis = now;
+        idleIntervals = 0;
+        int current = pool.getMaxTotal();
+        resize(Math.max(minTotal, (int) (current * properties.getAdaptiveBackoffFactor())), "服务器拒绝连接");
+    }
+
+    /**
+     * 每个周期根据等待情况加性扩容或逐步缩容
+     */
+    synchronized void adjust() {
+        try {
+            long borrowedCount = pool.getBorrowedCount();
+            boolean borrowed = borrowedCount != lastBorrowedCount;
+            lastBorrowedCount = borrowedCount;
+            int current = pool.getMaxTotal();
+            boolean waiting = pool.getNumWaiters() > 0
+                    || borrowed && pool.getMeanBorrowWaitTimeMillis() > properties.getAdaptiveBorrowWaitMillis();
+            if (waiting) {
+                idleIntervals = 0;
+                long cooldown = properties.getAdaptiveIntervalMillis() * REJECTION_COOLDOWN_INTERVALS;
+                if (current < maxTotal && System.currentTimeMillis() - lastBackoffMillis >= cooldown) {
+                    resize(current + 1, "等待连接");
+                }
+                return;
+            }
+            if (pool.getNumIdle() > 0 && ++idleIntervals >= IDLE_SHRINK_INTERVALS) {
+                idleIntervals = 0;
+                if (current > minTotal) {
+                    resize(current - 1, "连接空闲");
+                }
+            }
+        } catch (Exception e) {
+            log.warn("连接池自适应调节失败：{}", e.getMessage());
+        }
+    }
+
+    private void resize(int newMaxTotal, String reason) {
+        int current = pool.getMaxTotal();
+        pool.setMaxTotal(newMaxTotal);
+        pool.setMaxIdle(configuredMaxIdle < 0 ? newMaxTotal : Math.min(configuredMaxIdle, newMaxTotal));
+        if (current != newMaxTotal) {
+            log.info("连接池上限调整：{} -> {}，原因：{}，active:{}，idle:{}，waiters:{}",
+                    current, newMaxTotal, reason, pool.getNumActive(), pool.getNumIdle(), pool.getNumWaiters());
+        }
+    }
+
+    /**
+     * 当前连接池上限
+     *
+     * @return
+     */
+    public int getCurrentMaxTotal() {
+        return pool.getMaxTotal();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
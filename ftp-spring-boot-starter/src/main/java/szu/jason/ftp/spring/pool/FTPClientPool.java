@@ -1,59 +1,310 @@
 package szu.jason.ftp.spring.pool;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.AbandonedConfig;
+import org.apache.commons.pool2.impl.BaseGenericObjectPool;
+import org.apache.commons.pool2.impl.BaseObjectPoolConfig;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.exception.FTPConnectionRejectedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * SFTP连接池<br>
  *
- * 继承{@ org.apache.commons.pool2.impl.GenericObjectPool<SftpClientImpl>}，使用父类连接管理的能力<br>
+ * 继承{@link GenericObjectPool}，使用父类连接管理的能力，FTP连接池为FTPClientPool&lt;FTPClient&gt;，
+ * SFTP连接池为FTPClientPool&lt;SFTPConnector&gt;<br>
  *
  * getPoolInfo()提供了基本的连接池信息，并在DEBUG日志体现<br>
  *
  * 扩充连接池监控信息，如使用率、空闲率等<br>
  *
+ * 连接按{@link WarmUpPolicy}在后台线程中并行预热，构造时不等待服务器响应，服务器不可用也不影响应用启动，
+ * 预热是否完成可通过{@link #isReady()}或{@link #getWarmUpFuture()}获取<br>
+ *
+ * 开启adaptiveSizing时由{@link AdaptivePoolController}动态调整连接池上限，工厂创建连接时服务器的拒绝会通知调节器<br>
+ *
+ * 开启removeAbandonedOnBorrow或removeAbandonedOnMaintenance时回收借出后长时间未归还的连接，防止泄漏耗尽连接池<br>
+ *
  * @author : Vander
  * @date :   2020/9/2
  * @description : FTPClientUtil接口通用的的连接池
  * 实现{@link org.apache.commons.pool2.ObjectPool}接口
  */
 @Slf4j
-public class FTPClientPool extends GenericObjectPool<FTPClient> {
+public class FTPClientPool<T> extends GenericObjectPool<T> {
     /**
      * 工厂负责生成特定的FTPClientUtil
      */
-    private PooledObjectFactory factory;
+    private PooledObjectFactory<T> factory;
     /**
      * client pool 基本信息
      */
     private FTPClientUtilProperties properties;
 
+    /**
+     * 预热线程，预热结束后自动退出
+     */
+    private ExecutorService warmUpExecutor;
+    /**
+     * 预热结果，值为成功创建的连接数
+     */
+    private final CompletableFuture<Integer> warmUpFuture;
+    /**
+     * 连接池上限调节器，未开启adaptiveSizing时为null
+     */
+    private final AdaptivePoolController adaptivePoolController;
+
     /**
      * @param factory
      * @param properties
      * @throws Exception
      */
-    public FTPClientPool(PooledObjectFactory factory, FTPClientUtilProperties properties) throws Exception {
+    public FTPClientPool(PooledObjectFactory<T> factory, FTPClientUtilProperties properties) throws Exception {
+        this(new RejectionAwareFactory<>(factory), properties);
+    }
+
+    private FTPClientPool(RejectionAwareFactory<T> factory, FTPClientUtilProperties properties) {
         super(factory, properties);
-        this.factory = factory;
+        this.factory = factory.delegate;
         this.properties = properties;
-        // 初始化连接池
-        initPool(getMaxTotal());
+        configureKeepAlive(this, properties);
+        configureAbandoned(this, properties);
+        if (properties.isAdaptiveSizing()) {
+            this.adaptivePoolController = new AdaptivePoolController(this, properties);
+            factory.rejectionListener = adaptivePoolController::onRejected;
+        } else {
+            this.adaptivePoolController = null;
+        }
+        // 后台预热连接池
+        this.warmUpFuture = warmUp(warmUpTarget(properties));
     }
 
     /**
-     * 初始化连接池，需要注入一个工厂来提供FTPClientUtil实例
+     * 开启保活时由驱逐线程定时检测所有空闲连接，检测即为一次真实的往返；未单独配置驱逐周期时以保活间隔为周期
      *
-     * @param maxPoolSize
-     * @throws Exception
+     * @param pool
+     * @param properties
+     */
+    static void configureKeepAlive(BaseGenericObjectPool<?> pool, FTPClientUtilProperties properties) {
+        long keepAliveIdleMillis = properties.getKeepAliveIdleMillis();
+        if (keepAliveIdleMillis <= 0) {
+            return;
+        }
+        pool.setTestWhileIdle(true);
+        if (pool.getNumTestsPerEvictionRun() == BaseObjectPoolConfig.DEFAULT_NUM_TESTS_PER_EVICTION_RUN) {
+            // 每轮检测全部空闲连接
+            pool.setNumTestsPerEvictionRun(-1);
+        }
+        if (pool.getTimeBetweenEvictionRunsMillis() <= 0 || pool.getTimeBetweenEvictionRunsMillis() > keepAliveIdleMillis) {
+            pool.setTimeBetweenEvictionRunsMillis(keepAliveIdleMillis);
+        }
+    }
+
+    /**
+     * 配置泄漏连接的回收，被回收的连接直接销毁，之后原借用方归还时连接池会抛出异常
+     *
+     * @param pool
+     * @param properties
+     */
+    static void configureAbandoned(GenericObjectPool<?> pool, FTPClientUtilProperties properties) {
+        if (!properties.isRemoveAbandonedOnBorrow() && !properties.isRemoveAbandonedOnMaintenance()) {
+            return;
+        }
+        AbandonedConfig abandonedConfig = new AbandonedConfig();
+        abandonedConfig.setRemoveAbandonedOnBorrow(properties.isRemoveAbandonedOnBorrow());
+        abandonedConfig.setRemoveAbandonedOnMaintenance(properties.isRemoveAbandonedOnMaintenance());
+        abandonedConfig.setRemoveAbandonedTimeout(properties.getRemoveAbandonedTimeout());
+        abandonedConfig.setLogAbandoned(properties.isLogAbandoned());
+        pool.setAbandonedConfig(abandonedConfig);
+        if (properties.isRemoveAbandonedOnMaintenance() && pool.getTimeBetweenEvictionRunsMillis() <= 0) {
+            log.warn("removeAbandonedOnMaintenance已开启但未配置驱逐周期，泄漏连接只会在借用时回收");
+        }
+    }
+
+    /**
+     * 根据预热策略计算需要预热的连接数
+     *
+     * @param properties
+     * @return
+     */
+    static int warmUpTarget(FTPClientUtilProperties properties) {
+        WarmUpPolicy policy = properties.getWarmUpPolicy() == null ? WarmUpPolicy.NONE : properties.getWarmUpPolicy();
+        int target;
+        switch (policy) {
+            case MIN_IDLE:
+                target = properties.getMinIdle();
+                break;
+            case TARGET:
+                target = properties.getWarmUpTarget();
+                break;
+            default:
+                target = 0;
+        }
+        if (properties.getMaxTotal() > 0) {
+            target = Math.min(target, properties.getMaxTotal());
+        }
+        return Math.max(0, target);
+    }
+
+    /**
+     * 在后台线程中并行创建target个连接，单个连接创建失败只记录日志，由借用时按需重新创建
+     *
+     * @param target
+     * @return
+     */
+    private CompletableFuture<Integer> warmUp(int target) {
+        if (target <= 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        int threads = Math.max(1, Math.min(target, properties.getWarmUpThreads()));
+        AtomicInteger threadIndex = new AtomicInteger();
+        warmUpExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ftp-pool-warm-up-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startTime = System.currentTimeMillis();
+        AtomicInteger created = new AtomicInteger();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[target];
+        for (int i = 0; i < target; i++) {
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    //往池中添加对象
+                    addObject();
+                    created.incrementAndGet();
+                } catch (Exception e) {
+                    log.warn("连接池预热创建连接失败：{}", e.getMessage());
+                }
+            }, warmUpExecutor);
+        }
+        warmUpExecutor.shutdown();
+        return CompletableFuture.allOf(tasks).thenApply(ignored -> {
+            log.info("连接池预热完成，目标{}个连接，成功{}个，耗时{}ms",
+                    target, created.get(), System.currentTimeMillis() - startTime);
+            return created.get();
+        });
+    }
+
+    /**
+     * 预热是否已结束（无论成功创建多少个连接）
+     *
+     * @return
+     */
+    public boolean isReady() {
+        return warmUpFuture.isDone();
+    }
+
+    /**
+     * 等待预热结束
+     *
+     * @param timeout
+     * @param unit
+     * @return 超时前预热已结束返回true
+     * @throws InterruptedException
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            warmUpFuture.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 预热结果，值为成功创建的连接数，可用作就绪信号
+     *
+     * @return
      */
-    private void initPool(int maxPoolSize) throws Exception {
-        for (int i = 0; i < maxPoolSize; i++) {
-            //往池中添加对象
-            addObject();
+    public CompletableFuture<Integer> getWarmUpFuture() {
+        return warmUpFuture;
+    }
+
+    /**
+     * 连接池上限调节器，未开启adaptiveSizing时为null
+     *
+     * @return
+     */
+    public AdaptivePoolController getAdaptivePoolController() {
+        return adaptivePoolController;
+    }
+
+    @Override
+    public void close() {
+        if (adaptivePoolController != null) {
+            adaptivePoolController.shutdown();
+        }
+        if (warmUpExecutor != null) {
+            warmUpExecutor.shutdownNow();
+        }
+        super.close();
+    }
+
+    /**
+     * 包装实际的工厂，创建连接被服务器拒绝时通知调节器
+     */
+    private static class RejectionAwareFactory<T> implements PooledObjectFactory<T> {
+
+        private final PooledObjectFactory<T> delegate;
+
+        private volatile Runnable rejectionListener;
+
+        RejectionAwareFactory(PooledObjectFactory<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PooledObject<T> makeObject() throws Exception {
+            try {
+                return delegate.makeObject();
+            } catch (Exception e) {
+                Runnable listener = rejectionListener;
+                if (listener != null && isRejection(e)) {
+                    listener.run();
+                }
+                throw e;
+            }
+        }
+
+        private static boolean isRejection(Throwable e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof FTPConnectionRejectedException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void destroyObject(PooledObject<T> p) throws Exception {
+            delegate.destroyObject(p);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<T> p) {
+            return delegate.validateObject(p);
+        }
+
+        @Override
+        public void activateObject(PooledObject<T> p) throws Exception {
+            delegate.activateObject(p);
+        }
+
+        @Override
+        public void passivateObject(PooledObject<T> p) throws Exception {
+            delegate.passivateObject(p);
         }
     }
 
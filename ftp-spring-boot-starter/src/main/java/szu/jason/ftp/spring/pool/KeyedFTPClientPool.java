@@ -0,0 +1,168 @@
+package szu.jason.ftp.spring.pool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.KeyedPooledObjectFactory;
+import org.apache.commons.pool2.ObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.factory.KeyedFTPClientPooledObjectFactory;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按客户端名称分组的连接池<br>
+ *
+ * 所有命名客户端共享一个{@link GenericKeyedObjectPool}，共用一个驱逐线程，连接总数受max-total约束，
+ * 单个客户端的连接数受max-total-per-key约束；客户端自身的maxTotal更小时，以客户端的maxTotal为准<br>
+ *
+ * {@link #getPool(String)}返回单个客户端的{@link ObjectPool}视图，供PooledFTPClientUtilImpl等直接使用<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 多客户端共享的连接池
+ */
+@Slf4j
+public class KeyedFTPClientPool extends GenericKeyedObjectPool<String, Object> {
+
+    private final Map<String, FTPClientUtilProperties> clients;
+    /**
+     * 客户端名称 -> 连接池视图，同一客户端只有一个视图，客户端的maxTotal由所有使用方共同遵守
+     */
+    private final Map<String, KeyedPoolView<?>> views = new ConcurrentHashMap<>();
+
+    public KeyedFTPClientPool(Map<String, FTPClientUtilProperties> clients, GenericKeyedObjectPoolConfig config) {
+        this(clients, new KeyedFTPClientPooledObjectFactory(clients), config);
+    }
+
+    KeyedFTPClientPool(Map<String, FTPClientUtilProperties> clients,
+                       KeyedPooledObjectFactory<String, Object> factory,
+                       GenericKeyedObjectPoolConfig config) {
+        super(factory, config);
+        this.clients = clients;
+        // 以各客户端中最短的保活间隔作为共享驱逐线程的周期
+        clients.values().stream()
+                .filter(properties -> properties.getKeepAliveIdleMillis() > 0)
+                .min(Comparator.comparingLong(FTPClientUtilProperties::getKeepAliveIdleMillis))
+                .ifPresent(properties -> FTPClientPool.configureKeepAlive(this, properties));
+    }
+
+    /**
+     * 获取单个客户端的连接池视图，多次获取同一客户端返回同一个视图
+     *
+     * @param name 客户端名称
+     * @param <T>  FTP客户端为FTPClient，SFTP客户端为SFTPConnector
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ObjectPool<T> getPool(String name) {
+        FTPClientUtilProperties properties = clients.get(name);
+        if (properties == null) {
+            throw new FTPClientUtilException(String.format("FTP客户端%s未配置", name));
+        }
+        return (ObjectPool<T>) views.computeIfAbsent(name, key -> {
+            int maxTotalPerKey = getMaxTotalPerKey();
+            int limit = properties.getMaxTotal() > 0 && (maxTotalPerKey < 0 || properties.getMaxTotal() < maxTotalPerKey)
+                    ? properties.getMaxTotal() : -1;
+            return new KeyedPoolView<>(key, limit, properties.getMaxWaitMillis());
+        });
+    }
+
+    /**
+     * 单个客户端的连接池视图，客户端的maxTotal小于max-total-per-key时用信号量进一步限制
+     */
+    private class KeyedPoolView<T> implements ObjectPool<T> {
+
+        private final String key;
+
+        private final Semaphore permits;
+
+        private final long maxWaitMillis;
+
+        KeyedPoolView(String key, int limit, long maxWaitMillis) {
+            this.key = key;
+            this.permits = limit > 0 ? new Semaphore(limit, true) : null;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T borrowObject() throws Exception {
+            acquire();
+            try {
+                return (T) KeyedFTPClientPool.this.borrowObject(key);
+            } catch (Exception e) {
+                release();
+                throw e;
+            }
+        }
+
+        private void acquire() throws InterruptedException {
+            if (permits == null) {
+                return;
+            }
+            if (maxWaitMillis < 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new NoSuchElementException(String.format("等待FTP客户端%s的连接超时", key));
+            }
+        }
+
+        private void release() {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void returnObject(T obj) throws Exception {
+            try {
+                KeyedFTPClientPool.this.returnObject(key, obj);
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public void invalidateObject(T obj) throws Exception {
+            try {
+                KeyedFTPClientPool.this.invalidateObject(key, obj);
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public void addObject() throws Exception {
+            KeyedFTPClientPool.this.addObject(key);
+        }
+
+        @Override
+        public int getNumIdle() {
+            return KeyedFTPClientPool.this.getNumIdle(key);
+        }
+
+        @Override
+        public int getNumActive() {
+            return KeyedFTPClientPool.this.getNumActive(key);
+        }
+
+        @Override
+        public void clear() throws Exception {
+            KeyedFTPClientPool.this.clear(key);
+        }
+
+        /**
+         * 各客户端共享连接池，由{@link KeyedFTPClientPool#close()}统一关闭
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package szu.jason.ftp.spring.pool;
+
+import com.jcraft.jsch.JSchException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.pool2.ObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多节点连接池<br>
+ *
+ * 配置hosts时，每个节点拥有独立的{@link FTPClientPool}，连接数上限、预热和自适应调节均按节点分别生效<br>
+ *
+ * 借用连接时选择得分最低的节点，得分 = 操作耗时的EWMA × (借出连接数 + 1) × (1 + 10 × 错误率的EWMA)，
+ * 耗时为连接从借出到归还的时间。节点连续失败hostEjectFailures次后被摘除hostEjectMillis毫秒，
+ * 到期后放行一次借用作为探测，成功则恢复，失败则再次摘除。所有节点均被摘除时仍尝试最早到期的节点。
+ * 只有建立连接失败和归因于节点的连接销毁计为失败，节点连接池借满、本地IO异常不影响节点的错误率<br>
+ *
+ * 借用失败时自动尝试下一个节点，连接归还、作废时交回其所属节点的连接池<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 按延迟和错误率在多个等价节点间分配连接，并对故障节点进行摘除和探测
+ */
+@Slf4j
+public class MultiHostFTPClientPool<T> implements ObjectPool<T> {
+
+    /**
+     * EWMA平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final FTPClientUtilProperties properties;
+
+    private final List<Endpoint<T>> endpoints;
+    /**
+     * 借出的连接及其所属节点
+     */
+    private final Map<T, Lease<T>> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 为每个节点创建连接池的工厂
+     */
+    @FunctionalInterface
+    public interface EndpointPoolFactory<T> {
+        /**
+         * @param endpointProperties 复制自公共配置，hostname和port已替换为该节点
+         * @return
+         * @throws Exception
+         */
+        ObjectPool<T> create(FTPClientUtilProperties endpointProperties) throws Exception;
+    }
+
+    public MultiHostFTPClientPool(FTPClientUtilProperties properties, EndpointPoolFactory<T> poolFactory) throws Exception {
+        this.properties = properties;
+        List<Endpoint<T>> endpointList = new ArrayList<>();
+        for (String host : properties.getHosts()) {
+            FTPClientUtilProperties endpointProperties = endpointProperties(properties, host);
+            endpointList.add(new Endpoint<>(endpointProperties.getHostname(), endpointProperties.getPort(),
+                    poolFactory.create(endpointProperties)));
+        }
+        if (endpointList.isEmpty()) {
+            throw new FTPClientUtilException("多节点连接池至少需要配置一个节点！");
+        }
+        this.endpoints = Collections.unmodifiableList(endpointList);
+    }
+
+    /**
+     * 解析host或host:port，未指定端口时使用公共配置中的port
+     *
+     * @param properties
+     * @param host
+     * @return
+     */
+    static FTPClientUtilProperties endpointProperties(FTPClientUtilProperties properties, String host) {
+        FTPClientUtilProperties endpointProperties = (FTPClientUtilProperties) properties.clone();
+        String hostname = StringUtils.trim(host);
+        int separator = hostname.lastIndexOf(':');
+        if (separator > 0 && hostname.indexOf(':') == separator) {
+            endpointProperties.setPort(Integer.parseInt(hostname.substring(separator + 1)));
+            hostname = hostname.substring(0, separator);
+        }
+        endpointProperties.setHostname(hostname);
+        return endpointProperties;
+    }
+
+    @Override
+    public T borrowObject() throws Exception {
+        List<Endpoint<T>> tried = new ArrayList<>();
+        Exception lastException = null;
+        Endpoint<T> endpoint;
+        while ((endpoint = select(tried)) != null) {
+            tried.add(endpoint);
+            T object;
+            try {
+                object = endpoint.pool.borrowObject();
+            } catch (Exception e) {
+                if (isHostFailure(e)) {
+                    endpoint.onFailure(properties);
+                    log.warn("从节点{}借用连接失败，尝试下一个节点：{}", endpoint, e.getMessage());
+                } else {
+                    // 节点连接池已借满，等待超时不代表节点故障
+                    endpoint.onBusy();
+                    log.debug("节点{}没有空闲连接，尝试下一个节点：{}", endpoint, e.getMessage());
+                }
+                lastException = e;
+                continue;
+            }
+            endpoint.active.incrementAndGet();
+            leases.put(object, new Lease<>(endpoint, System.nanoTime()));
+            return object;
+        }
+        if (lastException != null) {
+            throw lastException;
+        }
+        throw new NoSuchElementException("没有可用的节点");
+    }
+
+    /**
+     * 在未尝试过的节点中选择得分最低的可用节点，均不可用时选择最早恢复的节点
+     *
+     * @param tried
+     * @return
+     */
+    private Endpoint<T> select(List<Endpoint<T>> tried) {
+        long now = System.currentTimeMillis();
+        Endpoint<T> best = null;
+        Endpoint<T> earliest = null;
+        for (Endpoint<T> endpoint : endpoints) {
+            if (tried.contains(endpoint)) {
+                continue;
+            }
+            if (endpoint.isAvailable(now)) {
+                if (best == null || endpoint.score() < best.score()) {
+                    best = endpoint;
+                }
+            } else if (earliest == null || endpoint.ejectedUntil < earliest.ejectedUntil) {
+                earliest = endpoint;
+            }
+        }
+        if (best != null) {
+            best.onSelected(now);
+            return best;
+        }
+        return earliest;
+    }
+
+    @Override
+    public void returnObject(T obj) throws Exception {
+        Lease<T> lease = release(obj);
+        lease.endpoint.onSuccess(System.nanoTime() - lease.borrowedNanos);
+        lease.endpoint.pool.returnObject(obj);
+    }
+
+    /**
+     * 销毁连接，不计入节点的失败次数，失败原因可归于节点时使用{@link #invalidateObject(Object, boolean)}
+     *
+     * @param obj
+     * @throws Exception
+     */
+    @Override
+    public void invalidateObject(T obj) throws Exception {
+        invalidateObject(obj, false);
+    }
+
+    /**
+     * 销毁连接
+     *
+     * @param obj
+     * @param hostFailure 是否由节点引起（连接断开、网络异常等），本地文件或流的异常不应使节点被摘除
+     * @throws Exception
+     */
+    public void invalidateObject(T obj, boolean hostFailure) throws Exception {
+        Lease<T> lease = release(obj);
+        if (hostFailure) {
+            lease.endpoint.onFailure(properties);
+        }
+        lease.endpoint.pool.invalidateObject(obj);
+    }
+
+    /**
+     * 建立连接失败（连接被拒绝、IO或JSch异常，工厂抛出的异常均包装为FTPClientUtilException）视为节点故障；
+     * 连接池借满后等待超时抛出的NoSuchElementException不是
+     *
+     * @param e
+     * @return
+     */
+    static boolean isHostFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FTPClientUtilException || cause instanceof IOException
+                    || cause instanceof JSchException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Lease<T> release(T obj) {
+        Lease<T> lease = leases.remove(obj);
+        if (lease == null) {
+            throw new IllegalStateException("连接不属于该多节点连接池");
+        }
+        lease.endpoint.active.decrementAndGet();
+        return lease;
+    }
+
+    @Override
+    public void addObject() throws Exception {
+        Endpoint<T> endpoint = select(Collections.emptyList());
+        if (endpoint != null) {
+            endpoint.pool.addObject();
+        }
+    }
+
+    @Override
+    public int getNumIdle() {
+        int numIdle = 0;
+        for (Endpoint<T> endpoint : endpoints) {
+            numIdle += endpoint.pool.getNumIdle();
+        }
+        return numIdle;
+    }
+
+    @Override
+    public int getNumActive() {
+        int numActive = 0;
+        for (Endpoint<T> endpoint : endpoints) {
+            numActive += endpoint.pool.getNumActive();
+        }
+        return numActive;
+    }
+
+    /**
+     * 各节点连接池当前上限之和，任一节点不限制时返回-1，节点连接池无法读取上限时使用配置的maxTotal
+     *
+     * @return
+     */
+    public int getMaxTotal() {
+        int maxTotal = 0;
+        for (Endpoint<T> endpoint : endpoints) {
+            int endpointMaxTotal = endpoint.pool instanceof GenericObjectPool
+                    ? ((GenericObjectPool<T>) endpoint.pool).getMaxTotal() : properties.getMaxTotal();
+            if (endpointMaxTotal <= 0) {
+                return -1;
+            }
+            maxTotal += endpointMaxTotal;
+        }
+        return maxTotal;
+    }
+
+    @Override
+    public void clear() throws Exception {
+        for (Endpoint<T> endpoint : endpoints) {
+            endpoint.pool.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Endpoint<T> endpoint : endpoints) {
+            endpoint.pool.close();
+        }
+    }
+
+    /**
+     * 各节点的连接池及路由统计
+     *
+     * @return
+     */
+    public List<Endpoint<T>> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 单个节点
+     */
+    public static class Endpoint<T> {
+
+        private final String hostname;
+
+        private final int port;
+
+        private final ObjectPool<T> pool;
+        /**
+         * 由该多节点连接池借出、尚未归还的连接数
+         */
+        private final AtomicInteger active = new AtomicInteger();
+        /**
+         * 操作耗时的EWMA，单位毫秒
+         */
+        private volatile double latencyMillis;
+        /**
+         * 错误率的EWMA
+         */
+        private volatile double errorRate;
+        /**
+         * 连续失败次数
+         */
+        private int consecutiveFailures;
+        /**
+         * 摘除截止时间，0表示未摘除
+         */
+        private volatile long ejectedUntil;
+        /**
+         * 摘除到期后是否已放行探测借用
+         */
+        private boolean probing;
+
+        Endpoint(String hostname, int port, ObjectPool<T> pool) {
+            this.hostname = hostname;
+            this.port = port;
+            this.pool = pool;
+        }
+
+        synchronized boolean isAvailable(long now) {
+            if (ejectedUntil == 0) {
+                return true;
+            }
+            // 摘除到期后只放行一次探测，结果返回前其他借用仍避开该节点
+            return now >= ejectedUntil && !probing;
+        }
+
+        synchronized void onSelected(long now) {
+            if (ejectedUntil != 0 && now >= ejectedUntil) {
+                probing = true;
+            }
+        }
+
+        /**
+         * 连接池借满未能借出连接，探测未完成，之后可再次放行探测
+         */
+        synchronized void onBusy() {
+            probing = false;
+        }
+
+        double score() {
+            return (latencyMillis + 1) * (active.get() + 1) * (1 + 10 * errorRate);
+        }
+
+        synchronized void onSuccess(long elapsedNanos) {
+            double elapsedMillis = elapsedNanos / 1_000_000.0;
+            latencyMillis = latencyMillis == 0 ? elapsedMillis : EWMA_ALPHA * elapsedMillis + (1 - EWMA_ALPHA) * latencyMillis;
+            errorRate = (1 - EWMA_ALPHA) * errorRate;
+            consecutiveFailures = 0;
+            if (ejectedUntil != 0) {
+                log.info("节点{}探测成功，恢复使用", this);
+                ejectedUntil = 0;
+                probing = false;
+            }
+        }
+
+        synchronized void onFailure(FTPClientUtilProperties properties) {
+            errorRate = EWMA_ALPHA + (1 - EWMA_ALPHA) * errorRate;
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= Math.max(1, properties.getHostEjectFailures())) {
+                ejectedUntil = System.currentTimeMillis() + properties.getHostEjectMillis();
+                probing = false;
+                log.warn("节点{}连续失败{}次，摘除{}ms", this, consecutiveFailures, properties.getHostEjectMillis());
+            }
+        }
+
+        public String getHostname() {
+            return hostname;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public ObjectPool<T> getPool() {
+            return pool;
+        }
+
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public boolean isEjected() {
+            return ejectedUntil != 0;
+        }
+
+        @Override
+        public String toString() {
+            return hostname + ":" + port;
+        }
+    }
+
+    private static class Lease<T> {
+
+        private final Endpoint<T> endpoint;
+
+        private final long borrowedNanos;
+
+        Lease(Endpoint<T> endpoint, long borrowedNanos) {
+            this.endpoint = endpoint;
+            this.borrowedNanos = borrowedNanos;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package szu.jason.ftp.spring.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 传输缓冲区池<br>
+ *
+ * 所有传输路径共享的有界字节数组池，缓冲区大小取自{@link szu.jason.ftp.spring.FTPClientUtilProperties#getBufferSize()}，
+ * 稳定运行时每次传输都能复用已有的缓冲区，池满时归还的缓冲区直接丢弃交给GC<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 传输热点路径共享的缓冲区池，提供命中与未命中统计
+ */
+public class TransferBufferPool {
+    /**
+     * 每个缓冲区的字节数
+     */
+    private final int bufferSize;
+    /**
+     * 空闲缓冲区
+     */
+    private final BlockingQueue<byte[]> idleBuffers;
+    /**
+     * 从池中直接取到缓冲区的次数
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+    /**
+     * 池中无空闲缓冲区而新分配的次数
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param bufferSize 每个缓冲区的字节数
+     * @param maxIdle    最多保留的空闲缓冲区个数
+     */
+    public TransferBufferPool(int bufferSize, int maxIdle) {
+        this.bufferSize = bufferSize > 0 ? bufferSize : 8192;
+        this.idleBuffers = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * 获取缓冲区，使用完毕后必须调用{@link #release(byte[])}归还
+     *
+     * @return
+     */
+    public byte[] acquire() {
+        byte[] buffer = idleBuffers.poll();
+        if (buffer != null) {
+            hitCount.incrementAndGet();
+            return buffer;
+        }
+        missCount.incrementAndGet();
+        return new byte[bufferSize];
+    }
+
+    /**
+     * 归还缓冲区
+     *
+     * @param buffer
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            idleBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 使用池中的缓冲区将输入流的全部内容写出到输出流，不关闭任何流
+     *
+     * @param inputStream
+     * @param outputStream
+     * @return 复制的字节数
+     * @throws IOException
+     */
+    public long copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long count = 0;
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+                count += bytesRead;
+            }
+            outputStream.flush();
+            return count;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleBuffers.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferBufferPool[bufferSize=%d, idle=%d, hit=%d, miss=%d]",
+                bufferSize, getIdleCount(), getHitCount(), getMissCount());
+    }
+}
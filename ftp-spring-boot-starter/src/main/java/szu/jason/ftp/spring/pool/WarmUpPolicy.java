@@ -0,0 +1,21 @@
+package szu.jason.ftp.spring.pool;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 连接池启动时的预热策略，预热在后台线程中并行进行，不阻塞应用启动
+ */
+public enum WarmUpPolicy {
+    /**
+     * 不预热，连接在第一次借用时创建
+     */
+    NONE,
+    /**
+     * 预热minIdle个连接
+     */
+    MIN_IDLE,
+    /**
+     * 预热warmUpTarget个连接，不超过maxTotal
+     */
+    TARGET
+}
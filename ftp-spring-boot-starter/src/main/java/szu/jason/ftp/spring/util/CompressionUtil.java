@@ -0,0 +1,94 @@
+package szu.jason.ftp.spring.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 传输压缩的工具类，提供MODE Z所需的zlib压缩流、解压流，以及按扩展名判断文件是否已压缩
+ */
+public class CompressionUtil {
+
+    /**
+     * FTP的MODE Z传输模式，commons-net未定义该常量，取值与其后续版本的DEFLATE_TRANSFER_MODE一致
+     */
+    public static final int DEFLATE_TRANSFER_MODE = 13;
+
+    private CompressionUtil() {
+    }
+
+    /**
+     * 判断文件名是否以已压缩格式的扩展名结尾，忽略大小写
+     *
+     * @param filename   文件名或路径
+     * @param extensions 扩展名，不含"."
+     * @return
+     */
+    public static boolean isCompressed(String filename, Collection<String> extensions) {
+        if (filename == null || extensions == null) {
+            return false;
+        }
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0 || dot < filename.lastIndexOf('/')) {
+            return false;
+        }
+        String extension = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (String compressedExtension : extensions) {
+            if (extension.equals(compressedExtension.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 包装为zlib压缩流，关闭时写出压缩尾部并释放Deflater
+     *
+     * @param outputStream
+     * @param level        压缩级别，0-9
+     * @param bufferSize
+     * @return
+     */
+    public static OutputStream deflate(OutputStream outputStream, int level, int bufferSize) {
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(outputStream, deflater, Math.max(512, bufferSize)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * 包装为zlib解压流，关闭时释放Inflater
+     *
+     * @param inputStream
+     * @param bufferSize
+     * @return
+     */
+    public static InputStream inflate(InputStream inputStream, int bufferSize) {
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(inputStream, inflater, Math.max(512, bufferSize)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package szu.jason.ftp.spring.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 按连接池上限计算的操作许可<br>
+ *
+ * 每个操作占用connectionsPerPermit个连接，许可数取连接池当前上限除以该值。多连接操作（如复制）同时占用两个连接，
+ * 许可数取上限的一半，保证这些操作不会占满连接池后互相等待；异步客户端的每个操作按一个连接计算。
+ * 连接池上限会被自适应调节器改变，因此每次获取、释放许可时都按当前上限重新计算许可数，
+ * 等待许可期间也定期重新计算，上限扩大后等待的线程无需等到其他操作结束<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 许可总数跟随连接池当前上限的信号量
+ */
+public class ConnectionPermits {
+
+    /**
+     * 等待许可时重新计算许可数的间隔，单位毫秒
+     */
+    private static final long RESIZE_CHECK_MILLIS = 200;
+
+    private final IntSupplier maxTotalSupplier;
+    /**
+     * 每个许可对应的连接数
+     */
+    private final int connectionsPerPermit;
+
+    private final ResizableSemaphore semaphore = new ResizableSemaphore();
+    /**
+     * 当前的许可总数
+     */
+    private int permits;
+
+    /**
+     * 多连接操作的许可，每个许可对应两个连接
+     *
+     * @param maxTotalSupplier 连接池当前上限，小于等于0表示不限制
+     */
+    public ConnectionPermits(IntSupplier maxTotalSupplier) {
+        this(maxTotalSupplier, 2);
+    }
+
+    /**
+     * @param maxTotalSupplier     连接池当前上限，小于等于0表示不限制
+     * @param connectionsPerPermit 每个许可对应的连接数
+     */
+    public ConnectionPermits(IntSupplier maxTotalSupplier, int connectionsPerPermit) {
+        this.maxTotalSupplier = maxTotalSupplier;
+        this.connectionsPerPermit = Math.max(1, connectionsPerPermit);
+    }
+
+    /**
+     * 每个多连接操作占用两个连接，许可数取maxTotal的一半
+     *
+     * @param maxTotal
+     * @return
+     */
+    public static int permitsFor(int maxTotal) {
+        return permitsFor(maxTotal, 2);
+    }
+
+    /**
+     * 许可数取maxTotal除以每个许可对应的连接数，至少为1
+     *
+     * @param maxTotal
+     * @param connectionsPerPermit
+     * @return
+     */
+    public static int permitsFor(int maxTotal, int connectionsPerPermit) {
+        return maxTotal > 0 ? Math.max(1, maxTotal / connectionsPerPermit) : Integer.MAX_VALUE;
+    }
+
+    public void acquire() throws InterruptedException {
+        resize();
+        while (!semaphore.tryAcquire(RESIZE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            resize();
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+        resize();
+    }
+
+    /**
+     * 当前的许可总数
+     *
+     * @return
+     */
+    public synchronized int getPermits() {
+        return permits;
+    }
+
+    /**
+     * 当前可用的许可数，上限缩小后可能为负数，直到占用许可的操作结束
+     *
+     * @return
+     */
+    public int getAvailablePermits() {
+        return semaphore.availablePermits();
+    }
+
+    private synchronized void resize() {
+        int target = permitsFor(maxTotalSupplier.getAsInt(), connectionsPerPermit);
+        if (target > permits) {
+            semaphore.release(target - permits);
+        } else if (target < permits) {
+            semaphore.reducePermits(permits - target);
+        }
+        permits = target;
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+
+        ResizableSemaphore() {
+            super(0, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package szu.jason.ftp.spring.util;
 
 import org.apache.commons.io.FileUtils;
+import szu.jason.ftp.spring.pool.TransferBufferPool;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -158,6 +163,62 @@ public class FileUtil {
 		}
 	}
 
+	/**
+	 * 将本地文件通道从当前position起的全部内容写出到输出流，使用池中的缓冲区，
+	 * 不经过Channels.newChannel（每次调用都会另外分配堆内缓冲区）
+	 * @param fileChannel 本地文件通道
+	 * @param outputStream 远程文件流
+	 * @param bufferPool 传输缓冲区池
+	 * @return 写出的字节数
+	 * @throws IOException
+	 */
+	public static long copyToStream(FileChannel fileChannel, OutputStream outputStream,
+								    TransferBufferPool bufferPool) throws IOException {
+		byte[] buffer = bufferPool.acquire();
+		try {
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			long total = 0;
+			int bytesRead;
+			while ((bytesRead = fileChannel.read(byteBuffer)) >= 0) {
+				outputStream.write(buffer, 0, bytesRead);
+				total += bytesRead;
+				byteBuffer.clear();
+			}
+			outputStream.flush();
+			return total;
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	/**
+	 * 将输入流的全部内容从当前position起写入本地文件通道，使用池中的缓冲区，
+	 * 不经过Channels.newChannel（每次调用都会另外分配堆内缓冲区）
+	 * @param inputStream 远程文件流
+	 * @param fileChannel 本地文件通道
+	 * @param bufferPool 传输缓冲区池
+	 * @return 写入的字节数
+	 * @throws IOException
+	 */
+	public static long copyFromStream(InputStream inputStream, FileChannel fileChannel,
+									  TransferBufferPool bufferPool) throws IOException {
+		byte[] buffer = bufferPool.acquire();
+		try {
+			long total = 0;
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) >= 0) {
+				ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
+				while (byteBuffer.hasRemaining()) {
+					fileChannel.write(byteBuffer);
+				}
+				total += bytesRead;
+			}
+			return total;
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
 	/**
 	 * 删除文件
 	 * @param fileName 文件名全路径
@@ -0,0 +1,105 @@
+package szu.jason.ftp.spring.util;
+
+import szu.jason.ftp.spring.RemoteFileInfo;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 基于fork-join的并行目录遍历，每个子目录是一个独立任务，由空闲的工作线程窃取执行，
+ * 每个任务只在列目录期间占用一个连接，因此同时占用的连接数不超过并行度
+ */
+public class ParallelDirectoryWalker {
+
+    /**
+     * 列出单个目录，由具体协议实现，需自行借用和归还连接
+     */
+    @FunctionalInterface
+    public interface DirectoryLister {
+        /**
+         * 列出remoteDir下的条目，文件加入files，子目录以"/"结尾的完整路径返回
+         *
+         * @param remoteDir 以"/"结尾的远程目录
+         * @param files     当前目录下的文件
+         * @return 需要继续遍历的子目录
+         * @throws Exception
+         */
+        List<String> list(String remoteDir, List<RemoteFileInfo> files) throws Exception;
+    }
+
+    private ParallelDirectoryWalker() {
+    }
+
+    /**
+     * 并行遍历rootDir下的所有文件。结果顺序与顺序遍历不同：每个目录的文件排在其子目录的文件之前，
+     * 同一目录内保持列目录的返回顺序，需要特定顺序时由调用方排序
+     *
+     * @param rootDir          以"/"结尾的根目录
+     * @param maxFanOut        最大并行度，即最多同时占用的连接数
+     * @param threadNamePrefix 线程名前缀
+     * @param lister           单个目录的列举方式
+     * @return 所有文件
+     */
+    public static List<RemoteFileInfo> walk(String rootDir,
+                                            int maxFanOut,
+                                            String threadNamePrefix,
+                                            DirectoryLister lister) {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(Math.max(1, maxFanOut), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(threadNamePrefix + "-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        try {
+            return forkJoinPool.invoke(new ListTask(rootDir, lister));
+        } finally {
+            forkJoinPool.shutdownNow();
+        }
+    }
+
+    private static class ListTask extends RecursiveTask<List<RemoteFileInfo>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String remoteDir;
+
+        private final transient DirectoryLister lister;
+
+        ListTask(String remoteDir, DirectoryLister lister) {
+            this.remoteDir = remoteDir;
+            this.lister = lister;
+        }
+
+        @Override
+        protected List<RemoteFileInfo> compute() {
+            List<RemoteFileInfo> files = new ArrayList<>();
+            List<String> subDirs;
+            try {
+                subDirs = lister.list(remoteDir, files);
+            } catch (FTPClientUtilException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new FTPClientUtilException(String.format("列出远程目录：%s下的文件异常", remoteDir), e);
+            }
+            if (subDirs.isEmpty()) {
+                return files;
+            }
+            // 连接已归还，再分发子目录，避免持有连接等待子任务
+            List<ListTask> subTasks = new ArrayList<>(subDirs.size());
+            for (String subDir : subDirs) {
+                subTasks.add(new ListTask(subDir, lister));
+            }
+            invokeAll(subTasks);
+            for (ListTask subTask : subTasks) {
+                files.addAll(subTask.join());
+            }
+            return files;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package szu.jason.ftp.spring.util;
+
+import szu.jason.ftp.spring.pool.TransferBufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流水线复制<br>
+ *
+ * 读线程从输入流读取数据放入有界的缓冲区环，调用线程同时从环中取出数据写入输出流，下载和上传互不等待。
+ * 读线程来自有界的线程池，由同一个复制器的所有复制共享，线程用尽时该次复制在调用线程中交替读写。
+ * 环中的缓冲区从{@link TransferBufferPool}借用，复制成功后归还；复制失败时关闭输入流，使阻塞在读操作上的读线程
+ * 随即退出，此时不归还缓冲区，交给GC<br>
+ *
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 读写分离的流复制，通过有界缓冲区环连接读、写两个阶段，并统计各阶段吞吐量
+ */
+public class PipelinedCopier {
+
+    private final static AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private final TransferBufferPool bufferPool;
+    /**
+     * 环中的缓冲区个数
+     */
+    private final int ringSize;
+    /**
+     * 读线程池，空闲线程60秒后退出
+     */
+    private final ExecutorService readerExecutor;
+
+    /**
+     * @param bufferPool 缓冲区池
+     * @param ringSize   环中的缓冲区个数，小于2时不启用流水线，退化为单线程交替读写
+     * @param maxReaders 读线程数上限
+     */
+    public PipelinedCopier(TransferBufferPool bufferPool, int ringSize, int maxReaders) {
+        this.bufferPool = bufferPool;
+        this.ringSize = ringSize;
+        this.readerExecutor = new ThreadPoolExecutor(0, Math.max(1, maxReaders), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "ftp-copy-reader-" + THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 将输入流的全部内容写出到输出流，成功时不关闭任何流，失败时关闭输入流
+     *
+     * @param inputStream
+     * @param outputStream
+     * @return 各阶段统计
+     * @throws IOException
+     */
+    public CopyStatistics copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        long startTime = System.nanoTime();
+        if (ringSize < 2) {
+            return copyInCallerThread(inputStream, outputStream, startTime);
+        }
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(ringSize);
+        BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<>(ringSize + 1);
+        Reader reader = new Reader(inputStream, freeBuffers, filledChunks);
+        Future<?> readerFuture;
+        try {
+            readerFuture = readerExecutor.submit(reader);
+        } catch (RejectedExecutionException e) {
+            return copyInCallerThread(inputStream, outputStream, startTime);
+        }
+        // 读线程等待空闲缓冲区，提交后再放入
+        for (int i = 0; i < ringSize; i++) {
+            freeBuffers.add(bufferPool.acquire());
+        }
+
+        long bytes = 0;
+        long writeNanos = 0;
+        long writerWaitNanos = 0;
+        boolean completed = false;
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                Chunk chunk = filledChunks.take();
+                writerWaitNanos += System.nanoTime() - waitStart;
+                if (chunk.failure != null) {
+                    throw chunk.failure;
+                }
+                if (chunk.length < 0) {
+                    break;
+                }
+                long writeStart = System.nanoTime();
+                outputStream.write(chunk.buffer, 0, chunk.length);
+                writeNanos += System.nanoTime() - writeStart;
+                bytes += chunk.length;
+                freeBuffers.put(chunk.buffer);
+            }
+            long writeStart = System.nanoTime();
+            outputStream.flush();
+            writeNanos += System.nanoTime() - writeStart;
+            readerFuture.get();
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("流水线复制被中断");
+        } catch (ExecutionException e) {
+            throw new IOException("流水线复制读取失败", e.getCause());
+        } finally {
+            if (completed) {
+                byte[] buffer;
+                while ((buffer = freeBuffers.poll()) != null) {
+                    bufferPool.release(buffer);
+                }
+            } else {
+                // 读线程可能阻塞在读操作上，中断对阻塞IO无效，关闭输入流使其立即返回
+                readerFuture.cancel(true);
+                closeQuietly(inputStream);
+            }
+        }
+        return new CopyStatistics(bytes, System.nanoTime() - startTime,
+                reader.readNanos, writeNanos, reader.readerWaitNanos, writerWaitNanos);
+    }
+
+    private CopyStatistics copyInCallerThread(InputStream inputStream, OutputStream outputStream,
+                                              long startTime) throws IOException {
+        long bytes = bufferPool.copy(inputStream, outputStream);
+        long elapsed = System.nanoTime() - startTime;
+        return new CopyStatistics(bytes, elapsed, elapsed, elapsed, 0, 0);
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException | RuntimeException e) {
+            // 复制已失败，忽略关闭异常
+        }
+    }
+
+    /**
+     * 读阶段，读到末尾或出错时向环中放入结束标记
+     */
+    private static class Reader implements Runnable {
+
+        private final InputStream inputStream;
+
+        private final BlockingQueue<byte[]> freeBuffers;
+
+        private final BlockingQueue<Chunk> filledChunks;
+
+        private volatile long readNanos;
+
+        private volatile long readerWaitNanos;
+
+        Reader(InputStream inputStream, BlockingQueue<byte[]> freeBuffers, BlockingQueue<Chunk> filledChunks) {
+            this.inputStream = inputStream;
+            this.freeBuffers = freeBuffers;
+            this.filledChunks = filledChunks;
+        }
+
+        @Override
+        public void run() {
+            long read = 0;
+            long wait = 0;
+            try {
+                while (true) {
+                    long waitStart = System.nanoTime();
+                    byte[] buffer = freeBuffers.take();
+                    long readStart = System.nanoTime();
+                    wait += readStart - waitStart;
+                    int bytesRead = inputStream.read(buffer);
+                    read += System.nanoTime() - readStart;
+                    if (bytesRead < 0) {
+                        freeBuffers.add(buffer);
+                        break;
+                    }
+                    filledChunks.put(new Chunk(buffer, bytesRead, null));
+                }
+                readNanos = read;
+                readerWaitNanos = wait;
+                filledChunks.put(new Chunk(null, -1, null));
+            } catch (IOException e) {
+                filledChunks.offer(new Chunk(null, -1, e));
+            } catch (RuntimeException | Error e) {
+                // 保证写阶段不会一直等待
+                filledChunks.offer(new Chunk(null, -1, new IOException("流水线复制读取失败", e)));
+            } catch (InterruptedException e) {
+                // 写阶段已失败
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Chunk {
+
+        private final byte[] buffer;
+        /**
+         * 有效字节数，-1表示结束
+         */
+        private final int length;
+
+        private final IOException failure;
+
+        Chunk(byte[] buffer, int length, IOException failure) {
+            this.buffer = buffer;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * 一次复制的统计，读、写耗时只包含实际阻塞在IO上的时间，等待时间反映另一阶段是瓶颈
+     */
+    public static class CopyStatistics {
+
+        private final long bytes;
+
+        private final long elapsedNanos;
+
+        private final long readNanos;
+
+        private final long writeNanos;
+
+        private final long readerWaitNanos;
+
+        private final long writerWaitNanos;
+
+        CopyStatistics(long bytes, long elapsedNanos, long readNanos, long writeNanos,
+                       long readerWaitNanos, long writerWaitNanos) {
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.readNanos = readNanos;
+            this.writeNanos = writeNanos;
+            this.readerWaitNanos = readerWaitNanos;
+            this.writerWaitNanos = writerWaitNanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 读阶段吞吐量，单位MB/s
+         *
+         * @return
+         */
+        public double getReadThroughput() {
+            return throughput(readNanos);
+        }
+
+        /**
+         * 写阶段吞吐量，单位MB/s
+         *
+         * @return
+         */
+        public double getWriteThroughput() {
+            return throughput(writeNanos);
+        }
+
+        /**
+         * 端到端吞吐量，单位MB/s，接近读、写中较小的一个说明两阶段已充分重叠
+         *
+         * @return
+         */
+        public double getThroughput() {
+            return throughput(elapsedNanos);
+        }
+
+        /**
+         * 读阶段等待空闲缓冲区的时间，较大说明写阶段是瓶颈
+         *
+         * @return
+         */
+        public long getReaderWaitNanos() {
+            return readerWaitNanos;
+        }
+
+        /**
+         * 写阶段等待数据的时间，较大说明读阶段是瓶颈
+         *
+         * @return
+         */
+        public long getWriterWaitNanos() {
+            return writerWaitNanos;
+        }
+
+        private double throughput(long nanos) {
+            return nanos <= 0 ? 0 : bytes / 1024.0 / 1024.0 / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("bytes=%d, elapsed=%dms, total=%.2fMB/s, read=%.2fMB/s, write=%.2fMB/s, " +
+                            "readerWait=%dms, writerWait=%dms",
+                    bytes, elapsedNanos / 1000000, getThroughput(), getReadThroughput(), getWriteThroughput(),
+                    readerWaitNanos / 1000000, writerWaitNanos / 1000000);
+        }
+    }
+}
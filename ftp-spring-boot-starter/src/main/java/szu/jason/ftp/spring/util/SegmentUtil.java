@@ -0,0 +1,203 @@
+package szu.jason.ftp.spring.util;
+
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 大文件分段并行传输的工具类，负责切分字节区间、调度各分段任务以及按位置写入本地文件
+ */
+public class SegmentUtil {
+
+    /**
+     * 单个分段的最小字节数，小于该值的文件不值得拆分
+     */
+    public static final long MIN_SEGMENT_SIZE = 8 * 1024 * 1024L;
+
+    /**
+     * 分段传输任务，每个分段在独立线程中执行，自行借用和归还连接
+     */
+    @FunctionalInterface
+    public interface SegmentTask {
+        /**
+         * 传输[start, start + length)区间的数据
+         *
+         * @param start  分段起始偏移量
+         * @param length 分段长度
+         * @throws Exception
+         */
+        void transfer(long start, long length) throws Exception;
+    }
+
+    private SegmentUtil() {
+    }
+
+    /**
+     * 将文件按字节切分为不超过segmentCount段，每段不小于minSegmentSize（最后一段除外）
+     *
+     * @param totalSize      文件总大小
+     * @param segmentCount   期望的分段数
+     * @param minSegmentSize 每段最小字节数
+     * @return 每个元素为{start, length}
+     */
+    public static List<long[]> split(long totalSize, int segmentCount, long minSegmentSize) {
+        List<long[]> segments = new ArrayList<>();
+        if (totalSize <= 0) {
+            return segments;
+        }
+        long maxCount = Math.max(1, totalSize / Math.max(1, minSegmentSize));
+        int count = (int) Math.max(1, Math.min(segmentCount, maxCount));
+        long segmentSize = totalSize / count;
+        long start = 0;
+        for (int i = 0; i < count; i++) {
+            long length = (i == count - 1) ? totalSize - start : segmentSize;
+            segments.add(new long[]{start, length});
+            start += length;
+        }
+        return segments;
+    }
+
+    /**
+     * 并行执行所有分段，任一分段失败则取消其余分段，等待所有分段线程结束后抛出异常
+     *
+     * @param segments         分段列表
+     * @param threadNamePrefix 线程名前缀
+     * @param task             分段任务
+     * @throws Exception
+     */
+    public static void runSegments(List<long[]> segments,
+                                   String threadNamePrefix,
+                                   SegmentTask task) throws Exception {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(segments.size(), runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>(segments.size());
+        try {
+            for (long[] segment : segments) {
+                futures.add(executor.submit(() -> {
+                    task.transfer(segment[0], segment[1]);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    for (Future<?> other : futures) {
+                        other.cancel(true);
+                    }
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw new FTPClientUtilException("分段传输失败！", cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    /**
+     * 等待所有分段线程结束：取消的分段可能仍在写入本地文件，返回后调用方才能安全地关闭文件
+     *
+     * @param executor
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 从输入流中读取length个字节，按位置写入本地文件通道，不影响通道自身的position
+     *
+     * @param inputStream 远程文件流
+     * @param fileChannel 本地文件通道
+     * @param position    写入的起始位置
+     * @param length      需要写入的字节数
+     * @param buf         中转缓冲区
+     * @return 实际写入的字节数
+     * @throws IOException
+     */
+    public static long copyToChannel(InputStream inputStream,
+                                     FileChannel fileChannel,
+                                     long position,
+                                     long length,
+                                     byte[] buf) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buf);
+        long written = 0;
+        while (written < length) {
+            int toRead = (int) Math.min(buf.length, length - written);
+            int bytesRead = inputStream.read(buf, 0, toRead);
+            if (bytesRead < 0) {
+                throw new IOException(String.format("远程文件流提前结束，期望读取%d字节，实际读取%d字节", length, written));
+            }
+            byteBuffer.clear().limit(bytesRead);
+            while (byteBuffer.hasRemaining()) {
+                fileChannel.write(byteBuffer, position + written + byteBuffer.position());
+            }
+            written += bytesRead;
+        }
+        return written;
+    }
+
+    /**
+     * 按位置从本地文件通道读取length个字节并写入输出流，不影响通道自身的position，多个分段可共享同一个通道
+     *
+     * @param fileChannel  本地文件通道
+     * @param position     读取的起始位置
+     * @param length       需要读取的字节数
+     * @param outputStream 远程文件流
+     * @param buf          中转缓冲区
+     * @return 实际写出的字节数
+     * @throws IOException
+     */
+    public static long copyFromChannel(FileChannel fileChannel,
+                                       long position,
+                                       long length,
+                                       OutputStream outputStream,
+                                       byte[] buf) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buf);
+        long read = 0;
+        while (read < length) {
+            byteBuffer.clear().limit((int) Math.min(buf.length, length - read));
+            int bytesRead = fileChannel.read(byteBuffer, position + read);
+            if (bytesRead < 0) {
+                throw new IOException(String.format("本地文件提前结束，期望读取%d字节，实际读取%d字节", length, read));
+            }
+            outputStream.write(buf, 0, bytesRead);
+            read += bytesRead;
+        }
+        outputStream.flush();
+        return read;
+    }
+}
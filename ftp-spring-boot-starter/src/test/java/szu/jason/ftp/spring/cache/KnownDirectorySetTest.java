@@ -0,0 +1,54 @@
+package szu.jason.ftp.spring.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 已知目录集合的上级目录传递、规范化、子树移除和容量上限
+ */
+public class KnownDirectorySetTest {
+
+    @Test
+    public void testDisabledByDefault() {
+        KnownDirectorySet knownDirectories = new KnownDirectorySet(new FTPClientUtilProperties().getKnownDirMaxSize());
+        knownDirectories.add("/data/in");
+        Assert.assertFalse(knownDirectories.contains("/data/in"));
+        Assert.assertEquals(0, knownDirectories.getSize());
+    }
+
+    @Test
+    public void testAddIncludesParents() {
+        KnownDirectorySet knownDirectories = new KnownDirectorySet(100);
+        knownDirectories.add("/data/in/2026/");
+        Assert.assertTrue(knownDirectories.contains("/data/in/2026"));
+        Assert.assertTrue(knownDirectories.contains("/data/in"));
+        Assert.assertTrue(knownDirectories.contains("//data/"));
+        Assert.assertFalse(knownDirectories.contains("/data/out"));
+        Assert.assertEquals(3, knownDirectories.getSize());
+    }
+
+    @Test
+    public void testRemoveTree() {
+        KnownDirectorySet knownDirectories = new KnownDirectorySet(100);
+        knownDirectories.add("/data/in/2026");
+        knownDirectories.add("/data/inbox");
+        knownDirectories.removeTree("/data/in/");
+        Assert.assertFalse(knownDirectories.contains("/data/in"));
+        Assert.assertFalse(knownDirectories.contains("/data/in/2026"));
+        // 前缀相同但不是子目录
+        Assert.assertTrue(knownDirectories.contains("/data/inbox"));
+        Assert.assertTrue(knownDirectories.contains("/data"));
+    }
+
+    @Test
+    public void testBoundedSize() {
+        KnownDirectorySet knownDirectories = new KnownDirectorySet(5);
+        for (int i = 0; i < 20; i++) {
+            knownDirectories.add("/dir" + i);
+        }
+        Assert.assertEquals(5, knownDirectories.getSize());
+    }
+}
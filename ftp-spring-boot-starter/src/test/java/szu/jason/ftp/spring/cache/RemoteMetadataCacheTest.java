@@ -0,0 +1,110 @@
+package szu.jason.ftp.spring.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 元数据缓存的过期、LRU淘汰、失效以及命中统计
+ */
+public class RemoteMetadataCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        RemoteMetadataCache<String> cache = new RemoteMetadataCache<>(true, 60000, 16);
+        Assert.assertNull(cache.get("/data/a.txt"));
+        cache.put("/data/a.txt", true, "attrs");
+        cache.put("/data/missing.txt", false, null);
+
+        RemoteMetadataCache.Entry<String> entry = cache.get("/data/a.txt");
+        Assert.assertNotNull(entry);
+        Assert.assertTrue(entry.isExist());
+        Assert.assertEquals("attrs", entry.getAttributes());
+        // 不存在也会被缓存
+        Assert.assertFalse(cache.get("/data/missing.txt").isExist());
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testPathIsNormalized() {
+        RemoteMetadataCache<String> cache = new RemoteMetadataCache<>(true, 60000, 16);
+        cache.put("/data//dir/", true, null);
+        Assert.assertNotNull(cache.get("/data/dir"));
+        Assert.assertNotNull(cache.get("//data/dir//"));
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testExpiredEntryIsRemoved() throws Exception {
+        RemoteMetadataCache<String> cache = new RemoteMetadataCache<>(true, 50, 16);
+        cache.put("/data/a.txt", true, null);
+        Assert.assertNotNull(cache.get("/data/a.txt"));
+        Thread.sleep(100);
+        Assert.assertNull(cache.get("/data/a.txt"));
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        RemoteMetadataCache<String> cache = new RemoteMetadataCache<>(true, 60000, 2);
+        cache.put("/a", true, null);
+        cache.put("/b", true, null);
+        // 访问/a后，/b成为最近最少使用的条目
+        Assert.assertNotNull(cache.get("/a"));
+        cache.put("/c", true, null);
+
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNotNull(cache.get("/a"));
+        Assert.assertNull(cache.get("/b"));
+        Assert.assertNotNull(cache.get("/c"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        RemoteMetadataCache<String> cache = new RemoteMetadataCache<>(true, 60000, 16);
+        cache.put("/data/a.txt", true, null);
+        cache.put("/data/b.txt", true, null);
+        cache.invalidate("/data/a.txt");
+        Assert.assertNull(cache.get("/data/a.txt"));
+        Assert.assertNotNull(cache.get("/data/b.txt"));
+    }
+
+    @Test
+    public void testInvalidateTree() {
+        RemoteMetadataCache<String> cache = new RemoteMetadataCache<>(true, 60000, 16);
+        cache.put("/data", true, null);
+        cache.put("/data/dir", true, null);
+        cache.put("/data/dir/a.txt", true, null);
+        cache.put("/data/dir2/a.txt", true, null);
+        cache.put("/data/dir/sub/b.txt", true, null);
+
+        cache.invalidateTree("/data/dir/");
+        Assert.assertNull(cache.get("/data/dir"));
+        Assert.assertNull(cache.get("/data/dir/a.txt"));
+        Assert.assertNull(cache.get("/data/dir/sub/b.txt"));
+        // 前缀相同但不在目录下的路径保留
+        Assert.assertNotNull(cache.get("/data/dir2/a.txt"));
+        Assert.assertNotNull(cache.get("/data"));
+
+        cache.invalidateTree("/");
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testDisabled() {
+        RemoteMetadataCache<String> disabled = new RemoteMetadataCache<>(false, 60000, 16);
+        disabled.put("/a", true, null);
+        Assert.assertNull(disabled.get("/a"));
+        Assert.assertEquals(0, disabled.getSize());
+        Assert.assertEquals(0, disabled.getMissCount());
+
+        // ttl或容量不大于0时同样不启用
+        Assert.assertFalse(new RemoteMetadataCache<String>(true, 0, 16).isEnabled());
+        Assert.assertFalse(new RemoteMetadataCache<String>(true, 60000, 0).isEnabled());
+    }
+}
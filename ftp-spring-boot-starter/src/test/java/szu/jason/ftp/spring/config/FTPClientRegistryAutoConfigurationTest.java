@@ -0,0 +1,83 @@
+package szu.jason.ftp.spring.config;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.FTPClientUtilRegistry;
+import szu.jason.ftp.spring.FTPClientsProperties;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.impl.PooledFTPClientUtilImpl;
+import szu.jason.ftp.spring.impl.PooledSFTPClientUtilImpl;
+import szu.jason.ftp.spring.pool.KeyedFTPClientPool;
+
+import java.util.Arrays;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : ftp.clients.*的绑定、多客户端自动配置的生效条件以及按名称获取客户端，只创建连接池不建立连接
+ */
+public class FTPClientRegistryAutoConfigurationTest {
+
+    private AnnotationConfigApplicationContext context;
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    public void testNotActiveWithoutClients() {
+        load("ftp.client.hostname=ftp.example.com");
+        Assert.assertTrue(context.getBeansOfType(FTPClientUtilRegistry.class).isEmpty());
+        Assert.assertTrue(context.getBeansOfType(KeyedFTPClientPool.class).isEmpty());
+    }
+
+    @Test
+    public void testClientsAreBound() {
+        load("ftp.clients.reports.hostname=ftp.example.com",
+                "ftp.clients.reports.max-total=3",
+                "ftp.clients.archive.protocol=sftp",
+                "ftp.clients.archive.hostname=sftp.example.com",
+                "ftp.clients.archive.port=22",
+                "ftp.keyed-pool.max-total=10");
+
+        FTPClientsProperties properties = context.getBean(FTPClientsProperties.class);
+        FTPClientUtilProperties reports = properties.getClients().get("reports");
+        Assert.assertEquals("ftp.example.com", reports.getHostname());
+        Assert.assertEquals(3, reports.getMaxTotal());
+        Assert.assertEquals(22, properties.getClients().get("archive").getPort());
+        Assert.assertEquals(10, properties.getKeyedPool().getMaxTotal());
+        Assert.assertEquals(10, context.getBean(KeyedFTPClientPool.class).getMaxTotal());
+
+        FTPClientUtilRegistry registry = context.getBean(FTPClientUtilRegistry.class);
+        Assert.assertEquals(2, registry.getNames().size());
+        Assert.assertTrue(registry.getNames().containsAll(Arrays.asList("reports", "archive")));
+        Assert.assertTrue(registry.get("reports") instanceof PooledFTPClientUtilImpl);
+        Assert.assertTrue(registry.get("archive") instanceof PooledSFTPClientUtilImpl);
+        Assert.assertFalse(registry.contains("missing"));
+    }
+
+    @Test
+    public void testUnknownClient() {
+        load("ftp.clients.reports.hostname=ftp.example.com");
+        try {
+            context.getBean(FTPClientUtilRegistry.class).get("missing");
+            Assert.fail("未配置的客户端应抛出异常");
+        } catch (FTPClientUtilException e) {
+            Assert.assertTrue(e.getMessage().contains("reports"));
+        }
+    }
+
+    private void load(String... environment) {
+        context = new AnnotationConfigApplicationContext();
+        EnvironmentTestUtils.addEnvironment(context, environment);
+        context.register(FTPClientRegistryAutoConfiguration.class);
+        context.refresh();
+    }
+}
@@ -0,0 +1,128 @@
+package szu.jason.ftp.spring.factory;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : FTP连接的校验，最近归还的连接跳过NOOP，校验失败的连接被连接池销毁
+ */
+public class FTPClientPooledObjectFactoryTest {
+
+    @Test
+    public void testRecentlyReturnedSkipsNoOp() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setValidationSkipIdleMillis(3000);
+        FTPClientPooledObjectFactory factory = new FTPClientPooledObjectFactory(properties);
+        FTPClient ftpClient = connectedClient(true);
+
+        Assert.assertTrue(factory.validateObject(idleFor(ftpClient, 100)));
+        verify(ftpClient, never()).sendNoOp();
+
+        // 空闲超过跳过窗口后发送NOOP
+        Assert.assertTrue(factory.validateObject(idleFor(ftpClient, 10000)));
+        verify(ftpClient, times(1)).sendNoOp();
+    }
+
+    @Test
+    public void testSkipWindowDisabled() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setValidationSkipIdleMillis(0);
+        FTPClientPooledObjectFactory factory = new FTPClientPooledObjectFactory(properties);
+        FTPClient ftpClient = connectedClient(true);
+
+        Assert.assertTrue(factory.validateObject(idleFor(ftpClient, 0)));
+        verify(ftpClient, times(1)).sendNoOp();
+    }
+
+    @Test
+    public void testValidationFailures() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        FTPClientPooledObjectFactory factory = new FTPClientPooledObjectFactory(properties);
+
+        // 已断开的连接即使刚归还也不通过校验
+        Assert.assertFalse(factory.validateObject(idleFor(mock(FTPClient.class), 0)));
+
+        FTPClient refused = connectedClient(false);
+        Assert.assertFalse(factory.validateObject(idleFor(refused, 10000)));
+
+        FTPClient broken = mock(FTPClient.class);
+        when(broken.isConnected()).thenReturn(true);
+        when(broken.sendNoOp()).thenThrow(new IOException("Connection reset"));
+        Assert.assertFalse(factory.validateObject(idleFor(broken, 10000)));
+    }
+
+    @Test
+    public void testFailedValidationDestroysConnection() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setValidationSkipIdleMillis(0);
+        properties.setMaxTotal(1);
+        properties.setTestOnBorrow(true);
+        List<FTPClient> created = new ArrayList<>();
+        FTPClientPooledObjectFactory factory = new FTPClientPooledObjectFactory(properties) {
+            @Override
+            public PooledObject<FTPClient> makeObject() {
+                FTPClient ftpClient = connectedClient(!created.isEmpty());
+                created.add(ftpClient);
+                return new DefaultPooledObject<>(ftpClient);
+            }
+        };
+        GenericObjectPool<FTPClient> pool = new GenericObjectPool<>(factory, properties);
+        try {
+            // 第一个连接NOOP失败，借用时被销毁并重新创建
+            pool.addObject();
+            FTPClient ftpClient = pool.borrowObject();
+            Assert.assertEquals(2, created.size());
+            Assert.assertSame(created.get(1), ftpClient);
+            verify(created.get(0)).disconnect();
+            Assert.assertEquals(1, pool.getDestroyedByBorrowValidationCount());
+            pool.returnObject(ftpClient);
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * @param noOpReply NOOP是否成功
+     * @return
+     */
+    private static FTPClient connectedClient(boolean noOpReply) {
+        FTPClient ftpClient = mock(FTPClient.class);
+        when(ftpClient.isConnected()).thenReturn(true);
+        try {
+            when(ftpClient.sendNoOp()).thenReturn(noOpReply);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return ftpClient;
+    }
+
+    /**
+     * 归还后已空闲idleMillis毫秒的连接
+     */
+    static <T> PooledObject<T> idleFor(T object, long idleMillis) {
+        long lastReturnTime = System.currentTimeMillis() - idleMillis;
+        return new DefaultPooledObject<T>(object) {
+            @Override
+            public long getLastReturnTime() {
+                return lastReturnTime;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package szu.jason.ftp.spring.factory;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.SFTPConnector;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : SFTP通道的校验，最近归还的通道跳过realpath，通道或会话断开、realpath失败时不通过校验
+ */
+public class SFTPClientPooledObjectFactoryTest {
+
+    @Test
+    public void testRecentlyReturnedSkipsRealpath() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setValidationSkipIdleMillis(3000);
+        SFTPClientPooledObjectFactory factory = new SFTPClientPooledObjectFactory(properties);
+        SFTPConnector sftpConnector = connector(true, true);
+
+        Assert.assertTrue(factory.validateObject(FTPClientPooledObjectFactoryTest.idleFor(sftpConnector, 100)));
+        verify(sftpConnector.getChannelSftp(), never()).realpath(".");
+
+        Assert.assertTrue(factory.validateObject(FTPClientPooledObjectFactoryTest.idleFor(sftpConnector, 10000)));
+        verify(sftpConnector.getChannelSftp(), times(1)).realpath(".");
+    }
+
+    @Test
+    public void testValidationFailures() throws Exception {
+        SFTPClientPooledObjectFactory factory = new SFTPClientPooledObjectFactory(new FTPClientUtilProperties());
+
+        Assert.assertFalse(factory.validateObject(FTPClientPooledObjectFactoryTest.idleFor(connector(false, true), 0)));
+        Assert.assertFalse(factory.validateObject(FTPClientPooledObjectFactoryTest.idleFor(connector(true, false), 0)));
+
+        SFTPConnector broken = connector(true, true);
+        when(broken.getChannelSftp().realpath(".")).thenThrow(
+                new SftpException(ChannelSftp.SSH_FX_CONNECTION_LOST, "connection lost"));
+        Assert.assertFalse(factory.validateObject(FTPClientPooledObjectFactoryTest.idleFor(broken, 10000)));
+    }
+
+    private static SFTPConnector connector(boolean channelConnected, boolean sessionConnected) {
+        Session session = mock(Session.class);
+        when(session.isConnected()).thenReturn(sessionConnected);
+        ChannelSftp channelSftp = mock(ChannelSftp.class);
+        when(channelSftp.isConnected()).thenReturn(channelConnected);
+        return new SFTPConnector(session, channelSftp);
+    }
+}
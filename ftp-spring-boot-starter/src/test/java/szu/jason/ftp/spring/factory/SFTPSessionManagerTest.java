@@ -0,0 +1,54 @@
+package szu.jason.ftp.spring.factory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+import java.util.Properties;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : SSH会话配置，压缩只在classpath中存在jzlib时协商
+ */
+public class SFTPSessionManagerTest {
+
+    @Test
+    public void testZlibDetectionMatchesClasspath() {
+        boolean present;
+        try {
+            Class.forName("com.jcraft.jzlib.ZStream");
+            present = true;
+        } catch (ClassNotFoundException e) {
+            present = false;
+        }
+        Assert.assertEquals(present, SFTPSessionManager.ZLIB_AVAILABLE);
+    }
+
+    @Test
+    public void testCompressionNegotiatedWhenZlibAvailable() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setCompressionEnabled(true);
+        properties.setCompressionLevel(9);
+        Properties config = SFTPSessionManager.sessionConfig(properties, true);
+        Assert.assertEquals("zlib@openssh.com,zlib,none", config.getProperty("compression.s2c"));
+        Assert.assertEquals("zlib@openssh.com,zlib,none", config.getProperty("compression.c2s"));
+        Assert.assertEquals("9", config.getProperty("compression_level"));
+    }
+
+    @Test
+    public void testCompressionSkippedWithoutZlib() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setCompressionEnabled(true);
+        Properties config = SFTPSessionManager.sessionConfig(properties, false);
+        Assert.assertNull(config.getProperty("compression.s2c"));
+        Assert.assertNull(config.getProperty("compression.c2s"));
+        Assert.assertEquals("no", config.getProperty("StrictHostKeyChecking"));
+    }
+
+    @Test
+    public void testCompressionDisabled() {
+        Properties config = SFTPSessionManager.sessionConfig(new FTPClientUtilProperties(), true);
+        Assert.assertNull(config.getProperty("compression.s2c"));
+    }
+}
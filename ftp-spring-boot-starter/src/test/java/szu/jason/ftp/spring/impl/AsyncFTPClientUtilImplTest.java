@@ -0,0 +1,85 @@
+package szu.jason.ftp.spring.impl;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtil;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 异步客户端同时执行的操作数跟随连接池当前上限
+ */
+public class AsyncFTPClientUtilImplTest {
+
+    private GenericObjectPool<FTPClient> pool;
+
+    private AsyncFTPClientUtilImpl asyncFTPClientUtil;
+
+    @After
+    public void tearDown() {
+        if (asyncFTPClientUtil != null) {
+            asyncFTPClientUtil.shutdown();
+        }
+        pool.close();
+    }
+
+    @Test
+    public void testMaxTotalOf() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setMaxTotal(4);
+        PooledFTPClientUtilImpl ftpClientUtil = new PooledFTPClientUtilImpl(newPool(properties), properties);
+        pool.setMaxTotal(6);
+        Assert.assertEquals(6, AsyncFTPClientUtilImpl.maxTotalOf(ftpClientUtil, properties));
+        // 无法读取连接池时使用配置值
+        Assert.assertEquals(4, AsyncFTPClientUtilImpl.maxTotalOf(mock(FTPClientUtil.class), properties));
+    }
+
+    @Test
+    public void testConcurrencyFollowsPoolMaxTotal() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setMaxTotal(1);
+        properties.setAsyncVirtualThreads(false);
+        properties.setAsyncThreads(4);
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch finish = new CountDownLatch(1);
+        PooledFTPClientUtilImpl ftpClientUtil = new PooledFTPClientUtilImpl(newPool(properties), properties) {
+            @Override
+            public boolean isRemotePathExist(String remotePath) throws Exception {
+                running.incrementAndGet();
+                return finish.await(5, TimeUnit.SECONDS);
+            }
+        };
+        asyncFTPClientUtil = new AsyncFTPClientUtilImpl(ftpClientUtil, properties);
+
+        CompletableFuture<Boolean> first = asyncFTPClientUtil.isRemotePathExist("/a");
+        CompletableFuture<Boolean> second = asyncFTPClientUtil.isRemotePathExist("/b");
+        Thread.sleep(300);
+        Assert.assertEquals(1, running.get());
+        // 连接池上限被调大后，等待中的操作无需等到其他操作结束
+        pool.setMaxTotal(2);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (running.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(2, running.get());
+        finish.countDown();
+        Assert.assertTrue(first.get(2, TimeUnit.SECONDS));
+        Assert.assertTrue(second.get(2, TimeUnit.SECONDS));
+    }
+
+    private GenericObjectPool<FTPClient> newPool(FTPClientUtilProperties properties) {
+        pool = MockConnections.pool(() -> mock(FTPClient.class), properties);
+        return pool;
+    }
+}
@@ -0,0 +1,122 @@
+package szu.jason.ftp.spring.impl;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.RemoteFileInfo;
+import szu.jason.ftp.spring.factory.StreamingFTPClient;
+
+import java.io.ByteArrayInputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 惰性列目录，MLSD从数据连接逐行解析，不支持时退回LIST的分页解析。FTPClient由Mockito模拟，无需FTP服务器
+ */
+public class FTPStreamListingTest {
+
+    private GenericObjectPool<FTPClient> pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testMlsdStreamedPerLine() throws Exception {
+        StreamingFTPClient ftpClient = mockStreamingFtpClient();
+        Socket rootSocket = mockSocket("type=cdir;modify=20261017000000; .\r\n"
+                + "type=file;size=3;modify=20261017000000; a.csv\r\n"
+                + "type=dir;modify=20261017000000; sub\r\n");
+        Socket subSocket = mockSocket("type=file;size=5;modify=20261017000000; b.csv\r\n");
+        when(ftpClient.openDataConnection("MLSD", "/data/")).thenReturn(rootSocket);
+        when(ftpClient.openDataConnection("MLSD", "/data/sub/")).thenReturn(subSocket);
+        PooledFTPClientUtilImpl ftpClientUtil = pooledUtil(ftpClient);
+
+        List<String> paths;
+        try (Stream<RemoteFileInfo> stream = ftpClientUtil.streamRemoteFileByDir("/data", true)) {
+            paths = stream.map(remoteFileInfo -> remoteFileInfo.getPath() + remoteFileInfo.getName())
+                    .collect(Collectors.toList());
+        }
+        Assert.assertEquals(2, paths.size());
+        Assert.assertTrue(paths.contains("/data/a.csv"));
+        Assert.assertTrue(paths.contains("/data/sub/b.csv"));
+        verify(ftpClient, times(2)).completePendingCommand();
+        verify(ftpClient, never()).mlistDir(anyString());
+        verify(ftpClient, never()).initiateListParsing(anyString());
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+    @Test
+    public void testEarlyCloseAbortsMlsd() throws Exception {
+        StreamingFTPClient ftpClient = mockStreamingFtpClient();
+        Socket socket = mockSocket("type=file;size=1; a.csv\r\ntype=file;size=1; b.csv\r\ntype=file;size=1; c.csv\r\n");
+        when(ftpClient.openDataConnection("MLSD", "/data/")).thenReturn(socket);
+        PooledFTPClientUtilImpl ftpClientUtil = pooledUtil(ftpClient);
+
+        try (Stream<RemoteFileInfo> stream = ftpClientUtil.streamRemoteFileByDir("/data", false)) {
+            Assert.assertEquals("a.csv", stream.findFirst().get().getName());
+        }
+        // 提前关闭时关闭数据连接并读取426应答，连接可继续复用
+        verify(socket).close();
+        verify(ftpClient, times(1)).completePendingCommand();
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+    @Test
+    public void testFallbackToListWithoutMlsd() throws Exception {
+        StreamingFTPClient ftpClient = mockStreamingFtpClient();
+        when(ftpClient.openDataConnection("MLSD", "/data/")).thenReturn(null);
+        when(ftpClient.getReplyCode()).thenReturn(500);
+        FTPListParseEngine parseEngine = new FTPListParseEngine(new UnixFTPEntryParser());
+        parseEngine.readServerList(new ByteArrayInputStream(
+                "-rw-r--r--   1 ftp ftp   3 Oct 17 00:00 a.csv\r\n".getBytes("UTF-8")), "UTF-8");
+        when(ftpClient.initiateListParsing("/data/")).thenReturn(parseEngine);
+        PooledFTPClientUtilImpl ftpClientUtil = pooledUtil(ftpClient);
+
+        try (Stream<RemoteFileInfo> stream = ftpClientUtil.streamRemoteFileByDir("/data", false)) {
+            Assert.assertEquals(1, stream.count());
+        }
+        verify(ftpClient).initiateListParsing("/data/");
+    }
+
+    private StreamingFTPClient mockStreamingFtpClient() throws Exception {
+        StreamingFTPClient ftpClient = mock(StreamingFTPClient.class);
+        when(ftpClient.isConnected()).thenReturn(true);
+        when(ftpClient.hasFeature("MLST")).thenReturn(true);
+        when(ftpClient.getControlEncoding()).thenReturn("UTF-8");
+        when(ftpClient.completePendingCommand()).thenReturn(true);
+        return ftpClient;
+    }
+
+    private static Socket mockSocket(String lines) throws Exception {
+        Socket socket = mock(Socket.class);
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(lines.getBytes("UTF-8")));
+        return socket;
+    }
+
+    private PooledFTPClientUtilImpl pooledUtil(FTPClient ftpClient) {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setMaxTotal(1);
+        pool = MockConnections.pool(() -> ftpClient, properties);
+        return new PooledFTPClientUtilImpl(pool, properties);
+    }
+}
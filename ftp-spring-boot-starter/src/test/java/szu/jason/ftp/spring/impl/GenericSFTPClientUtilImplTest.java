@@ -0,0 +1,41 @@
+package szu.jason.ftp.spring.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 服务端复制命令的参数转义、退出码与改用流式复制的对应关系、错误输出的上限
+ */
+public class GenericSFTPClientUtilImplTest {
+
+    @Test
+    public void testQuoteShellArgument() {
+        Assert.assertEquals("'/data/in/a.csv'", GenericSFTPClientUtilImpl.quoteShellArgument("/data/in/a.csv"));
+        Assert.assertEquals("'/data/it'\\''s/a b.csv'", GenericSFTPClientUtilImpl.quoteShellArgument("/data/it's/a b.csv"));
+        // 单引号内的$、`、;等均不会被shell解释
+        Assert.assertEquals("'$(rm -rf ~);`id`'", GenericSFTPClientUtilImpl.quoteShellArgument("$(rm -rf ~);`id`"));
+        Assert.assertEquals("''", GenericSFTPClientUtilImpl.quoteShellArgument(""));
+    }
+
+    @Test
+    public void testExecRefusedExitStatus() {
+        Assert.assertTrue(GenericSFTPClientUtilImpl.isExecRefused(126));
+        Assert.assertTrue(GenericSFTPClientUtilImpl.isExecRefused(127));
+        Assert.assertTrue(GenericSFTPClientUtilImpl.isExecRefused(-1));
+        // cp自身的失败只影响本次复制
+        Assert.assertFalse(GenericSFTPClientUtilImpl.isExecRefused(1));
+        Assert.assertFalse(GenericSFTPClientUtilImpl.isExecRefused(0));
+    }
+
+    @Test
+    public void testBoundedOutputStream() throws Exception {
+        GenericSFTPClientUtilImpl.BoundedOutputStream outputStream = new GenericSFTPClientUtilImpl.BoundedOutputStream(10);
+        outputStream.write("cp: ".getBytes("UTF-8"));
+        outputStream.write(new byte[100], 0, 100);
+        outputStream.write('x');
+        Assert.assertEquals(10, outputStream.size());
+        Assert.assertTrue(outputStream.toString("UTF-8").startsWith("cp: "));
+    }
+}
@@ -0,0 +1,64 @@
+package szu.jason.ftp.spring.impl;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import szu.jason.ftp.spring.SFTPConnector;
+
+import java.util.concurrent.Callable;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 测试用的连接池与模拟连接，连接由Mockito模拟，无需FTP、SFTP服务器
+ */
+final class MockConnections {
+
+    private MockConnections() {
+    }
+
+    /**
+     * 创建连接池，每次创建连接时调用creator
+     *
+     * @param creator 创建连接，抛出异常表示连接建立失败
+     * @param config  连接池配置，通常为FTPClientUtilProperties
+     * @param <T>
+     * @return
+     */
+    static <T> GenericObjectPool<T> pool(Callable<T> creator, GenericObjectPoolConfig config) {
+        return new GenericObjectPool<>(new BasePooledObjectFactory<T>() {
+            @Override
+            public T create() throws Exception {
+                return creator.call();
+            }
+
+            @Override
+            public PooledObject<T> wrap(T connection) {
+                return new DefaultPooledObject<>(connection);
+            }
+        }, config);
+    }
+
+    /**
+     * 模拟已连接的SFTP连接，会话为已连接状态
+     *
+     * @param session     模拟的会话，为null时新建
+     * @param channelSftp 模拟的SFTP通道，设为已连接状态
+     * @return
+     */
+    static SFTPConnector sftpConnector(Session session, ChannelSftp channelSftp) {
+        if (session == null) {
+            session = mock(Session.class);
+        }
+        when(session.isConnected()).thenReturn(true);
+        when(channelSftp.isConnected()).thenReturn(true);
+        return new SFTPConnector(session, channelSftp);
+    }
+}
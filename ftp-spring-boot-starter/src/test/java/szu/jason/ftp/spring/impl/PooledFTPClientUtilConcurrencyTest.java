@@ -0,0 +1,136 @@
+package szu.jason.ftp.spring.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 连接池压力测试，maxTotal个调用方同时执行上传、下载、移动和复制，
+ * 任何操作内部再次借用连接都会在连接池耗尽时等待超时，从而使测试失败。FTPClient由Mockito模拟，无需FTP服务器
+ */
+@Slf4j
+public class PooledFTPClientUtilConcurrencyTest {
+
+    private final static int MAX_TOTAL = 4;
+
+    private final static int ROUNDS = 50;
+
+    private final static long BORROW_TIMEOUT_MILLIS = 5000;
+
+    private final static byte[] CONTENT = "id,name\n1,vander\n".getBytes();
+
+    private GenericObjectPool<FTPClient> pool;
+
+    private PooledFTPClientUtilImpl ftpClientUtil;
+
+    @Before
+    public void setUp() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setMaxTotal(MAX_TOTAL);
+        properties.setMaxIdle(MAX_TOTAL);
+        properties.setBlockWhenExhausted(true);
+        properties.setMaxWaitMillis(BORROW_TIMEOUT_MILLIS);
+        pool = MockConnections.pool(PooledFTPClientUtilConcurrencyTest::mockFtpClient, properties);
+        ftpClientUtil = new PooledFTPClientUtilImpl(pool, properties);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testNoStarvationAtMaxTotalCallers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_TOTAL);
+        CyclicBarrier barrier = new CyclicBarrier(MAX_TOTAL);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < MAX_TOTAL; i++) {
+                int caller = i;
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        String remoteDir = String.format("/incoming/%d/%d", caller, round);
+                        ftpClientUtil.put(new ByteArrayInputStream(CONTENT), remoteDir, "test.csv", ".tmp");
+                        ftpClientUtil.get(new ByteArrayOutputStream(), remoteDir, "test.csv");
+                        ftpClientUtil.copy(remoteDir, "/work", "test.csv", ".tmp", "test-" + caller + ".csv");
+                        ftpClientUtil.move(remoteDir, "/done", "test.csv");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(BORROW_TIMEOUT_MILLIS * 4, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("borrowed:{}, created:{}, maxBorrowWaitMillis:{}",
+                pool.getBorrowedCount(), pool.getCreatedCount(), pool.getMaxBorrowWaitTimeMillis());
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertTrue(pool.getCreatedCount() <= MAX_TOTAL);
+    }
+
+    @Test
+    public void testBrokenConnectionIsInvalidated() throws Exception {
+        FTPClient ftpClient = pool.borrowObject();
+        when(ftpClient.retrieveFileStream(anyString())).thenThrow(new SocketTimeoutException("Read timed out"));
+        pool.returnObject(ftpClient);
+        try {
+            ftpClientUtil.get(new ByteArrayOutputStream(), "/incoming", "test.csv");
+            Assert.fail("读超时应抛出异常");
+        } catch (Exception e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertEquals(0, pool.getNumIdle());
+        Assert.assertEquals(1, pool.getDestroyedCount());
+
+        // 文件不存在只是错误应答，连接应放回复用
+        ftpClient = pool.borrowObject();
+        reset(ftpClient);
+        when(ftpClient.isConnected()).thenReturn(true);
+        when(ftpClient.listFiles(anyString())).thenReturn(new FTPFile[0]);
+        pool.returnObject(ftpClient);
+        Assert.assertFalse(ftpClientUtil.isFileExist("/incoming/missing.csv"));
+        Assert.assertEquals(1, pool.getNumIdle());
+        Assert.assertEquals(1, pool.getDestroyedCount());
+    }
+
+    private static FTPClient mockFtpClient() throws Exception {
+        FTPClient ftpClient = mock(FTPClient.class);
+        when(ftpClient.isConnected()).thenReturn(true);
+        when(ftpClient.listNames(anyString())).thenAnswer(invocation -> {
+            // 模拟网络往返，增加调用方之间的重叠
+            Thread.sleep(1);
+            return new String[]{"test.csv"};
+        });
+        when(ftpClient.changeWorkingDirectory(anyString())).thenReturn(true);
+        when(ftpClient.makeDirectory(anyString())).thenReturn(true);
+        when(ftpClient.storeFileStream(anyString())).thenAnswer(invocation -> new ByteArrayOutputStream());
+        when(ftpClient.retrieveFileStream(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+        when(ftpClient.completePendingCommand()).thenReturn(true);
+        when(ftpClient.rename(anyString(), anyString())).thenReturn(true);
+        return ftpClient;
+    }
+}
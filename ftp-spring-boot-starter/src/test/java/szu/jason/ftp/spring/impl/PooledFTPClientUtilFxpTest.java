@@ -0,0 +1,193 @@
+package szu.jason.ftp.spring.impl;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : FXP复制：成功时数据不经过本地，服务器拒绝时改用流式复制，只记住PASV、PORT的永久拒绝，失败时两端连接均被销毁。
+ * FTPClient由Mockito模拟，无需FTP服务器
+ */
+public class PooledFTPClientUtilFxpTest {
+
+    private final static int SO_TIMEOUT = 30000;
+
+    private final static int FXP_REPLY_TIMEOUT = 5000;
+
+    private GenericObjectPool<FTPClient> pool;
+
+    private PooledFTPClientUtilImpl ftpClientUtil;
+
+    private final List<FTPClient> clients = new ArrayList<>();
+
+    private volatile boolean allowPort = true;
+    /**
+     * 拒绝PORT时的应答码
+     */
+    private volatile int portReplyCode = 500;
+
+    private volatile boolean allowStore = true;
+
+    private volatile boolean replyTimeout = false;
+
+    @Before
+    public void setUp() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setFxpEnabled(true);
+        properties.setFxpReplyTimeout(FXP_REPLY_TIMEOUT);
+        properties.setMaxTotal(4);
+        properties.setMaxWaitMillis(1000);
+        pool = MockConnections.pool(this::mockFtpClient, properties);
+        ftpClientUtil = new PooledFTPClientUtilImpl(pool, properties);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testFxpCopy() throws Exception {
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", null);
+        FTPClient src = clients.get(0);
+        FTPClient dest = clients.get(1);
+        verify(dest).remoteStore("a.csv.tmp");
+        verify(src).remoteRetrieve("/in/a.csv");
+        verify(dest).rename("a.csv.tmp", "a.csv");
+        verify(src, never()).retrieveFileStream(anyString());
+        // 读应答的超时临时改为fxpReplyTimeout，结束后恢复，数据连接模式恢复为本地被动模式
+        verify(src).setSoTimeout(FXP_REPLY_TIMEOUT);
+        verify(src).setSoTimeout(SO_TIMEOUT);
+        verify(dest).setSoTimeout(SO_TIMEOUT);
+        verify(src).enterLocalPassiveMode();
+        verify(dest).enterLocalPassiveMode();
+        Assert.assertEquals(0, pool.getDestroyedCount());
+        Assert.assertEquals(2, pool.getNumIdle());
+    }
+
+    @Test
+    public void testRefusedPortFallsBackAndDestroysConnections() throws Exception {
+        allowPort = false;
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        // 目的端已进入被动模式，两端连接都被断开并销毁
+        verify(clients.get(0)).disconnect();
+        verify(clients.get(1)).disconnect();
+        Assert.assertEquals(2, pool.getDestroyedCount());
+        // 流式复制使用新连接完成
+        FTPClient src = clients.get(2);
+        FTPClient dest = clients.get(3);
+        verify(src).retrieveFileStream("/in/a.csv");
+        verify(dest).rename("b.csv.tmp", "b.csv");
+
+        // 之后复制到同一客户端不再尝试FXP
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        for (FTPClient ftpClient : clients.subList(2, clients.size())) {
+            verify(ftpClient, never()).enterRemoteActiveMode(any(InetAddress.class), anyInt());
+        }
+    }
+
+    @Test
+    public void testTransientRefusalIsNotRemembered() throws Exception {
+        allowPort = false;
+        portReplyCode = 421;
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        verify(clients.get(3)).rename("b.csv.tmp", "b.csv");
+
+        // PORT临时拒绝后，下次复制仍尝试FXP，复用流式复制归还的连接
+        allowPort = true;
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        verify(clients.get(3)).remoteStore("b.csv.tmp");
+        verify(clients.get(2)).remoteRetrieve("/in/a.csv");
+    }
+
+    @Test
+    public void testRefusedStoreIsNotRemembered() throws Exception {
+        allowStore = false;
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        verify(clients.get(3)).rename("b.csv.tmp", "b.csv");
+
+        // STOR失败与文件或目录有关，不代表服务器不支持FXP
+        allowStore = true;
+        ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        verify(clients.get(3)).remoteStore("b.csv.tmp");
+        verify(clients.get(2)).remoteRetrieve("/in/a.csv");
+    }
+
+    @Test
+    public void testReplyTimeoutDestroysBothConnections() throws Exception {
+        replyTimeout = true;
+        try {
+            ftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", null);
+            Assert.fail("等待传输完成应答超时时复制应失败");
+        } catch (FTPClientUtilException e) {
+            // expected
+        }
+        FTPClient src = clients.get(0);
+        FTPClient dest = clients.get(1);
+        verify(src).setSoTimeout(SO_TIMEOUT);
+        verify(dest).setSoTimeout(SO_TIMEOUT);
+        verify(src).disconnect();
+        verify(dest).disconnect();
+        Assert.assertEquals(2, pool.getDestroyedCount());
+        Assert.assertEquals(0, pool.getNumIdle());
+    }
+
+    private FTPClient mockFtpClient() throws Exception {
+        FTPClient ftpClient = mock(FTPClient.class);
+        AtomicBoolean connected = new AtomicBoolean(true);
+        when(ftpClient.isConnected()).thenAnswer(invocation -> connected.get());
+        doAnswer(invocation -> {
+            connected.set(false);
+            return null;
+        }).when(ftpClient).disconnect();
+        when(ftpClient.getSoTimeout()).thenReturn(SO_TIMEOUT);
+        when(ftpClient.listNames(anyString())).thenReturn(new String[]{"a.csv"});
+        when(ftpClient.changeWorkingDirectory(anyString())).thenReturn(true);
+        when(ftpClient.getDataConnectionMode()).thenReturn(FTPClient.PASSIVE_LOCAL_DATA_CONNECTION_MODE);
+        when(ftpClient.enterRemotePassiveMode()).thenReturn(true);
+        when(ftpClient.getPassiveHost()).thenReturn("127.0.0.1");
+        when(ftpClient.getPassivePort()).thenReturn(2121);
+        when(ftpClient.enterRemoteActiveMode(any(InetAddress.class), anyInt())).thenAnswer(invocation -> allowPort);
+        when(ftpClient.getReplyCode()).thenAnswer(invocation -> allowPort ? 200 : portReplyCode);
+        when(ftpClient.remoteStore(anyString())).thenAnswer(invocation -> allowStore);
+        when(ftpClient.remoteRetrieve(anyString())).thenReturn(true);
+        when(ftpClient.completePendingCommand()).thenAnswer(invocation -> {
+            if (replyTimeout) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            return true;
+        });
+        when(ftpClient.rename(anyString(), anyString())).thenReturn(true);
+        when(ftpClient.retrieveFileStream(anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream("id,name\n".getBytes()));
+        when(ftpClient.storeFileStream(anyString())).thenAnswer(invocation -> new ByteArrayOutputStream());
+        synchronized (clients) {
+            clients.add(ftpClient);
+        }
+        return ftpClient;
+    }
+}
@@ -0,0 +1,53 @@
+package szu.jason.ftp.spring.impl;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPConnectionClosedException;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : FTP连接损坏的判断，以及哪些失败归因于服务器节点
+ */
+public class PooledFTPClientUtilImplTest {
+
+    @Test
+    public void testIsBroken() {
+        FTPClient ftpClient = connectedClient(true);
+        Assert.assertFalse(PooledFTPClientUtilImpl.isBroken(ftpClient, null));
+        Assert.assertFalse(PooledFTPClientUtilImpl.isBroken(ftpClient, new FTPClientUtilException("550")));
+        Assert.assertTrue(PooledFTPClientUtilImpl.isBroken(ftpClient,
+                new FTPClientUtilException("下载失败", new SocketTimeoutException())));
+        Assert.assertTrue(PooledFTPClientUtilImpl.isBroken(connectedClient(false), null));
+    }
+
+    @Test
+    public void testIsHostFailure() {
+        FTPClient ftpClient = connectedClient(true);
+        Assert.assertTrue(PooledFTPClientUtilImpl.isHostFailure(ftpClient,
+                new FTPClientUtilException("下载失败", new SocketException("Connection reset"))));
+        Assert.assertTrue(PooledFTPClientUtilImpl.isHostFailure(ftpClient, new SocketTimeoutException()));
+        Assert.assertTrue(PooledFTPClientUtilImpl.isHostFailure(ftpClient, new FTPConnectionClosedException()));
+        Assert.assertTrue(PooledFTPClientUtilImpl.isHostFailure(connectedClient(false), null));
+        // 本地文件的IO异常会销毁连接，但不归因于节点
+        Assert.assertFalse(PooledFTPClientUtilImpl.isHostFailure(ftpClient,
+                new FTPClientUtilException("下载失败", new FileNotFoundException("/local/a.csv"))));
+        Assert.assertFalse(PooledFTPClientUtilImpl.isHostFailure(ftpClient, new IOException("No space left on device")));
+    }
+
+    private static FTPClient connectedClient(boolean connected) {
+        FTPClient ftpClient = mock(FTPClient.class);
+        when(ftpClient.isConnected()).thenReturn(connected);
+        return ftpClient;
+    }
+}
@@ -0,0 +1,199 @@
+package szu.jason.ftp.spring.impl;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.SFTPConnector;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : SFTP复制（包括服务端exec cp及其改用流式复制的情况）与建目录，连接由Mockito模拟，无需SFTP服务器
+ */
+public class PooledSFTPClientUtilCopyTest {
+
+    private final static byte[] CONTENT = "id,name\n1,vander\n".getBytes();
+
+    private GenericObjectPool<SFTPConnector> pool;
+
+    private final List<ChannelSftp> channels = new ArrayList<>();
+
+    private volatile int exitStatus;
+    /**
+     * 服务端命令一直不结束
+     */
+    private volatile boolean execHangs;
+
+    private volatile String lastCommand;
+
+    private volatile ChannelExec lastChannelExec;
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testBlankNewFilenameKeepsSourceName() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(new FTPClientUtilProperties(), -1);
+        sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", " ");
+        // 第二个连接负责写入和重命名
+        verify(channels.get(1)).rename("/out/a.csv.tmp", "/out/a.csv");
+        Assert.assertEquals(0, pool.getNumActive());
+    }
+
+    @Test
+    public void testNullSuffix() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(new FTPClientUtilProperties(), -1);
+        sftpClientUtil.copy("/in", "/out", "a.csv", null, "b.csv");
+        verify(channels.get(1)).put("/out/b.csv");
+    }
+
+    @Test
+    public void testFirstConnectionReturnedWhenSecondBorrowFails() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(new FTPClientUtilProperties(), 1);
+        try {
+            sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+            Assert.fail("第二个连接无法建立时复制应失败");
+        } catch (FTPClientUtilException e) {
+            // expected
+        }
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+    @Test
+    public void testExecCopy() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(execCopyProperties(), -1);
+        sftpClientUtil.copy("/in", "/o'ut", "a.csv", ".tmp", "b.csv");
+        Assert.assertEquals("cp -- '/in/a.csv' '/o'\\''ut/b.csv.tmp'", lastCommand);
+        verify(channels.get(0)).rename("/o'ut/b.csv.tmp", "/o'ut/b.csv");
+        verify(channels.get(0), never()).get(anyString());
+        Assert.assertEquals(1, channels.size());
+    }
+
+    @Test
+    public void testExecNotAllowedFallsBackForGood() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(execCopyProperties(), -1);
+        exitStatus = 127;
+        sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        verify(channels.get(1)).rename("/out/b.csv.tmp", "/out/b.csv");
+        // 之后不再尝试服务端复制
+        exitStatus = 0;
+        lastCommand = null;
+        sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        Assert.assertNull(lastCommand);
+    }
+
+    @Test
+    public void testExecFailureFallsBackOnce() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(execCopyProperties(), -1);
+        exitStatus = 1;
+        sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        verify(channels.get(1)).rename("/out/b.csv.tmp", "/out/b.csv");
+        exitStatus = 0;
+        lastCommand = null;
+        sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+        Assert.assertNotNull(lastCommand);
+    }
+
+    @Test
+    public void testExecTimeoutRemovesTempFile() throws Exception {
+        FTPClientUtilProperties properties = execCopyProperties();
+        properties.setSftpExecCopyTimeout(100);
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(properties, -1);
+        execHangs = true;
+        try {
+            sftpClientUtil.copy("/in", "/out", "a.csv", ".tmp", "b.csv");
+            Assert.fail("服务端命令超时时复制应失败");
+        } catch (FTPClientUtilException e) {
+            // expected
+        }
+        verify(lastChannelExec).sendSignal("KILL");
+        verify(lastChannelExec).disconnect();
+        verify(channels.get(0)).rm("/out/b.csv.tmp");
+        Assert.assertEquals(0, pool.getNumActive());
+    }
+
+    @Test
+    public void testMkDirReleasesConnection() throws Exception {
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(new FTPClientUtilProperties(), -1);
+        Assert.assertTrue(sftpClientUtil.mkDir("/out/a"));
+        // 无权限等普通错误返回false，连接仍归还连接池
+        doThrow(new SftpException(ChannelSftp.SSH_FX_PERMISSION_DENIED, "permission denied"))
+                .when(channels.get(0)).mkdir("/out/b");
+        Assert.assertFalse(sftpClientUtil.mkDir("/out/b"));
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+    private static FTPClientUtilProperties execCopyProperties() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setSftpExecCopy(true);
+        return properties;
+    }
+
+    /**
+     * @param properties
+     * @param maxConnections 最多能建立的连接数，之后的连接建立失败，小于0时不限制
+     * @return
+     */
+    private PooledSFTPClientUtilImpl pooledUtil(FTPClientUtilProperties properties, int maxConnections) {
+        properties.setMaxTotal(4);
+        properties.setMaxWaitMillis(1000);
+        AtomicInteger created = new AtomicInteger();
+        pool = MockConnections.pool(() -> {
+            if (maxConnections >= 0 && created.get() >= maxConnections) {
+                throw new IllegalStateException("服务器拒绝连接");
+            }
+            created.incrementAndGet();
+            return mockConnector();
+        }, properties);
+        return new PooledSFTPClientUtilImpl(pool, properties);
+    }
+
+    private SFTPConnector mockConnector() throws Exception {
+        Session session = mock(Session.class);
+        when(session.openChannel("exec")).thenAnswer(invocation -> {
+            ChannelExec channelExec = mock(ChannelExec.class);
+            doAnswer(setCommand -> {
+                lastCommand = (String) setCommand.getArguments()[0];
+                return null;
+            }).when(channelExec).setCommand(anyString());
+            when(channelExec.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+            when(channelExec.isClosed()).thenAnswer(isClosed -> !execHangs);
+            when(channelExec.getExitStatus()).thenAnswer(getExitStatus -> exitStatus);
+            lastChannelExec = channelExec;
+            return channelExec;
+        });
+        ChannelSftp channelSftp = mock(ChannelSftp.class);
+        when(channelSftp.lstat(anyString())).thenReturn(mock(SftpATTRS.class));
+        when(channelSftp.stat(anyString())).thenReturn(mock(SftpATTRS.class));
+        when(channelSftp.get(anyString())).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+        when(channelSftp.put(anyString())).thenAnswer(invocation -> new ByteArrayOutputStream());
+        channels.add(channelSftp);
+        return MockConnections.sftpConnector(session, channelSftp);
+    }
+}
@@ -0,0 +1,59 @@
+package szu.jason.ftp.spring.impl;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.SFTPConnector;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : SFTP连接损坏的判断，以及哪些失败归因于服务器节点
+ */
+public class PooledSFTPClientUtilImplTest {
+
+    @Test
+    public void testIsBroken() {
+        SFTPConnector sftpConnector = connector(true);
+        Assert.assertFalse(PooledSFTPClientUtilImpl.isBroken(sftpConnector, null));
+        Assert.assertFalse(PooledSFTPClientUtilImpl.isBroken(sftpConnector,
+                new SftpException(ChannelSftp.SSH_FX_NO_SUCH_FILE, "no such file")));
+        Assert.assertTrue(PooledSFTPClientUtilImpl.isBroken(sftpConnector,
+                new SftpException(ChannelSftp.SSH_FX_CONNECTION_LOST, "connection lost")));
+        Assert.assertTrue(PooledSFTPClientUtilImpl.isBroken(connector(false), null));
+    }
+
+    @Test
+    public void testIsHostFailure() {
+        SFTPConnector sftpConnector = connector(true);
+        Assert.assertTrue(PooledSFTPClientUtilImpl.isHostFailure(sftpConnector,
+                new FTPClientUtilException("上传失败", new JSchException("session is down"))));
+        Assert.assertTrue(PooledSFTPClientUtilImpl.isHostFailure(sftpConnector,
+                new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, "no connection")));
+        Assert.assertTrue(PooledSFTPClientUtilImpl.isHostFailure(connector(false), null));
+        // 本地文件的IO异常会销毁连接，但不归因于节点
+        Assert.assertFalse(PooledSFTPClientUtilImpl.isHostFailure(sftpConnector,
+                new FTPClientUtilException("下载失败", new FileNotFoundException("/local/a.csv"))));
+        Assert.assertFalse(PooledSFTPClientUtilImpl.isHostFailure(sftpConnector, new IOException("No space left on device")));
+        Assert.assertFalse(PooledSFTPClientUtilImpl.isHostFailure(sftpConnector,
+                new SftpException(ChannelSftp.SSH_FX_PERMISSION_DENIED, "permission denied")));
+    }
+
+    private static SFTPConnector connector(boolean connected) {
+        Session session = mock(Session.class);
+        when(session.isConnected()).thenReturn(connected);
+        ChannelSftp channelSftp = mock(ChannelSftp.class);
+        when(channelSftp.isConnected()).thenReturn(connected);
+        return new SFTPConnector(session, channelSftp);
+    }
+}
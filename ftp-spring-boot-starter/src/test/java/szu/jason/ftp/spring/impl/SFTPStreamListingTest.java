@@ -0,0 +1,104 @@
+package szu.jason.ftp.spring.impl;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.RemoteFileInfo;
+import szu.jason.ftp.spring.SFTPConnector;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : SFTP惰性列目录在消费方放弃读取（未关闭Stream）时停止列目录并归还连接，连接由Mockito模拟，无需SFTP服务器
+ */
+public class SFTPStreamListingTest {
+
+    /**
+     * 远程目录下的文件数，多于列目录队列的容量
+     */
+    private static final int FILE_COUNT = 5000;
+
+    private GenericObjectPool<SFTPConnector> pool;
+
+    private final AtomicInteger listed = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testAbandonedStreamReleasesConnection() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setStreamListIdleTimeout(200);
+        PooledSFTPClientUtilImpl sftpClientUtil = pooledUtil(properties);
+
+        Iterator<RemoteFileInfo> iterator = sftpClientUtil.streamRemoteFileByDir("/data", false).iterator();
+        Assert.assertEquals("file-0", iterator.next().getName());
+        // 不再读取也不关闭Stream
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getNumActive() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertTrue(listed.get() < FILE_COUNT);
+
+        // 之后读取时先取完已缓存的条目，再报告列目录已停止
+        int read = 1;
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                read++;
+            }
+            Assert.fail("列目录已停止时应抛出异常");
+        } catch (FTPClientUtilException e) {
+            // expected
+        }
+        Assert.assertTrue(read < FILE_COUNT);
+    }
+
+    private PooledSFTPClientUtilImpl pooledUtil(FTPClientUtilProperties properties) {
+        properties.setMaxTotal(1);
+        properties.setMaxWaitMillis(1000);
+        pool = MockConnections.pool(this::mockConnector, properties);
+        return new PooledSFTPClientUtilImpl(pool, properties);
+    }
+
+    private SFTPConnector mockConnector() throws Exception {
+        ChannelSftp channelSftp = mock(ChannelSftp.class);
+        doAnswer(invocation -> {
+            ChannelSftp.LsEntrySelector selector = (ChannelSftp.LsEntrySelector) invocation.getArguments()[1];
+            for (int i = 0; i < FILE_COUNT; i++) {
+                listed.incrementAndGet();
+                if (selector.select(fileEntry("file-" + i)) == ChannelSftp.LsEntrySelector.BREAK) {
+                    break;
+                }
+            }
+            return null;
+        }).when(channelSftp).ls(anyString(), any(ChannelSftp.LsEntrySelector.class));
+        return MockConnections.sftpConnector(null, channelSftp);
+    }
+
+    private static ChannelSftp.LsEntry fileEntry(String filename) {
+        SftpATTRS attrs = mock(SftpATTRS.class);
+        when(attrs.getSize()).thenReturn(1L);
+        ChannelSftp.LsEntry lsEntry = mock(ChannelSftp.LsEntry.class);
+        when(lsEntry.getFilename()).thenReturn(filename);
+        when(lsEntry.getAttrs()).thenReturn(attrs);
+        return lsEntry;
+    }
+}
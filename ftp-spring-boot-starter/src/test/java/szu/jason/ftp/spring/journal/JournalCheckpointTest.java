@@ -0,0 +1,57 @@
+package szu.jason.ftp.spring.journal;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 按checkpointBytes保存进度，以及传输失败后保存进度失败时保留传输异常
+ */
+public class JournalCheckpointTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSavedEveryCheckpointBytes() throws Exception {
+        TransferJournalStore store = new TransferJournalStore(temporaryFolder.newFolder("journal").getPath());
+        TransferJournal journal = journal();
+        JournalCheckpoint checkpoint = new JournalCheckpoint(journal, store, 10);
+        try (OutputStream outputStream = checkpoint.wrap(new ByteArrayOutputStream())) {
+            outputStream.write(new byte[9]);
+            Assert.assertEquals(0, journal.getUpdateTime());
+            outputStream.write(new byte[1]);
+        }
+        Assert.assertEquals(10, journal.getConfirmedBytes());
+        Assert.assertTrue(journal.getUpdateTime() > 0);
+    }
+
+    @Test
+    public void testSaveFailureIsSuppressed() throws Exception {
+        // 日志目录是普通文件，无法保存日志
+        File notADirectory = temporaryFolder.newFile("journal");
+        JournalCheckpoint checkpoint = new JournalCheckpoint(journal(),
+                new TransferJournalStore(notADirectory.getPath()), 10);
+        IOException failure = new IOException("Connection reset");
+        checkpoint.saveOnFailure(failure);
+        Assert.assertEquals(1, failure.getSuppressed().length);
+        Assert.assertTrue(failure.getSuppressed()[0] instanceof FTPClientUtilException);
+    }
+
+    private static TransferJournal journal() {
+        TransferJournal journal = new TransferJournal();
+        journal.setDirection(TransferJournal.DIRECTION_PUT);
+        journal.setLocalPath("/local/a.csv");
+        journal.setRemotePath("/remote/a.csv");
+        return journal;
+    }
+}
@@ -0,0 +1,132 @@
+package szu.jason.ftp.spring.pool;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 连接池自适应调节的AIMD步骤：等待时加1，拒绝时乘性收缩，持续空闲时减1
+ */
+public class AdaptivePoolControllerTest {
+
+    private StubPool pool;
+
+    private AdaptivePoolController controller;
+
+    @Before
+    public void setUp() {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setMaxTotal(8);
+        properties.setMaxIdle(8);
+        properties.setAdaptiveMinTotal(2);
+        properties.setAdaptiveMaxTotal(10);
+        properties.setAdaptiveBackoffFactor(0.5);
+        // 周期足够长，调度线程不会干扰测试，由测试直接调用adjust
+        properties.setAdaptiveIntervalMillis(600000);
+        pool = new StubPool();
+        pool.setMaxTotal(properties.getMaxTotal());
+        controller = new AdaptivePoolController(pool, properties);
+    }
+
+    @After
+    public void tearDown() {
+        controller.shutdown();
+        pool.close();
+    }
+
+    @Test
+    public void testAdditiveIncreaseWhileWaiting() {
+        pool.waiters = 1;
+        controller.adjust();
+        Assert.assertEquals(9, controller.getCurrentMaxTotal());
+        controller.adjust();
+        controller.adjust();
+        // 不超过adaptiveMaxTotal
+        Assert.assertEquals(10, controller.getCurrentMaxTotal());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnRejection() {
+        controller.onRejected();
+        Assert.assertEquals(4, controller.getCurrentMaxTotal());
+        Assert.assertEquals(4, pool.getMaxIdle());
+        // 同一周期内的多次拒绝只收缩一次
+        controller.onRejected();
+        Assert.assertEquals(4, controller.getCurrentMaxTotal());
+        // 拒绝后的冷却期内即使有等待也不扩容
+        pool.waiters = 1;
+        controller.adjust();
+        Assert.assertEquals(4, controller.getCurrentMaxTotal());
+    }
+
+    @Test
+    public void testShrinkAfterIdleIntervals() {
+        pool.idle = 1;
+        controller.adjust();
+        controller.adjust();
+        Assert.assertEquals(8, controller.getCurrentMaxTotal());
+        controller.adjust();
+        Assert.assertEquals(7, controller.getCurrentMaxTotal());
+        // 出现等待时空闲计数清零
+        pool.idle = 0;
+        pool.waiters = 1;
+        controller.adjust();
+        pool.waiters = 0;
+        pool.idle = 1;
+        controller.adjust();
+        controller.adjust();
+        Assert.assertEquals(8, controller.getCurrentMaxTotal());
+    }
+
+    @Test
+    public void testNeverBelowMinTotal() {
+        pool.setMaxTotal(3);
+        pool.idle = 1;
+        for (int i = 0; i < 12; i++) {
+            controller.adjust();
+        }
+        Assert.assertEquals(2, controller.getCurrentMaxTotal());
+    }
+
+    /**
+     * 等待线程数和空闲连接数由测试指定
+     */
+    private static class StubPool extends GenericObjectPool<Object> {
+
+        private volatile int waiters;
+
+        private volatile int idle;
+
+        StubPool() {
+            super(new BasePooledObjectFactory<Object>() {
+                @Override
+                public Object create() {
+                    return new Object();
+                }
+
+                @Override
+                public PooledObject<Object> wrap(Object obj) {
+                    return new DefaultPooledObject<>(obj);
+                }
+            });
+        }
+
+        @Override
+        public int getNumWaiters() {
+            return waiters;
+        }
+
+        @Override
+        public int getNumIdle() {
+            return idle;
+        }
+    }
+}
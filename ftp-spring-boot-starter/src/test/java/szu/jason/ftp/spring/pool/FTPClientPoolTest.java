@@ -0,0 +1,106 @@
+package szu.jason.ftp.spring.pool;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.BaseObjectPoolConfig;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 空闲连接保活默认关闭，开启后驱逐线程检测全部空闲连接并销毁校验失败的连接
+ */
+public class FTPClientPoolTest {
+
+    @Test
+    public void testKeepAliveOffByDefault() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setWarmUpPolicy(WarmUpPolicy.NONE);
+        FTPClientPool<String> pool = new FTPClientPool<>(new StubFactory(ConcurrentHashMap.newKeySet()), properties);
+        try {
+            Assert.assertFalse(pool.getTestWhileIdle());
+            Assert.assertEquals(BaseObjectPoolConfig.DEFAULT_NUM_TESTS_PER_EVICTION_RUN, pool.getNumTestsPerEvictionRun());
+            Assert.assertEquals(BaseObjectPoolConfig.DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS,
+                    pool.getTimeBetweenEvictionRunsMillis());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testKeepAliveDestroysFailedIdleConnections() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setWarmUpPolicy(WarmUpPolicy.NONE);
+        properties.setKeepAliveIdleMillis(60000);
+        properties.setValidationSkipIdleMillis(0);
+        Set<String> broken = ConcurrentHashMap.newKeySet();
+        FTPClientPool<String> pool = new FTPClientPool<>(new StubFactory(broken), properties);
+        try {
+            Assert.assertTrue(pool.getTestWhileIdle());
+            Assert.assertEquals(-1, pool.getNumTestsPerEvictionRun());
+            Assert.assertEquals(60000, pool.getTimeBetweenEvictionRunsMillis());
+
+            for (int i = 0; i < 3; i++) {
+                pool.addObject();
+            }
+            broken.add("conn-2");
+            // 驱逐线程的一轮检测
+            pool.evict();
+            Assert.assertEquals(2, pool.getNumIdle());
+            Assert.assertEquals(1, pool.getDestroyedCount());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testShorterEvictionIntervalIsKept() throws Exception {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setWarmUpPolicy(WarmUpPolicy.NONE);
+        properties.setKeepAliveIdleMillis(60000);
+        properties.setTimeBetweenEvictionRunsMillis(10000);
+        properties.setNumTestsPerEvictionRun(2);
+        FTPClientPool<String> pool = new FTPClientPool<>(new StubFactory(ConcurrentHashMap.newKeySet()), properties);
+        try {
+            Assert.assertEquals(10000, pool.getTimeBetweenEvictionRunsMillis());
+            Assert.assertEquals(2, pool.getNumTestsPerEvictionRun());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * 按顺序创建conn-1、conn-2……，在broken中的连接校验失败
+     */
+    private static class StubFactory extends BasePooledObjectFactory<String> {
+
+        private final Set<String> broken;
+
+        private int sequence;
+
+        StubFactory(Set<String> broken) {
+            this.broken = broken;
+        }
+
+        @Override
+        public synchronized String create() {
+            return "conn-" + (++sequence);
+        }
+
+        @Override
+        public PooledObject<String> wrap(String object) {
+            return new DefaultPooledObject<>(object);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<String> p) {
+            return !broken.contains(p.getObject());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package szu.jason.ftp.spring.pool;
+
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.ObjectPool;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 按客户端名称分组的连接池中，单个客户端的maxTotal限制以及未配置客户端的查找
+ */
+public class KeyedFTPClientPoolTest {
+
+    private KeyedFTPClientPool pool;
+
+    @Before
+    public void setUp() {
+        Map<String, FTPClientUtilProperties> clients = new LinkedHashMap<>();
+        clients.put("small", client(2));
+        clients.put("large", client(8));
+        GenericKeyedObjectPoolConfig config = new GenericKeyedObjectPoolConfig();
+        config.setMaxTotalPerKey(4);
+        config.setMaxWaitMillis(50);
+        AtomicInteger sequence = new AtomicInteger();
+        pool = new KeyedFTPClientPool(clients, new BaseKeyedPooledObjectFactory<String, Object>() {
+            @Override
+            public Object create(String key) {
+                return key + "-" + sequence.incrementAndGet();
+            }
+
+            @Override
+            public PooledObject<Object> wrap(Object value) {
+                return new DefaultPooledObject<>(value);
+            }
+        }, config);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testClientMaxTotalIsEnforced() throws Exception {
+        ObjectPool<String> small = pool.getPool("small");
+        String first = small.borrowObject();
+        String second = small.borrowObject();
+        assertExhausted(small);
+        // 其他客户端不受影响
+        Assert.assertTrue(pool.<String>getPool("large").borrowObject().startsWith("large"));
+
+        // 归还和销毁都释放名额
+        small.returnObject(first);
+        Assert.assertEquals(first, small.borrowObject());
+        small.invalidateObject(second);
+        small.borrowObject();
+        assertExhausted(small);
+        Assert.assertEquals(2, small.getNumActive());
+    }
+
+    @Test
+    public void testViewsShareClientLimit() throws Exception {
+        Assert.assertSame(pool.getPool("small"), pool.getPool("small"));
+        pool.getPool("small").borrowObject();
+        pool.getPool("small").borrowObject();
+        assertExhausted(pool.getPool("small"));
+    }
+
+    @Test
+    public void testMaxTotalPerKeyWhenClientLimitIsLarger() throws Exception {
+        ObjectPool<String> large = pool.getPool("large");
+        for (int i = 0; i < 4; i++) {
+            large.borrowObject();
+        }
+        // 由max-total-per-key限制
+        assertExhausted(large);
+        Assert.assertEquals(4, large.getNumActive());
+    }
+
+    @Test(expected = FTPClientUtilException.class)
+    public void testUnknownClient() {
+        pool.getPool("missing");
+    }
+
+    private static void assertExhausted(ObjectPool<String> view) throws Exception {
+        try {
+            view.borrowObject();
+            Assert.fail("连接已借满时应等待超时");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    private static FTPClientUtilProperties client(int maxTotal) {
+        FTPClientUtilProperties properties = new FTPClientUtilProperties();
+        properties.setMaxTotal(maxTotal);
+        properties.setMaxWaitMillis(50);
+        return properties;
+    }
+}
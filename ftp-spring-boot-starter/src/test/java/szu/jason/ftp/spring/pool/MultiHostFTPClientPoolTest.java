@@ -0,0 +1,261 @@
+package szu.jason.ftp.spring.pool;
+
+import com.jcraft.jsch.JSchException;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import szu.jason.ftp.spring.FTPClientUtilProperties;
+import szu.jason.ftp.spring.exception.FTPClientUtilException;
+import szu.jason.ftp.spring.exception.FTPConnectionRejectedException;
+
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 多节点连接池的节点解析、故障转移、摘除与探测恢复，以及哪些失败计入节点的失败次数
+ */
+public class MultiHostFTPClientPoolTest {
+
+    private FTPClientUtilProperties properties;
+    /**
+     * 无法创建连接的节点
+     */
+    private Set<String> downHosts;
+
+    private AtomicInteger sequence;
+
+    @Before
+    public void setUp() {
+        properties = new FTPClientUtilProperties();
+        properties.setPort(2121);
+        properties.setHostEjectFailures(1);
+        properties.setHostEjectMillis(60000);
+        downHosts = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        sequence = new AtomicInteger();
+    }
+
+    @Test
+    public void testEndpointProperties() {
+        FTPClientUtilProperties withPort = MultiHostFTPClientPool.endpointProperties(properties, " ftp1:21 ");
+        Assert.assertEquals("ftp1", withPort.getHostname());
+        Assert.assertEquals(21, withPort.getPort());
+
+        FTPClientUtilProperties withoutPort = MultiHostFTPClientPool.endpointProperties(properties, "ftp2");
+        Assert.assertEquals("ftp2", withoutPort.getHostname());
+        Assert.assertEquals(2121, withoutPort.getPort());
+        // 公共配置不受影响
+        Assert.assertNotSame(properties, withoutPort);
+        Assert.assertEquals(2121, properties.getPort());
+
+        // 含多个":"的IPv6地址不解析端口
+        FTPClientUtilProperties ipv6 = MultiHostFTPClientPool.endpointProperties(properties, "::1");
+        Assert.assertEquals("::1", ipv6.getHostname());
+        Assert.assertEquals(2121, ipv6.getPort());
+    }
+
+    @Test(expected = FTPClientUtilException.class)
+    public void testNoHosts() throws Exception {
+        newPool();
+    }
+
+    @Test
+    public void testFailoverEjectsFailingHost() throws Exception {
+        properties.setHosts(Arrays.asList("bad", "good"));
+        downHosts.add("bad");
+        MultiHostFTPClientPool<String> pool = newPool();
+
+        for (int i = 0; i < 5; i++) {
+            String object = pool.borrowObject();
+            Assert.assertTrue(object.startsWith("good"));
+            pool.returnObject(object);
+        }
+        MultiHostFTPClientPool.Endpoint<String> bad = pool.getEndpoints().get(0);
+        MultiHostFTPClientPool.Endpoint<String> good = pool.getEndpoints().get(1);
+        Assert.assertTrue(bad.isEjected());
+        Assert.assertTrue(bad.getErrorRate() > 0);
+        Assert.assertFalse(good.isEjected());
+        Assert.assertEquals(0, good.getErrorRate(), 0);
+    }
+
+    @Test
+    public void testAllHostsDown() throws Exception {
+        properties.setHosts(Arrays.asList("a", "b"));
+        downHosts.addAll(Arrays.asList("a", "b"));
+        MultiHostFTPClientPool<String> pool = newPool();
+        try {
+            pool.borrowObject();
+            Assert.fail();
+        } catch (FTPClientUtilException e) {
+            Assert.assertTrue(e.getMessage().startsWith("down"));
+        }
+        for (MultiHostFTPClientPool.Endpoint<String> endpoint : pool.getEndpoints()) {
+            Assert.assertTrue(endpoint.isEjected());
+        }
+
+        // 所有节点均被摘除时仍尝试最早到期的节点，成功后恢复
+        downHosts.clear();
+        String object = pool.borrowObject();
+        Assert.assertTrue(object.startsWith("a"));
+        pool.returnObject(object);
+        Assert.assertFalse(pool.getEndpoints().get(0).isEjected());
+        Assert.assertTrue(pool.getEndpoints().get(1).isEjected());
+    }
+
+    @Test
+    public void testInvalidateCountsOnlyHostFailures() throws Exception {
+        properties.setHosts(Collections.singletonList("a"));
+        properties.setHostEjectFailures(2);
+        MultiHostFTPClientPool<String> pool = newPool();
+        MultiHostFTPClientPool.Endpoint<String> endpoint = pool.getEndpoints().get(0);
+
+        // 未归因于节点的销毁（本地IO异常等）不计入失败
+        for (int i = 0; i < 3; i++) {
+            pool.invalidateObject(pool.borrowObject());
+            pool.invalidateObject(pool.borrowObject(), false);
+        }
+        Assert.assertFalse(endpoint.isEjected());
+        Assert.assertEquals(0, endpoint.getErrorRate(), 0);
+
+        pool.invalidateObject(pool.borrowObject(), true);
+        Assert.assertFalse(endpoint.isEjected());
+        pool.invalidateObject(pool.borrowObject(), true);
+        Assert.assertTrue(endpoint.isEjected());
+        Assert.assertEquals(0, pool.getNumActive());
+    }
+
+    @Test
+    public void testExhaustedHostIsNotEjected() throws Exception {
+        properties.setHosts(Arrays.asList("a", "b"));
+        properties.setMaxTotal(1);
+        properties.setMaxWaitMillis(10);
+        MultiHostFTPClientPool<String> pool = newPool();
+
+        String first = pool.borrowObject();
+        String second = pool.borrowObject();
+        Assert.assertNotEquals(first.charAt(0), second.charAt(0));
+        try {
+            pool.borrowObject();
+            Assert.fail("所有节点均已借满时应等待超时");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        for (MultiHostFTPClientPool.Endpoint<String> endpoint : pool.getEndpoints()) {
+            Assert.assertFalse(endpoint.isEjected());
+            Assert.assertEquals(0, endpoint.getErrorRate(), 0);
+        }
+        pool.returnObject(first);
+        pool.returnObject(second);
+    }
+
+    @Test
+    public void testIsHostFailure() {
+        Assert.assertTrue(MultiHostFTPClientPool.isHostFailure(new FTPConnectionRejectedException("421")));
+        Assert.assertTrue(MultiHostFTPClientPool.isHostFailure(new ConnectException("Connection refused")));
+        Assert.assertTrue(MultiHostFTPClientPool.isHostFailure(new JSchException("Auth fail")));
+        Assert.assertFalse(MultiHostFTPClientPool.isHostFailure(new NoSuchElementException("Timeout waiting for idle object")));
+    }
+
+    @Test
+    public void testBusyProbeCanBeRetried() {
+        properties.setHostEjectMillis(1000);
+        MultiHostFTPClientPool.Endpoint<String> endpoint = new MultiHostFTPClientPool.Endpoint<>("a", 21, null);
+        endpoint.onFailure(properties);
+        long expired = System.currentTimeMillis() + 2000;
+        endpoint.onSelected(expired);
+        Assert.assertFalse(endpoint.isAvailable(expired));
+        // 探测借用因连接池借满而未完成，之后可再次探测
+        endpoint.onBusy();
+        Assert.assertTrue(endpoint.isAvailable(expired));
+        Assert.assertTrue(endpoint.isEjected());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReturnForeignObject() throws Exception {
+        properties.setHosts(Collections.singletonList("a"));
+        newPool().returnObject("foreign");
+    }
+
+    @Test
+    public void testEjectAndProbe() {
+        properties.setHostEjectFailures(3);
+        properties.setHostEjectMillis(1000);
+        MultiHostFTPClientPool.Endpoint<String> endpoint = new MultiHostFTPClientPool.Endpoint<>("a", 21, null);
+
+        endpoint.onFailure(properties);
+        endpoint.onFailure(properties);
+        Assert.assertFalse(endpoint.isEjected());
+        // 成功使连续失败次数清零
+        endpoint.onSuccess(1_000_000);
+        endpoint.onFailure(properties);
+        endpoint.onFailure(properties);
+        Assert.assertFalse(endpoint.isEjected());
+        endpoint.onFailure(properties);
+        Assert.assertTrue(endpoint.isEjected());
+
+        long now = System.currentTimeMillis();
+        Assert.assertFalse(endpoint.isAvailable(now));
+        long expired = now + 2000;
+        Assert.assertTrue(endpoint.isAvailable(expired));
+
+        // 到期后只放行一次探测
+        endpoint.onSelected(expired);
+        Assert.assertFalse(endpoint.isAvailable(expired));
+        // 探测失败立即再次摘除
+        endpoint.onFailure(properties);
+        Assert.assertTrue(endpoint.isEjected());
+        Assert.assertFalse(endpoint.isAvailable(System.currentTimeMillis()));
+
+        long expiredAgain = System.currentTimeMillis() + 2000;
+        Assert.assertTrue(endpoint.isAvailable(expiredAgain));
+        endpoint.onSelected(expiredAgain);
+        endpoint.onSuccess(1_000_000);
+        Assert.assertFalse(endpoint.isEjected());
+        Assert.assertTrue(endpoint.isAvailable(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testScorePrefersFasterHost() {
+        MultiHostFTPClientPool.Endpoint<String> fast = new MultiHostFTPClientPool.Endpoint<>("fast", 21, null);
+        MultiHostFTPClientPool.Endpoint<String> slow = new MultiHostFTPClientPool.Endpoint<>("slow", 21, null);
+        fast.onSuccess(5_000_000);
+        slow.onSuccess(50_000_000);
+        Assert.assertTrue(fast.score() < slow.score());
+        Assert.assertEquals(5, fast.getLatencyMillis(), 0.001);
+
+        // 错误率抬高得分
+        MultiHostFTPClientPool.Endpoint<String> failing = new MultiHostFTPClientPool.Endpoint<>("failing", 21, null);
+        failing.onSuccess(5_000_000);
+        failing.onFailure(properties);
+        Assert.assertTrue(failing.score() > fast.score());
+    }
+
+    private MultiHostFTPClientPool<String> newPool() throws Exception {
+        return new MultiHostFTPClientPool<>(properties, endpointProperties ->
+                new GenericObjectPool<>(new BasePooledObjectFactory<String>() {
+                    @Override
+                    public String create() {
+                        String hostname = endpointProperties.getHostname();
+                        if (downHosts.contains(hostname)) {
+                            throw new FTPClientUtilException("down: " + hostname, new ConnectException("Connection refused"));
+                        }
+                        return hostname + "-" + sequence.incrementAndGet();
+                    }
+
+                    @Override
+                    public PooledObject<String> wrap(String object) {
+                        return new DefaultPooledObject<>(object);
+                    }
+                }, endpointProperties));
+    }
+}
@@ -0,0 +1,77 @@
+package szu.jason.ftp.spring.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : MODE Z压缩流、解压流的往返，以及按扩展名判断文件是否已压缩
+ */
+public class CompressionUtilTest {
+
+    private static final List<String> EXTENSIONS = Arrays.asList("gz", "zip", "JPG");
+
+    @Test
+    public void testDeflateInflateRoundTrip() throws Exception {
+        // 一半可压缩、一半随机，长度不是缓冲区大小的整数倍
+        byte[] content = new byte[200 * 1024 + 31];
+        new Random(25).nextBytes(content);
+        Arrays.fill(content, 0, content.length / 2, (byte) 'a');
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = CompressionUtil.deflate(compressed, Deflater.DEFAULT_COMPRESSION, 8192)) {
+            outputStream.write(content);
+        }
+        Assert.assertTrue(compressed.size() < content.length);
+
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        try (InputStream inputStream = CompressionUtil.inflate(
+                new ByteArrayInputStream(compressed.toByteArray()), 8192)) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = inputStream.read(buffer)) != -1) {
+                restored.write(buffer, 0, n);
+            }
+        }
+        Assert.assertArrayEquals(content, restored.toByteArray());
+    }
+
+    @Test
+    public void testRoundTripEmpty() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        CompressionUtil.deflate(compressed, Deflater.BEST_SPEED, 0).close();
+        // 空内容也要写出zlib头和尾部
+        Assert.assertTrue(compressed.size() > 0);
+        try (InputStream inputStream = CompressionUtil.inflate(
+                new ByteArrayInputStream(compressed.toByteArray()), 0)) {
+            Assert.assertEquals(-1, inputStream.read());
+        }
+    }
+
+    @Test
+    public void testIsCompressed() {
+        Assert.assertTrue(CompressionUtil.isCompressed("a.gz", EXTENSIONS));
+        Assert.assertTrue(CompressionUtil.isCompressed("/data/backup.tar.gz", EXTENSIONS));
+        // 忽略大小写
+        Assert.assertTrue(CompressionUtil.isCompressed("/data/A.ZIP", EXTENSIONS));
+        Assert.assertTrue(CompressionUtil.isCompressed("photo.jpg", EXTENSIONS));
+
+        Assert.assertFalse(CompressionUtil.isCompressed("a.txt", EXTENSIONS));
+        Assert.assertFalse(CompressionUtil.isCompressed("a.gzip", EXTENSIONS));
+        Assert.assertFalse(CompressionUtil.isCompressed("gz", EXTENSIONS));
+        // "."在目录名中，文件本身没有扩展名
+        Assert.assertFalse(CompressionUtil.isCompressed("/data.gz/readme", EXTENSIONS));
+        Assert.assertFalse(CompressionUtil.isCompressed(null, EXTENSIONS));
+        Assert.assertFalse(CompressionUtil.isCompressed("a.gz", null));
+    }
+}
@@ -0,0 +1,67 @@
+package szu.jason.ftp.spring.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 操作许可数跟随连接池当前上限
+ */
+public class ConnectionPermitsTest {
+
+    @Test
+    public void testPermitsFor() {
+        Assert.assertEquals(1, ConnectionPermits.permitsFor(1));
+        Assert.assertEquals(1, ConnectionPermits.permitsFor(3));
+        Assert.assertEquals(4, ConnectionPermits.permitsFor(8));
+        Assert.assertEquals(Integer.MAX_VALUE, ConnectionPermits.permitsFor(-1));
+        // 每个许可对应一个连接时许可数等于上限
+        Assert.assertEquals(3, ConnectionPermits.permitsFor(3, 1));
+        Assert.assertEquals(Integer.MAX_VALUE, ConnectionPermits.permitsFor(0, 1));
+    }
+
+    @Test
+    public void testShrinkTakesEffectAfterRelease() throws Exception {
+        AtomicInteger maxTotal = new AtomicInteger(8);
+        ConnectionPermits permits = new ConnectionPermits(maxTotal::get);
+        for (int i = 0; i < 4; i++) {
+            permits.acquire();
+        }
+        Assert.assertEquals(0, permits.getAvailablePermits());
+        // 自适应调节器将上限收缩为4，正在进行的操作不受影响，可用许可变为负数
+        maxTotal.set(4);
+        permits.release();
+        Assert.assertEquals(2, permits.getPermits());
+        Assert.assertEquals(-1, permits.getAvailablePermits());
+        permits.release();
+        permits.release();
+        Assert.assertEquals(1, permits.getAvailablePermits());
+    }
+
+    @Test
+    public void testWaiterWakesUpWhenPoolGrows() throws Exception {
+        AtomicInteger maxTotal = new AtomicInteger(2);
+        ConnectionPermits permits = new ConnectionPermits(maxTotal::get);
+        permits.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                permits.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        Assert.assertFalse(acquired.await(300, TimeUnit.MILLISECONDS));
+        // 没有任何操作结束，上限扩大后等待的线程也能取得许可
+        maxTotal.set(4);
+        Assert.assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        waiter.join();
+    }
+}
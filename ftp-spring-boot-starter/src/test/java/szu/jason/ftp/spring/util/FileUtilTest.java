@@ -0,0 +1,74 @@
+package szu.jason.ftp.spring.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import szu.jason.ftp.spring.pool.TransferBufferPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 本地文件通道与远程文件流之间的传输使用池中的缓冲区
+ */
+public class FileUtilTest {
+
+    private Path localFile;
+
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        localFile = Files.createTempFile("file-util", ".dat");
+        // 不是缓冲区大小的整数倍，覆盖最后一次不满的读取
+        content = new byte[100 * 1024 + 17];
+        new Random(17).nextBytes(content);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(localFile);
+    }
+
+    @Test
+    public void testCopyFromStreamThenToStream() throws Exception {
+        TransferBufferPool bufferPool = new TransferBufferPool(8192, 2);
+        try (FileChannel fileChannel = FileChannel.open(localFile, StandardOpenOption.WRITE)) {
+            Assert.assertEquals(content.length,
+                    FileUtil.copyFromStream(new ByteArrayInputStream(content), fileChannel, bufferPool));
+        }
+        Assert.assertArrayEquals(content, Files.readAllBytes(localFile));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (FileChannel fileChannel = FileChannel.open(localFile, StandardOpenOption.READ)) {
+            Assert.assertEquals(content.length, FileUtil.copyToStream(fileChannel, outputStream, bufferPool));
+        }
+        Assert.assertArrayEquals(content, outputStream.toByteArray());
+        // 第二次传输复用第一次归还的缓冲区
+        Assert.assertEquals(1, bufferPool.getMissCount());
+        Assert.assertEquals(1, bufferPool.getHitCount());
+        Assert.assertEquals(1, bufferPool.getIdleCount());
+    }
+
+    @Test
+    public void testCopyToStreamFromCurrentPosition() throws Exception {
+        Files.write(localFile, content);
+        TransferBufferPool bufferPool = new TransferBufferPool(4096, 1);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (FileChannel fileChannel = FileChannel.open(localFile, StandardOpenOption.READ)) {
+            fileChannel.position(1000);
+            Assert.assertEquals(content.length - 1000, FileUtil.copyToStream(fileChannel, outputStream, bufferPool));
+        }
+        byte[] transferred = outputStream.toByteArray();
+        Assert.assertEquals(content[1000], transferred[0]);
+        Assert.assertEquals(content[content.length - 1], transferred[transferred.length - 1]);
+    }
+}
@@ -0,0 +1,165 @@
+package szu.jason.ftp.spring.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import szu.jason.ftp.spring.pool.TransferBufferPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 流水线复制的正确性、失败时关闭输入流唤醒读线程、读线程用尽时在调用线程中复制
+ */
+public class PipelinedCopierTest {
+
+    @Test
+    public void testCopy() throws Exception {
+        byte[] content = new byte[1024 * 1024 + 3];
+        new Random(22).nextBytes(content);
+        TransferBufferPool bufferPool = new TransferBufferPool(8192, 16);
+        PipelinedCopier copier = new PipelinedCopier(bufferPool, 4, 2);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PipelinedCopier.CopyStatistics statistics = copier.copy(new ByteArrayInputStream(content), outputStream);
+        Assert.assertEquals(content.length, statistics.getBytes());
+        Assert.assertArrayEquals(content, outputStream.toByteArray());
+        // 成功后环中的缓冲区全部归还
+        Assert.assertEquals(4, bufferPool.getIdleCount());
+    }
+
+    @Test
+    public void testWriteFailureClosesSource() throws Exception {
+        // 读线程读完一个缓冲区后阻塞在读操作上
+        BlockingInputStream inputStream = new BlockingInputStream(8192);
+        PipelinedCopier copier = new PipelinedCopier(new TransferBufferPool(8192, 16), 4, 2);
+        OutputStream failingOutputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("写入失败");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    inputStream.reading.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("写入失败");
+            }
+        };
+        try {
+            copier.copy(inputStream, failingOutputStream);
+            Assert.fail("写入失败时复制应失败");
+        } catch (IOException e) {
+            Assert.assertEquals("写入失败", e.getMessage());
+        }
+        Assert.assertTrue(inputStream.closed.await(1, TimeUnit.SECONDS));
+        // 阻塞在读操作上的读线程被唤醒后退出
+        Assert.assertTrue(inputStream.readerReturned.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReadFailurePropagates() throws Exception {
+        PipelinedCopier copier = new PipelinedCopier(new TransferBufferPool(8192, 16), 4, 2);
+        InputStream failingInputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("读取失败");
+            }
+        };
+        try {
+            copier.copy(failingInputStream, new ByteArrayOutputStream());
+            Assert.fail("读取失败时复制应失败");
+        } catch (IOException e) {
+            Assert.assertEquals("读取失败", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCopyInCallerThreadWhenReadersExhausted() throws Exception {
+        PipelinedCopier copier = new PipelinedCopier(new TransferBufferPool(8192, 16), 4, 1);
+        // 第一个复制占用唯一的读线程
+        BlockingInputStream blockingInputStream = new BlockingInputStream(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> copier.copy(blockingInputStream, new ByteArrayOutputStream()));
+            Assert.assertTrue(blockingInputStream.reading.await(1, TimeUnit.SECONDS));
+
+            byte[] content = "id,name\n1,vander\n".getBytes("UTF-8");
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            PipelinedCopier.CopyStatistics statistics = copier.copy(new ByteArrayInputStream(content), outputStream);
+            Assert.assertArrayEquals(content, outputStream.toByteArray());
+            // 在调用线程中交替读写，没有等待时间
+            Assert.assertEquals(0, statistics.getWriterWaitNanos());
+
+            blockingInputStream.close();
+            try {
+                blocked.get(1, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // 输入流被关闭，第一个复制失败
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 先返回指定字节数，之后阻塞在读操作上直到被关闭，关闭后读操作抛出异常
+     */
+    private static class BlockingInputStream extends InputStream {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private final CountDownLatch reading = new CountDownLatch(1);
+
+        private final CountDownLatch readerReturned = new CountDownLatch(1);
+
+        private long remaining;
+
+        BlockingInputStream(long available) {
+            this.remaining = available;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0];
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining > 0) {
+                int n = (int) Math.min(len, remaining);
+                remaining -= n;
+                return n;
+            }
+            reading.countDown();
+            // 与阻塞的socket读一样不响应中断
+            while (closed.getCount() > 0) {
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+            readerReturned.countDown();
+            throw new IOException("Stream closed");
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
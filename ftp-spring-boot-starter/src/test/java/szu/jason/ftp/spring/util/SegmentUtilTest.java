@@ -0,0 +1,107 @@
+package szu.jason.ftp.spring.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author : Vander
+ * @date :   2026/10/17
+ * @description : 分段切分覆盖整个文件、不重叠，并遵守最小分段大小；分段失败时等待其余分段线程结束
+ */
+public class SegmentUtilTest {
+
+    private static final long MB = 1024 * 1024L;
+
+    @Test
+    public void testSplitEvenly() {
+        List<long[]> segments = SegmentUtil.split(100 * MB, 4, 8 * MB);
+        Assert.assertEquals(4, segments.size());
+        assertContiguous(segments, 100 * MB);
+        for (long[] segment : segments) {
+            Assert.assertEquals(25 * MB, segment[1]);
+        }
+    }
+
+    @Test
+    public void testLastSegmentTakesRemainder() {
+        long totalSize = 100 * MB + 3;
+        List<long[]> segments = SegmentUtil.split(totalSize, 3, 8 * MB);
+        Assert.assertEquals(3, segments.size());
+        assertContiguous(segments, totalSize);
+        long segmentSize = totalSize / 3;
+        Assert.assertEquals(segmentSize, segments.get(0)[1]);
+        Assert.assertEquals(segmentSize, segments.get(1)[1]);
+        Assert.assertEquals(totalSize - 2 * segmentSize, segments.get(2)[1]);
+    }
+
+    @Test
+    public void testSegmentCountLimitedByMinSegmentSize() {
+        // 20MB按8MB最小分段只能切成2段
+        List<long[]> segments = SegmentUtil.split(20 * MB, 8, 8 * MB);
+        Assert.assertEquals(2, segments.size());
+        assertContiguous(segments, 20 * MB);
+        for (long[] segment : segments) {
+            Assert.assertTrue(segment[1] >= 8 * MB);
+        }
+    }
+
+    @Test
+    public void testSmallFileIsSingleSegment() {
+        List<long[]> segments = SegmentUtil.split(MB, 4, 8 * MB);
+        Assert.assertEquals(1, segments.size());
+        Assert.assertArrayEquals(new long[]{0, MB}, segments.get(0));
+    }
+
+    @Test
+    public void testDegenerateArguments() {
+        Assert.assertTrue(SegmentUtil.split(0, 4, 8 * MB).isEmpty());
+        Assert.assertTrue(SegmentUtil.split(-1, 4, 8 * MB).isEmpty());
+        // 期望分段数非法时按1段处理
+        Assert.assertEquals(1, SegmentUtil.split(100 * MB, 0, 8 * MB).size());
+        // 最小分段大小非法时按1字节处理
+        List<long[]> segments = SegmentUtil.split(10, 4, 0);
+        Assert.assertEquals(4, segments.size());
+        assertContiguous(segments, 10);
+    }
+
+    @Test
+    public void testFailureWaitsForCancelledSegments() throws Exception {
+        CountDownLatch slowSegmentStarted = new CountDownLatch(1);
+        AtomicBoolean slowSegmentFinished = new AtomicBoolean();
+        try {
+            SegmentUtil.runSegments(SegmentUtil.split(2, 2, 1), "segment-test", (start, length) -> {
+                if (start == 0) {
+                    slowSegmentStarted.await(1, TimeUnit.SECONDS);
+                    throw new IOException("Connection reset");
+                }
+                slowSegmentStarted.countDown();
+                // 模拟不响应中断、仍在写入本地文件的分段
+                long deadline = System.currentTimeMillis() + 300;
+                while (System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                slowSegmentFinished.set(true);
+            });
+            Assert.fail("分段失败时应抛出异常");
+        } catch (IOException e) {
+            Assert.assertEquals("Connection reset", e.getMessage());
+        }
+        Assert.assertTrue(slowSegmentFinished.get());
+    }
+
+    private static void assertContiguous(List<long[]> segments, long totalSize) {
+        long expectedStart = 0;
+        for (long[] segment : segments) {
+            Assert.assertEquals(expectedStart, segment[0]);
+            Assert.assertTrue(segment[1] > 0);
+            expectedStart += segment[1];
+        }
+        Assert.assertEquals(totalSize, expectedStart);
+    }
+}